@@ -89,6 +89,8 @@ echo Creating ingress stream
 until aws --endpoint-url=http://demo.localhost.localstack.cloud:4566 kinesis create-stream --stream-name example-ingress-stream --shard-count 1; do sleep 1; done
 echo Creating egress stream
 aws --endpoint-url=http://demo.localhost.localstack.cloud:4566 kinesis create-stream --stream-name example-egress-stream --shard-count 1
+echo Creating quarantine stream
+aws --endpoint-url=http://demo.localhost.localstack.cloud:4566 kinesis create-stream --stream-name example-quarantine-stream --shard-count 1
 echo Listing streams
 aws --endpoint-url=http://demo.localhost.localstack.cloud:4566 kinesis list-streams
 EOF
@@ -17,11 +17,77 @@ public class Configuration {
 
     public static String INGRESS_KINESIS_STREAM_NAME = properties.getOrDefault("EVENTS_INGRESS_STREAM_DEFAULT", "example-ingress-stream").toString();
     public static String EGRESS_KINESIS_STREAM_NAME = properties.getOrDefault("EVENTS_EGRESS_STREAM_DEFAULT", "example-egress-stream").toString();
+    // Stream for records that couldn't be handled, with the reason.  See Quarantine.
+    public static String QUARANTINE_KINESIS_STREAM_NAME = properties.getOrDefault("EVENTS_QUARANTINE_STREAM_DEFAULT", "example-quarantine-stream").toString();
 
     public static boolean IS_LOCAL_DEV = properties.getOrDefault("IS_LOCAL_DEV", "false").equals("true");
     public static boolean USE_ENHANCED_FANOUT = properties.getOrDefault("USE_ENHANCED_FANOUT", "true").equals("true");
     public static String ENHANCED_FANOUT_NAME = properties.getOrDefault("ENHANCED_FANOUT_NAME", "example-enhanced-fanout").toString();
 
+    // CloudEvents format for events inside the job, "protobuf" or "json"
+    public static String INTERNAL_EVENT_FORMAT = properties.getOrDefault("INTERNAL_EVENT_FORMAT", "protobuf").toString();
+
+    // CloudEvents format of the records on each ingress stream, as comma separated <stream name>=<format> pairs.  The
+    // format of records on streams not listed is detected from their first byte.  See ExampleCloudEventFormats.
+    public static String INGRESS_EVENT_FORMATS = properties.getOrDefault("INGRESS_EVENT_FORMATS", "").toString();
+
+    // CloudEvents format of the records written to the egress stream, "json" or "protobuf"
+    public static String EGRESS_EVENT_FORMAT = properties.getOrDefault("EGRESS_EVENT_FORMAT", "json").toString();
+
+    // Whether gzip and deflate compressed records on each ingress stream are decompressed, as comma separated
+    // <stream name>=true|false pairs.  Streams not listed are decompressed.  See PayloadCompression.
+    public static String INGRESS_DECOMPRESSION = properties.getOrDefault("INGRESS_DECOMPRESSION", "").toString();
+
+    // Compression of records written to the egress stream, "none", "gzip" or "deflate", for payloads of at least the threshold in bytes
+    public static String EGRESS_COMPRESSION = properties.getOrDefault("EGRESS_COMPRESSION", "none").toString();
+    public static int EGRESS_COMPRESSION_THRESHOLD = Integer.parseInt(properties.getOrDefault("EGRESS_COMPRESSION_THRESHOLD", "1024").toString());
+
+    // Routing rules in addition to the Forwarder classes, as comma separated <event type>=<namespace>/<function type>@<key path>
+    // rules, and a file of them, one per line, optionally watched for changes.  See RoutingRules.
+    public static String ROUTING_RULES = properties.getOrDefault("ROUTING_RULES", "").toString();
+    public static String ROUTING_RULES_FILE = properties.getOrDefault("ROUTING_RULES_FILE", "").toString();
+    public static boolean ROUTING_RULES_WATCH = properties.getOrDefault("ROUTING_RULES_WATCH", "false").equals("true");
+
+    // Bundling of consecutive ingress events for the same target into one batch, of up to the max events (0 or 1 to
+    // disable) within the window.  See EnvelopeBundler.
+    public static int INGRESS_BUNDLE_MAX_EVENTS = Integer.parseInt(properties.getOrDefault("INGRESS_BUNDLE_MAX_EVENTS", "0").toString());
+    public static long INGRESS_BUNDLE_WINDOW_MILLIS = Long.parseLong(properties.getOrDefault("INGRESS_BUNDLE_WINDOW_MILLIS", "50").toString());
+
+    // Where the id of the function instance an event is addressed to is found, as comma separated <event type>=<key path>
+    // pairs.  An event type ending in * matches by prefix.  See TargetKeyPaths.
+    public static String TARGET_KEY_PATHS = properties.getOrDefault("TARGET_KEY_PATHS", "example.product=data.id,example.cart-*=data.cartId").toString();
+
+    // How the stateful function classes and Spring components are found at startup, "registry" (generated at build time)
+    // or "scan" (the classpath).  See FunctionProvider.
+    public static String FUNCTION_DISCOVERY = properties.getOrDefault("FUNCTION_DISCOVERY", "registry").toString();
+
+    // How ids and times of emitted events are generated, "monotonic" or "deterministic" (for replay tests, using the seed and start time)
+    // Deterministic ids only repeat at parallelism 1, see DeterministicEventIdentity.
+    public static String EVENT_IDENTITY = properties.getOrDefault("EVENT_IDENTITY", "monotonic").toString();
+    public static long EVENT_IDENTITY_SEED = Long.parseLong(properties.getOrDefault("EVENT_IDENTITY_SEED", "0").toString());
+    public static String EVENT_IDENTITY_START_TIME = properties.getOrDefault("EVENT_IDENTITY_START_TIME", "2024-01-01T00:00:00Z").toString();
+
+    // The product fields whose changes are sent to the product's subscribers, comma separated, or "*" for all of them.
+    // Product events that change none of them only update the product.  See ProductChanges.
+    public static String PRODUCT_NOTIFY_FIELDS = properties.getOrDefault("PRODUCT_NOTIFY_FIELDS", "price,availability").toString();
+
+    // How long the changes to a product are coalesced before its subscribers are notified of the latest, per product
+    // category, as comma separated <category>=<millis> pairs.  The * category is for products of categories not listed
+    // and without one.  Products with no window (the default) notify their subscribers of every change.  See NotifyWindows.
+    public static String PRODUCT_NOTIFY_WINDOWS = properties.getOrDefault("PRODUCT_NOTIFY_WINDOWS", "").toString();
+
+    // The number of subscribers a product notifies itself.  A product with more has them held by subscriber shards,
+    // 2 at first, doubled when a shard holds more than the same number, up to the max.  See SubscriberShardStatefulFunction.
+    public static int SUBSCRIBER_SHARD_SIZE = Integer.parseInt(properties.getOrDefault("SUBSCRIBER_SHARD_SIZE", "10000").toString());
+    public static int SUBSCRIBER_SHARDS_MAX = Integer.parseInt(properties.getOrDefault("SUBSCRIBER_SHARDS_MAX", "256").toString());
+
+    // Logging of the events handled, per function class: one in every LOG_EVENT_SAMPLING events, and at most
+    // LOG_EVENT_RATE lines a second (0 for none).  Repeated errors are logged once and then summarized every
+    // ERROR_SUMMARY_INTERVAL_MILLIS.  See SampledLogger and ErrorBursts.
+    public static long LOG_EVENT_SAMPLING = Long.parseLong(properties.getOrDefault("LOG_EVENT_SAMPLING", "100").toString());
+    public static long LOG_EVENT_RATE = Long.parseLong(properties.getOrDefault("LOG_EVENT_RATE", "10").toString());
+    public static long ERROR_SUMMARY_INTERVAL_MILLIS = Long.parseLong(properties.getOrDefault("ERROR_SUMMARY_INTERVAL_MILLIS", "60000").toString());
+
 
     public static final AwsRegion getAwsRegion() {
 
@@ -1,5 +1,8 @@
 package com.example.stateful_functions;
 
+import com.example.stateful_functions.cloudevents.identity.DeterministicEventIdentity;
+import com.example.stateful_functions.cloudevents.identity.EventIdentity;
+import com.example.stateful_functions.cloudevents.identity.MonotonicEventIdentity;
 import com.example.stateful_functions.egress.EgressSpecs;
 import com.example.stateful_functions.function.FunctionProvider;
 import com.example.stateful_functions.ingress.IngressSpecs;
@@ -15,6 +18,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.time.OffsetDateTime;
 import java.util.Map;
 
 @Component
@@ -38,8 +42,9 @@ public class SpringModule {
         binder.bindIngress(IngressSpecs.DEFAULT_KINESIS_INGRESS);
         binder.bindIngressRouter(IngressSpecs.INGRESS_ID, messageRouter);
 
-        // bind an egress to the system
+        // bind an egress to the system, and one for records that couldn't be handled
         binder.bindEgress(EgressSpecs.kinesisEgress);
+        binder.bindEgress(EgressSpecs.quarantineKinesisEgress);
 
         // bind the function types to the functionProvider
         functionProvider.bindFunctions(binder);
@@ -52,4 +57,16 @@ public class SpringModule {
         // Configure objectMapper has needed here
         return objectMapper;
     }
+
+    @Bean
+    @Scope("singleton")
+    public EventIdentity getEventIdentity() {
+        if ("deterministic".equals(com.example.stateful_functions.Configuration.EVENT_IDENTITY)) {
+            LOG.info("Using deterministic event ids and times");
+            return new DeterministicEventIdentity(
+                    com.example.stateful_functions.Configuration.EVENT_IDENTITY_SEED,
+                    OffsetDateTime.parse(com.example.stateful_functions.Configuration.EVENT_IDENTITY_START_TIME));
+        }
+        return new MonotonicEventIdentity();
+    }
 }
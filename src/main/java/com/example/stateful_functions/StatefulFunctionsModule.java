@@ -17,16 +17,24 @@
  */
 package com.example.stateful_functions;
 
+import com.example.stateful_functions.function.FunctionProvider;
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.flink.statefun.sdk.spi.StatefulFunctionModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.springframework.core.SpringProperties;
 
 import java.util.Map;
 
 public final class StatefulFunctionsModule implements StatefulFunctionModule {
 
+    private static final Logger LOG = LoggerFactory.getLogger(StatefulFunctionsModule.class);
+
+    private static final String IGNORE_COMPONENT_INDEX = "spring.index.ignore";
+
     static ApplicationContext applicationContext;
 
     @VisibleForTesting
@@ -37,7 +45,13 @@ public final class StatefulFunctionsModule implements StatefulFunctionModule {
     @Override
     public void configure(Map<String, String> globalConfiguration, Binder binder) {
         if (applicationContext == null) {
+            long started = System.nanoTime();
+            if (FunctionProvider.SCAN.equals(Configuration.FUNCTION_DISCOVERY)) {
+                // Scan the classpath for components too, rather than reading the index ComponentIndexProcessor generates
+                SpringProperties.setFlag(IGNORE_COMPONENT_INDEX);
+            }
             applicationContext = new AnnotationConfigApplicationContext(SpringModule.class);
+            LOG.info("Started the application context in {} ms", (System.nanoTime() - started) / 1_000_000);
         }
         SpringModule module = applicationContext.getBean(SpringModule.class);
         module.configure(globalConfiguration, binder);
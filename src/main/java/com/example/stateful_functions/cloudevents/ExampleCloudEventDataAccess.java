@@ -1,24 +1,44 @@
 package com.example.stateful_functions.cloudevents;
 
+import com.example.stateful_functions.cloudevents.codec.JsonCodec;
+import com.example.stateful_functions.cloudevents.codec.JsonCodecs;
 import com.example.stateful_functions.cloudevents.data.CartProductEventDetails;
 import com.example.stateful_functions.cloudevents.data.CartStatusEventDetails;
 import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
 import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionDetails;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.cloudevents.CloudEvent;
-import io.cloudevents.core.CloudEventUtils;
+import io.cloudevents.CloudEventData;
 import io.cloudevents.core.data.PojoCloudEventData;
-import io.cloudevents.jackson.PojoCloudEventDataMapper;
+import io.cloudevents.jackson.JsonCloudEventData;
+import io.cloudevents.rw.CloudEventRWException;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes and encodes the data of CloudEvents.
+ *
+ * Data classes annotated with @GeneratedJsonCodec use their generated streaming codec.  For other classes an
+ * ObjectReader and ObjectWriter is built once per class and reused; both are immutable and thread-safe.
+ * Data is read straight from the bytes (or the JSON tree, for events parsed from JSON) and written straight to
+ * bytes, and only when the event is serialized.
+ */
 @Component
 public class ExampleCloudEventDataAccess {
 
     @Autowired
     ObjectMapper objectMapper;
 
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
     public ExampleCloudEventDataAccess() {
     }
 
@@ -33,35 +53,57 @@ public class ExampleCloudEventDataAccess {
     }
 
     public ProductEventDetails toProductEventDetails(CloudEvent event) {
-        PojoCloudEventData<ProductEventDetails> cloudEventData = CloudEventUtils.mapData(
-                event,
-                PojoCloudEventDataMapper.from(objectMapper, ProductEventDetails.class)
-        );
-        return cloudEventData.getValue();
+        return toDetails(event, ProductEventDetails.class);
     }
 
     public CartProductEventDetails toCartProductEventDetails(CloudEvent event) {
-        PojoCloudEventData<CartProductEventDetails> cloudEventData = CloudEventUtils.mapData(
-                event,
-                PojoCloudEventDataMapper.from(objectMapper, CartProductEventDetails.class)
-        );
-        return cloudEventData.getValue();
+        return toDetails(event, CartProductEventDetails.class);
     }
 
     public CartStatusEventDetails toCartStatusEventDetails(CloudEvent event) {
-        PojoCloudEventData<CartStatusEventDetails> cloudEventData = CloudEventUtils.mapData(
-                event,
-                PojoCloudEventDataMapper.from(objectMapper, CartStatusEventDetails.class)
-        );
-        return cloudEventData.getValue();
+        return toDetails(event, CartStatusEventDetails.class);
     }
 
     public FunctionSubscriptionDetails toFunctionSubscriptionDetails(CloudEvent event) {
-        PojoCloudEventData<FunctionSubscriptionDetails> cloudEventData = CloudEventUtils.mapData(
-                event,
-                PojoCloudEventDataMapper.from(objectMapper, FunctionSubscriptionDetails.class)
-        );
-        return cloudEventData.getValue();
+        return toDetails(event, FunctionSubscriptionDetails.class);
+    }
+
+    /** The data of an event decoded as detailsClass, or null if the event has no data. */
+    public <T> T toDetails(CloudEvent event, Class<T> detailsClass) {
+        CloudEventData data = event.getData();
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof PojoCloudEventData && detailsClass.isInstance(((PojoCloudEventData<?>) data).getValue())) {
+            return detailsClass.cast(((PojoCloudEventData<?>) data).getValue());
+        }
+        JsonCodec<T> codec = JsonCodecs.forType(detailsClass);
+        try {
+            if (codec != null) {
+                return data instanceof JsonCloudEventData ?
+                        JsonCodecs.decode(codec, ((JsonCloudEventData) data).getNode()) :
+                        JsonCodecs.decode(codec, data.toBytes());
+            }
+            ObjectReader reader = readers.computeIfAbsent(detailsClass, objectMapper::readerFor);
+            if (data instanceof JsonCloudEventData) {
+                return reader.readValue(((JsonCloudEventData) data).getNode());
+            }
+            return reader.readValue(data.toBytes());
+        }
+        catch (IOException e) {
+            throw CloudEventRWException.newDataConversion(e, data.getClass().getSimpleName(), detailsClass.getName());
+        }
+    }
+
+    /** Event data for details, encoded as JSON when the event is serialized. */
+    @SuppressWarnings("unchecked")
+    public <T> CloudEventData toCloudEventData(T details) {
+        JsonCodec<T> codec = JsonCodecs.forType((Class<T>) details.getClass());
+        if (codec != null) {
+            return PojoCloudEventData.wrap(details, value -> JsonCodecs.encode(codec, value));
+        }
+        ObjectWriter writer = writers.computeIfAbsent(details.getClass(), objectMapper::writerFor);
+        return PojoCloudEventData.wrap(details, writer::writeValueAsBytes);
     }
 
 }
@@ -0,0 +1,54 @@
+package com.example.stateful_functions.cloudevents;
+
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.format.EventFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializes CloudEvents to and from envelope payloads using one of the CloudEvents event formats.
+ * Envelopes record the content type of the format their payload was written with.
+ */
+public abstract class ExampleCloudEventFormat {
+
+    private static Logger LOG = LoggerFactory.getLogger(ExampleCloudEventFormat.class);
+
+    private final EventFormat eventFormat;
+
+    protected ExampleCloudEventFormat(EventFormat eventFormat) {
+        this.eventFormat = eventFormat;
+    }
+
+    public String getContentType() {
+        return eventFormat.serializedContentType();
+    }
+
+    public CloudEvent deserialize(ByteString serializedEvent) {
+        return deserialize(EnvelopeUtil.unsafeBytes(serializedEvent));
+    }
+
+    public CloudEvent deserialize(byte[] serializedEvent) {
+        try {
+            return eventFormat.deserialize(serializedEvent);
+        }
+        catch (Throwable t) {
+            LOG.debug("Failed to deserialize event: {}", t.toString());
+            return null;
+        }
+    }
+
+    public ByteString serialize(CloudEvent cloudEvent) {
+        return UnsafeByteOperations.unsafeWrap(eventFormat.serialize(cloudEvent));
+    }
+
+    /**
+     * Convert an event serialized in another format to this one without parsing it, if this format knows how.
+     * Null if it doesn't, or if the event is one it can't convert that way.
+     */
+    public ByteString transcode(ByteString serializedEvent, ExampleCloudEventFormat cloudEventFormat) {
+        return null;
+    }
+}
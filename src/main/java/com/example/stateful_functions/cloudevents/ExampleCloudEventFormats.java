@@ -0,0 +1,123 @@
+package com.example.stateful_functions.cloudevents;
+
+import com.example.stateful_functions.Configuration;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.example.stateful_functions.quarantine.RecordValidator;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The event formats used by the job.  Events are carried in the internal format (Configuration.INTERNAL_EVENT_FORMAT)
+ * between the ingress, the functions and the egress.
+ *
+ * On the Kinesis streams events are JSON or protobuf.  The format of ingress records is configured per stream
+ * (Configuration.INGRESS_EVENT_FORMATS) or detected from their first byte, and egress records are written in
+ * Configuration.EGRESS_EVENT_FORMAT.
+ */
+@Component
+public class ExampleCloudEventFormats {
+
+    private static Logger LOG = LoggerFactory.getLogger(ExampleCloudEventFormats.class);
+
+    private static final String JSON = "json";
+    private static final String PROTOBUF = "protobuf";
+
+    // Field 1 (id), length delimited
+    private static final byte ID_FIELD_TAG = 0x0A;
+
+    private static final Map<String, String> INGRESS_STREAM_FORMATS = parseStreamFormats(Configuration.INGRESS_EVENT_FORMATS);
+
+    @Autowired
+    ExampleCloudEventJsonFormat jsonFormat;
+
+    @Autowired
+    ExampleCloudEventProtobufFormat protobufFormat;
+
+    public ExampleCloudEventFormats() {
+    }
+
+    @VisibleForTesting
+    public ExampleCloudEventFormats(ExampleCloudEventJsonFormat jsonFormat, ExampleCloudEventProtobufFormat protobufFormat) {
+        this.jsonFormat = jsonFormat;
+        this.protobufFormat = protobufFormat;
+    }
+
+    /** CloudEvents JSON. */
+    public ExampleCloudEventFormat json() {
+        return jsonFormat;
+    }
+
+    /** The format for events passed between the ingress, functions and egress. */
+    public ExampleCloudEventFormat internal() {
+        return JSON.equals(Configuration.INTERNAL_EVENT_FORMAT) ? jsonFormat : protobufFormat;
+    }
+
+    /** The format for records written to the egress stream. */
+    public ExampleCloudEventFormat egress() {
+        return PROTOBUF.equals(Configuration.EGRESS_EVENT_FORMAT) ? protobufFormat : jsonFormat;
+    }
+
+    /** The format of a record read from an ingress stream, as configured for the stream or detected from the record. */
+    public ExampleCloudEventFormat forRecord(String streamName, byte[] record) {
+        String format = INGRESS_STREAM_FORMATS.get(streamName);
+        if (format != null) {
+            return PROTOBUF.equals(format) ? protobufFormat : jsonFormat;
+        }
+        return detect(record);
+    }
+
+    /**
+     * The format of a serialized event from its first bytes.  A JSON event is an object, possibly after some
+     * whitespace.  A protobuf event starts with the tag of one of its fields, none of which is '{'.  The tag of
+     * the id field, written first, is a newline though, and the id's length after it may be whitespace or '{' too,
+     * so a record starting with a newline that could be either is JSON only if it isn't a well-formed protobuf event.
+     */
+    public ExampleCloudEventFormat detect(byte[] serializedEvent) {
+        for (byte b : serializedEvent) {
+            switch (b) {
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\r':
+                    continue;
+                case '{':
+                    boolean idTag = serializedEvent[0] == ID_FIELD_TAG;
+                    return idTag && RecordValidator.validateProtobuf(serializedEvent) == null ? protobufFormat : jsonFormat;
+                default:
+                    return protobufFormat;
+            }
+        }
+        return jsonFormat;
+    }
+
+    /** The format the payload of an envelope was written with.  Envelopes without a content type are JSON. */
+    public ExampleCloudEventFormat forEnvelope(ExampleProtobuf.Envelope envelope) {
+        if (envelope.hasContentType() && envelope.getContentType().equals(protobufFormat.getContentType())) {
+            return protobufFormat;
+        }
+        return jsonFormat;
+    }
+
+    @VisibleForTesting
+    static Map<String, String> parseStreamFormats(String streamFormats) {
+        Map<String, String> parsed = new HashMap<>();
+        for (String entry : streamFormats.split(",")) {
+            String[] streamAndFormat = entry.trim().split("=");
+            if (streamAndFormat.length != 2 || !(JSON.equals(streamAndFormat[1].trim()) || PROTOBUF.equals(streamAndFormat[1].trim()))) {
+                if (!entry.trim().isEmpty()) {
+                    LOG.warn("Ignoring ingress event format '{}', expected <stream name>=json|protobuf", entry);
+                }
+                continue;
+            }
+            parsed.put(streamAndFormat[0].trim(), streamAndFormat[1].trim());
+        }
+        return Collections.unmodifiableMap(parsed);
+    }
+}
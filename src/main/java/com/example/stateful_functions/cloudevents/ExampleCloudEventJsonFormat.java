@@ -1,35 +1,230 @@
 package com.example.stateful_functions.cloudevents;
 
+import com.example.stateful_functions.envelope.SerializationBuffer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
 import io.cloudevents.CloudEvent;
+import io.cloudevents.CloudEventData;
+import io.cloudevents.SpecVersion;
+import io.cloudevents.core.CloudEventUtils;
 import io.cloudevents.core.format.EventFormat;
 import io.cloudevents.core.provider.EventFormatProvider;
+import io.cloudevents.jackson.JsonCloudEventData;
 import io.cloudevents.jackson.JsonFormat;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import io.cloudevents.rw.CloudEventContextWriter;
+import io.cloudevents.rw.CloudEventRWException;
+import org.apache.flink.annotation.VisibleForTesting;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
 
+/**
+ * CloudEvents JSON, the default format of the events on the Kinesis streams.
+ *
+ * Version 1.0 events are written with a streaming generator into the thread's SerializationBuffer, with the
+ * same output as the CloudEvents JsonFormat.  Data that is already serialized JSON is copied in as it is, where
+ * the JsonFormat turns it into a String and a char array first.
+ */
 @Component
-public class ExampleCloudEventJsonFormat {
-
-    private static Logger LOG = LoggerFactory.getLogger(ExampleCloudEventJsonFormat.class);
+public class ExampleCloudEventJsonFormat extends ExampleCloudEventFormat {
 
     public static final EventFormat CLOUD_EVENT_FORMAT = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
 
-    public CloudEvent deserialize(String serializedEvent) {
-        try {
-            return CLOUD_EVENT_FORMAT.deserialize(serializedEvent.getBytes(StandardCharsets.UTF_8));
+    // The same test the JsonFormat uses to decide whether data is embedded as JSON or base64 encoded
+    private static final Pattern JSON_CONTENT_TYPE = Pattern.compile("^(application|text)\\/([a-zA-Z]+\\+)?json(;.*)*$");
+
+    // Generators from a mapper's factory can write trees, for JsonCloudEventData
+    private static final JsonFactory JSON_FACTORY = new ObjectMapper().getFactory();
+
+    public ExampleCloudEventJsonFormat() {
+        super(CLOUD_EVENT_FORMAT);
+    }
+
+    @Override
+    public ByteString serialize(CloudEvent cloudEvent) {
+        if (cloudEvent.getSpecVersion() != SpecVersion.V1) {
+            return super.serialize(cloudEvent);
         }
-        catch (Throwable t) {
-            LOG.debug("Failed to deserialize event", t);
-            return null;
+
+        // Serialize the data first, it may use serialization buffers of its own
+        CloudEventData data = cloudEvent.getData();
+        byte[] dataBytes = data == null || data instanceof JsonCloudEventData ? null : data.toBytes();
+
+        SerializationBuffer buffer = SerializationBuffer.forCurrentThread();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("specversion", SpecVersion.V1.toString());
+            CloudEventUtils.toContextReader(cloudEvent).readContext(new JsonContextWriter(generator));
+            if (data instanceof JsonCloudEventData) {
+                generator.writeFieldName("data");
+                generator.writeTree(((JsonCloudEventData) data).getNode());
+            }
+            else if (dataBytes != null) {
+                String dataContentType = cloudEvent.getDataContentType();
+                if (dataContentType == null || JSON_CONTENT_TYPE.matcher(dataContentType).matches()) {
+                    generator.writeFieldName("data");
+                    generator.writeRawValue(new RawJson(dataBytes));
+                }
+                else {
+                    generator.writeFieldName("data_base64");
+                    generator.writeBinary(dataBytes);
+                }
+            }
+            generator.writeEndObject();
         }
+        catch (IOException e) {
+            throw CloudEventRWException.newOther(e);
+        }
+        return buffer.toByteString();
     }
 
+    private static final class JsonContextWriter implements CloudEventContextWriter {
+        private final JsonGenerator generator;
+
+        JsonContextWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public CloudEventContextWriter withContextAttribute(String name, String value) throws CloudEventRWException {
+            try {
+                generator.writeStringField(name, value);
+            }
+            catch (IOException e) {
+                throw CloudEventRWException.newOther(e);
+            }
+            return this;
+        }
 
-    public String serialize(CloudEvent cloudEvent) {
-        return new String(CLOUD_EVENT_FORMAT.serialize(cloudEvent), StandardCharsets.UTF_8);
+        @Override
+        public CloudEventContextWriter withContextAttribute(String name, Number value) throws CloudEventRWException {
+            if (value instanceof Integer) {
+                return withContextAttribute(name, (Integer) value);
+            }
+            return withContextAttribute(name, value.toString());
+        }
+
+        @Override
+        public CloudEventContextWriter withContextAttribute(String name, Integer value) throws CloudEventRWException {
+            try {
+                generator.writeNumberField(name, value);
+            }
+            catch (IOException e) {
+                throw CloudEventRWException.newOther(e);
+            }
+            return this;
+        }
+
+        @Override
+        public CloudEventContextWriter withContextAttribute(String name, Boolean value) throws CloudEventRWException {
+            try {
+                generator.writeBooleanField(name, value);
+            }
+            catch (IOException e) {
+                throw CloudEventRWException.newOther(e);
+            }
+            return this;
+        }
     }
-}
 
+    // Serialized JSON, for JsonGenerator.writeRawValue.  Byte-based generators only ask for the unquoted UTF-8 bytes,
+    // which are the JSON as it is; everything else is answered by a SerializedString of it, decoded when first needed.
+    @VisibleForTesting
+    static final class RawJson implements SerializableString {
+        private final byte[] json;
+        private SerializedString string;
+
+        RawJson(byte[] json) {
+            this.json = json;
+        }
+
+        private SerializedString string() {
+            if (string == null) {
+                string = new SerializedString(new String(json, StandardCharsets.UTF_8));
+            }
+            return string;
+        }
+
+        @Override
+        public byte[] asUnquotedUTF8() {
+            return json;
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (offset + json.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(json, 0, buffer, offset, json.length);
+            return json.length;
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(json);
+            return json.length;
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            if (json.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(json);
+            return json.length;
+        }
+
+        @Override
+        public String getValue() {
+            return string().getValue();
+        }
+
+        @Override
+        public int charLength() {
+            return string().charLength();
+        }
+
+        @Override
+        public char[] asQuotedChars() {
+            return string().asQuotedChars();
+        }
+
+        @Override
+        public byte[] asQuotedUTF8() {
+            return string().asQuotedUTF8();
+        }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            return string().appendQuotedUTF8(buffer, offset);
+        }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            return string().appendQuoted(buffer, offset);
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            return string().appendUnquoted(buffer, offset);
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            return string().writeQuotedUTF8(out);
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) {
+            return string().putQuotedUTF8(buffer);
+        }
+    }
+}
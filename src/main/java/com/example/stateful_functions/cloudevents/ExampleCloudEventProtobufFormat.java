@@ -0,0 +1,31 @@
+package com.example.stateful_functions.cloudevents;
+
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.google.protobuf.ByteString;
+import io.cloudevents.core.format.EventFormat;
+import io.cloudevents.core.provider.EventFormatProvider;
+import io.cloudevents.protobuf.ProtobufFormat;
+import org.springframework.stereotype.Component;
+
+/**
+ * The CloudEvents protobuf binding, for events inside the job and optionally on the Kinesis streams.  The context
+ * attributes are binary encoded, which makes events smaller and cheaper to encode and decode than JSON.
+ */
+@Component
+public class ExampleCloudEventProtobufFormat extends ExampleCloudEventFormat {
+
+    public static final EventFormat CLOUD_EVENT_FORMAT = EventFormatProvider.getInstance().resolveFormat(ProtobufFormat.PROTO_CONTENT_TYPE);
+
+    public ExampleCloudEventProtobufFormat() {
+        super(CLOUD_EVENT_FORMAT);
+    }
+
+    /** JSON events are converted with the JsonToProtobufTranscoder. */
+    @Override
+    public ByteString transcode(ByteString serializedEvent, ExampleCloudEventFormat cloudEventFormat) {
+        if (!(cloudEventFormat instanceof ExampleCloudEventJsonFormat)) {
+            return null;
+        }
+        return JsonToProtobufTranscoder.toProtobuf(EnvelopeUtil.unsafeBytes(serializedEvent));
+    }
+}
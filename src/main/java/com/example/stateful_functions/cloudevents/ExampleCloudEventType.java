@@ -11,4 +11,13 @@ public class ExampleCloudEventType {
 
     public static final String FUNCTION_SUBSCRIPTION_EVENT_TYPE = "example.function-subscription";
 
+    // Sent by a product function to itself at the end of a notify window, see NotifyWindows
+    public static final String PRODUCT_NOTIFY_EVENT_TYPE = "example.product-notify";
+
+    // Between a publisher and the shards holding its subscribers, see SubscriberShardStatefulFunction
+    public static final String SUBSCRIBER_SHARD_FULL_EVENT_TYPE = "example.subscriber-shard-full";
+    public static final String SUBSCRIBER_SHARD_SPLIT_EVENT_TYPE = "example.subscriber-shard-split";
+
+    public static final String CART_EVENT_TYPE_PREFIX = "example.cart-";
+
 }
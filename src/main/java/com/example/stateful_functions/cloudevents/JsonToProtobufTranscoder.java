@@ -0,0 +1,259 @@
+package com.example.stateful_functions.cloudevents;
+
+import com.example.stateful_functions.envelope.SerializationBuffer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import io.cloudevents.SpecVersion;
+import io.cloudevents.types.Time;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
+
+/**
+ * Converts version 1.0 CloudEvents JSON to the CloudEvents protobuf format in a single streaming pass, without
+ * building the event or a tree of its data.  JSON data is copied over byte for byte.
+ *
+ * The result reads back as the same event as parsing the JSON and serializing it with the protobuf format.
+ * Events that can't be converted that way (other spec versions, missing or malformed attributes, extensions that
+ * aren't strings, integers or booleans) give null, and are left to the CloudEvents formats and their errors.
+ */
+class JsonToProtobufTranscoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Pattern JSON_CONTENT_TYPE = Pattern.compile("^(application|text)\\/([a-zA-Z]+\\+)?json(;.*)*$");
+    private static final Pattern EXTENSION_NAME = Pattern.compile("[a-z0-9]+");
+
+    // Field numbers of io.cloudevents.v1.proto.CloudEvent
+    private static final int ID = 1;
+    private static final int SOURCE = 2;
+    private static final int SPEC_VERSION = 3;
+    private static final int TYPE = 4;
+    private static final int ATTRIBUTES = 5;
+    private static final int BINARY_DATA = 6;
+    private static final int TEXT_DATA = 7;
+
+    // ... of its attributes map entries, CloudEventAttributeValue and Timestamp
+    private static final int ENTRY_KEY = 1;
+    private static final int ENTRY_VALUE = 2;
+    private static final int CE_BOOLEAN = 1;
+    private static final int CE_INTEGER = 2;
+    private static final int CE_STRING = 3;
+    private static final int CE_URI = 5;
+    private static final int CE_URI_REF = 6;
+    private static final int CE_TIMESTAMP = 7;
+    private static final int TIMESTAMP_SECONDS = 1;
+    private static final int TIMESTAMP_NANOS = 2;
+
+    /** The event in the protobuf format, or null if it should be converted by parsing it. */
+    static ByteString toProtobuf(byte[] json) {
+        SerializationBuffer buffer = SerializationBuffer.forCurrentThread();
+        CodedOutputStream out = buffer.codedOutput();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (!transcode(parser, json, out)) {
+                return null;
+            }
+        }
+        catch (IOException | URISyntaxException | DateTimeParseException | IllegalArgumentException e) {
+            return null;
+        }
+        finally {
+            flush(out);
+        }
+        return buffer.toByteString();
+    }
+
+    private static boolean transcode(JsonParser parser, byte[] json, CodedOutputStream out) throws IOException, URISyntaxException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        boolean id = false;
+        boolean source = false;
+        boolean type = false;
+        boolean specVersion = false;
+        String dataContentType = null;
+        JsonToken dataToken = null;
+        int dataStart = 0;
+        int dataEnd = 0;
+        byte[] dataBytes = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (name) {
+                case "specversion":
+                    if (specVersion || value != JsonToken.VALUE_STRING || !SpecVersion.V1.toString().equals(parser.getText())) {
+                        return false;
+                    }
+                    out.writeString(SPEC_VERSION, parser.getText());
+                    specVersion = true;
+                    break;
+                case "id":
+                    if (id || value != JsonToken.VALUE_STRING) {
+                        return false;
+                    }
+                    out.writeString(ID, parser.getText());
+                    id = true;
+                    break;
+                case "source":
+                    if (source || value != JsonToken.VALUE_STRING) {
+                        return false;
+                    }
+                    String sourceValue = parser.getText();
+                    new URI(sourceValue);
+                    out.writeString(SOURCE, sourceValue);
+                    source = true;
+                    break;
+                case "type":
+                    if (type || value != JsonToken.VALUE_STRING) {
+                        return false;
+                    }
+                    out.writeString(TYPE, parser.getText());
+                    type = true;
+                    break;
+                case "datacontenttype":
+                case "subject":
+                    if (value != JsonToken.VALUE_STRING) {
+                        return false;
+                    }
+                    if (name.equals("datacontenttype")) {
+                        dataContentType = parser.getText();
+                    }
+                    writeStringAttribute(out, name, CE_STRING, parser.getText());
+                    break;
+                case "dataschema":
+                    if (value != JsonToken.VALUE_STRING) {
+                        return false;
+                    }
+                    String dataSchema = parser.getText();
+                    writeStringAttribute(out, name, new URI(dataSchema).isAbsolute() ? CE_URI : CE_URI_REF, dataSchema);
+                    break;
+                case "time":
+                    if (value != JsonToken.VALUE_STRING) {
+                        return false;
+                    }
+                    writeTimestampAttribute(out, name, Time.parseTime(parser.getText()).toInstant());
+                    break;
+                case "data":
+                    if (dataToken != null || dataBytes != null || value == JsonToken.VALUE_NULL) {
+                        return false;
+                    }
+                    dataToken = value;
+                    dataStart = (int) parser.getTokenLocation().getByteOffset();
+                    if (value == JsonToken.VALUE_STRING) {
+                        dataBytes = parser.getText().getBytes(StandardCharsets.UTF_8);
+                    }
+                    parser.skipChildren();
+                    parser.finishToken();
+                    dataEnd = (int) parser.getCurrentLocation().getByteOffset();
+                    break;
+                case "data_base64":
+                    if (dataToken != null || dataBytes != null || value != JsonToken.VALUE_STRING) {
+                        return false;
+                    }
+                    dataBytes = parser.getBinaryValue();
+                    break;
+                default:
+                    if (!EXTENSION_NAME.matcher(name).matches() || !writeExtension(parser, value, out, name)) {
+                        return false;
+                    }
+            }
+        }
+        if (!id || !source || !type || !specVersion) {
+            return false;
+        }
+
+        int dataField = isTextContent(dataContentType) ? TEXT_DATA : BINARY_DATA;
+        boolean jsonData = dataContentType == null || JSON_CONTENT_TYPE.matcher(dataContentType).matches();
+        if (dataToken != null && jsonData) {
+            out.writeTag(dataField, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(dataEnd - dataStart);
+            out.writeRawBytes(json, dataStart, dataEnd - dataStart);
+        }
+        else if (dataToken != null && dataToken != JsonToken.VALUE_STRING) {
+            // Only JSON data can be anything but a string
+            return false;
+        }
+        else if (dataBytes != null) {
+            out.writeTag(dataField, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(dataBytes.length);
+            out.writeRawBytes(dataBytes);
+        }
+        return true;
+    }
+
+    private static boolean writeExtension(JsonParser parser, JsonToken value, CodedOutputStream out, String name) throws IOException {
+        switch (value) {
+            case VALUE_STRING:
+                writeStringAttribute(out, name, CE_STRING, parser.getText());
+                return true;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                boolean booleanValue = parser.getBooleanValue();
+                writeAttributeHeader(out, name, CodedOutputStream.computeBoolSize(CE_BOOLEAN, booleanValue));
+                out.writeBool(CE_BOOLEAN, booleanValue);
+                return true;
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() != JsonParser.NumberType.INT) {
+                    return false;
+                }
+                int intValue = parser.getIntValue();
+                writeAttributeHeader(out, name, CodedOutputStream.computeInt32Size(CE_INTEGER, intValue));
+                out.writeInt32(CE_INTEGER, intValue);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void writeStringAttribute(CodedOutputStream out, String name, int valueField, String value) throws IOException {
+        writeAttributeHeader(out, name, CodedOutputStream.computeStringSize(valueField, value));
+        out.writeString(valueField, value);
+    }
+
+    private static void writeTimestampAttribute(CodedOutputStream out, String name, Instant time) throws IOException {
+        int timestampSize = CodedOutputStream.computeInt64Size(TIMESTAMP_SECONDS, time.getEpochSecond())
+                + CodedOutputStream.computeInt32Size(TIMESTAMP_NANOS, time.getNano());
+        writeAttributeHeader(out, name, CodedOutputStream.computeTagSize(CE_TIMESTAMP)
+                + CodedOutputStream.computeUInt32SizeNoTag(timestampSize) + timestampSize);
+        out.writeTag(CE_TIMESTAMP, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(timestampSize);
+        out.writeInt64(TIMESTAMP_SECONDS, time.getEpochSecond());
+        out.writeInt32(TIMESTAMP_NANOS, time.getNano());
+    }
+
+    // Starts an attributes map entry, up to the value of the CloudEventAttributeValue, which is valueSize bytes
+    private static void writeAttributeHeader(CodedOutputStream out, String name, int valueSize) throws IOException {
+        int entrySize = CodedOutputStream.computeStringSize(ENTRY_KEY, name)
+                + CodedOutputStream.computeTagSize(ENTRY_VALUE) + CodedOutputStream.computeUInt32SizeNoTag(valueSize) + valueSize;
+        out.writeTag(ATTRIBUTES, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(entrySize);
+        out.writeString(ENTRY_KEY, name);
+        out.writeTag(ENTRY_VALUE, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(valueSize);
+    }
+
+    // The protobuf format's test for data carried as text rather than binary
+    private static boolean isTextContent(String contentType) {
+        return contentType != null && (contentType.startsWith("text/") || contentType.equals("application/json")
+                || contentType.equals("application/xml") || contentType.endsWith("+json") || contentType.endsWith("+xml"));
+    }
+
+    private static void flush(CodedOutputStream out) {
+        try {
+            out.flush();
+        }
+        catch (IOException e) {
+            // SerializationBuffer never throws
+        }
+    }
+}
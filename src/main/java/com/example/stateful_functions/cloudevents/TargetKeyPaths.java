@@ -0,0 +1,101 @@
+package com.example.stateful_functions.cloudevents;
+
+import com.example.stateful_functions.Configuration;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Where the id of the function instance an event is addressed to is found in the event, by event type.
+ *
+ * Configured by Configuration.TARGET_KEY_PATHS, e.g. "example.product=data.id,example.cart-*=data.cartId".
+ * Key paths are dot separated field names starting at the event data.
+ */
+public class TargetKeyPaths {
+
+    private static Logger LOG = LoggerFactory.getLogger(TargetKeyPaths.class);
+
+    private static final String DATA = "data";
+
+    private static final List<TargetKeyPath> TARGET_KEY_PATHS = parse(Configuration.TARGET_KEY_PATHS);
+
+    private static final List<List<String>> DATA_PATHS = dataPaths(TARGET_KEY_PATHS);
+
+    /** The path within the event data to the target key for the event type, or null if the type has none. */
+    public static List<String> forType(String eventType) {
+        for (TargetKeyPath targetKeyPath : TARGET_KEY_PATHS) {
+            if (targetKeyPath.matches(eventType)) {
+                return targetKeyPath.dataPath;
+            }
+        }
+        return null;
+    }
+
+    /** All the distinct paths within the event data that hold a target key. */
+    public static List<List<String>> dataPaths() {
+        return DATA_PATHS;
+    }
+
+    /** The target key for the event type in the event data, or null if it has none. */
+    public static String fromData(String eventType, JsonNode data) {
+        List<String> dataPath = forType(eventType);
+        if (dataPath == null || data == null) {
+            return null;
+        }
+        JsonNode node = data;
+        for (String field : dataPath) {
+            node = node.get(field);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node.isValueNode() && !node.isNull() ? node.asText() : null;
+    }
+
+    private static List<TargetKeyPath> parse(String targetKeyPaths) {
+        List<TargetKeyPath> parsed = new ArrayList<>();
+        for (String entry : targetKeyPaths.split(",")) {
+            String[] typeAndPath = entry.trim().split("=");
+            List<String> path = typeAndPath.length == 2 ? Arrays.asList(typeAndPath[1].trim().split("\\.")) : null;
+            if (path == null || path.size() < 2 || !DATA.equals(path.get(0))) {
+                if (!entry.trim().isEmpty()) {
+                    LOG.warn("Ignoring target key path '{}', expected <event type>=data.<field>[.<field>...]", entry);
+                }
+                continue;
+            }
+            parsed.add(new TargetKeyPath(typeAndPath[0].trim(), Collections.unmodifiableList(path.subList(1, path.size()))));
+        }
+        return Collections.unmodifiableList(parsed);
+    }
+
+    private static List<List<String>> dataPaths(List<TargetKeyPath> targetKeyPaths) {
+        List<List<String>> dataPaths = new ArrayList<>();
+        for (TargetKeyPath targetKeyPath : targetKeyPaths) {
+            if (!dataPaths.contains(targetKeyPath.dataPath)) {
+                dataPaths.add(targetKeyPath.dataPath);
+            }
+        }
+        return Collections.unmodifiableList(dataPaths);
+    }
+
+    private static final class TargetKeyPath {
+        private final String eventType;
+        private final boolean prefix;
+        private final List<String> dataPath;
+
+        TargetKeyPath(String eventType, List<String> dataPath) {
+            this.prefix = eventType.endsWith("*");
+            this.eventType = prefix ? eventType.substring(0, eventType.length() - 1) : eventType;
+            this.dataPath = dataPath;
+        }
+
+        boolean matches(String eventType) {
+            return prefix ? eventType.startsWith(this.eventType) : eventType.equals(this.eventType);
+        }
+    }
+}
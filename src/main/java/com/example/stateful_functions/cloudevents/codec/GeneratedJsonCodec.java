@@ -0,0 +1,19 @@
+package com.example.stateful_functions.cloudevents.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate a streaming JSON codec for a data class at build time, see JsonCodecProcessor.
+ *
+ * The class is encoded from its public getters, and decoded either through a constructor annotated with
+ * {@code @JsonCreator} or through its nested {@code Builder} class.  The JSON is the same as Jackson databind's.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GeneratedJsonCodec {
+}
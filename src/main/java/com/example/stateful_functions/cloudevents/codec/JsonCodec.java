@@ -0,0 +1,18 @@
+package com.example.stateful_functions.cloudevents.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/** Reads and writes one data class as JSON.  Implementations are generated for classes annotated with {@link GeneratedJsonCodec}. */
+public interface JsonCodec<T> {
+
+    Class<T> type();
+
+    /** Read a value from the parser, which is at the START_OBJECT token of the value. */
+    T read(JsonParser parser) throws IOException;
+
+    /** Write a non-null value to the generator. */
+    void write(JsonGenerator generator, T value) throws IOException;
+}
@@ -0,0 +1,269 @@
+package com.example.stateful_functions.cloudevents.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+
+/**
+ * The generated JSON codecs, and the helpers the generated code uses to read and write property values.
+ *
+ * Codecs are found with a ServiceLoader; JsonCodecProcessor lists them in META-INF/services.  Values are read as
+ * Jackson databind reads them by default: leniently (e.g. numbers from strings), but failing on unknown
+ * properties.
+ */
+public class JsonCodecs {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Map<Class<?>, JsonCodec<?>> CODECS = load();
+
+    @FunctionalInterface
+    public interface ValueReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface ValueWriter<T> {
+        void write(JsonGenerator generator, T value) throws IOException;
+    }
+
+    /** The generated codec for a class, or null if it has none. */
+    @SuppressWarnings("unchecked")
+    public static <T> JsonCodec<T> forType(Class<T> type) {
+        return (JsonCodec<T>) CODECS.get(type);
+    }
+
+    public static <T> T decode(JsonCodec<T> codec, byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parser.nextToken();
+            return readObject(parser, codec);
+        }
+    }
+
+    public static <T> T decode(JsonCodec<T> codec, JsonNode json) throws IOException {
+        try (JsonParser parser = json.traverse()) {
+            parser.nextToken();
+            return readObject(parser, codec);
+        }
+    }
+
+    public static <T> byte[] encode(JsonCodec<T> codec, T value) throws IOException {
+        // as ObjectMapper.writeValueAsBytes does, using the factory's thread local buffers
+        ByteArrayBuilder bytes = new ByteArrayBuilder(JSON_FACTORY._getBufferRecycler());
+        try {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(bytes)) {
+                writeObject(generator, value, codec);
+            }
+            return bytes.toByteArray();
+        }
+        finally {
+            bytes.release();
+        }
+    }
+
+    public static <T> T readObject(JsonParser parser, JsonCodec<T> codec) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an object for " + codec.type().getSimpleName() + ", found " + token);
+        }
+        return codec.read(parser);
+    }
+
+    public static <T> void writeObject(JsonGenerator generator, T value, JsonCodec<T> codec) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        }
+        else {
+            codec.write(generator, value);
+        }
+    }
+
+    public static <T> List<T> readList(JsonParser parser, ValueReader<T> elementReader) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Expected an array, found " + token);
+        }
+        List<T> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            list.add(elementReader.read(parser));
+        }
+        return list;
+    }
+
+    public static <T> void writeList(JsonGenerator generator, List<T> list, ValueWriter<T> elementWriter) throws IOException {
+        if (list == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (T element : list) {
+            elementWriter.write(generator, element);
+        }
+        generator.writeEndArray();
+    }
+
+    public static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new JsonParseException(parser, "Expected a string, found " + token);
+        }
+        return parser.getText();
+    }
+
+    public static void writeString(JsonGenerator generator, String value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        }
+        else {
+            generator.writeString(value);
+        }
+    }
+
+    public static BigDecimal readBigDecimal(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDecimalValue();
+            case VALUE_STRING:
+                return parseNumber(parser, BigDecimal::new);
+            default:
+                throw new JsonParseException(parser, "Expected a number, found " + parser.currentToken());
+        }
+    }
+
+    public static void writeBigDecimal(JsonGenerator generator, BigDecimal value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        }
+        else {
+            generator.writeNumber(value);
+        }
+    }
+
+    public static int readInt(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return 0;
+            case VALUE_NUMBER_INT:
+                return parser.getIntValue();
+            case VALUE_NUMBER_FLOAT:
+                return (int) parser.getDoubleValue();
+            case VALUE_STRING:
+                return parseNumber(parser, Integer::valueOf);
+            default:
+                throw new JsonParseException(parser, "Expected a number, found " + parser.currentToken());
+        }
+    }
+
+    public static long readLong(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return 0L;
+            case VALUE_NUMBER_INT:
+                return parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return (long) parser.getDoubleValue();
+            case VALUE_STRING:
+                return parseNumber(parser, Long::valueOf);
+            default:
+                throw new JsonParseException(parser, "Expected a number, found " + parser.currentToken());
+        }
+    }
+
+    public static double readDouble(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return 0.0;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_STRING:
+                return parseNumber(parser, Double::valueOf);
+            default:
+                throw new JsonParseException(parser, "Expected a number, found " + parser.currentToken());
+        }
+    }
+
+    public static boolean readBoolean(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+            case VALUE_FALSE:
+                return false;
+            case VALUE_TRUE:
+                return true;
+            case VALUE_STRING:
+                return Boolean.parseBoolean(parser.getText().trim());
+            default:
+                throw new JsonParseException(parser, "Expected a boolean, found " + parser.currentToken());
+        }
+    }
+
+    public static <E extends Enum<E>> E readEnum(JsonParser parser, Class<E> enumType) throws IOException {
+        String name = readString(parser);
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(enumType, name);
+        }
+        catch (IllegalArgumentException e) {
+            throw new JsonParseException(parser, "Unknown " + enumType.getSimpleName() + " '" + name + "'");
+        }
+    }
+
+    public static void writeEnum(JsonGenerator generator, Enum<?> value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        }
+        else {
+            generator.writeString(value.name());
+        }
+    }
+
+    /** The error for a property the type doesn't have, as databind's FAIL_ON_UNKNOWN_PROPERTIES. */
+    public static JsonParseException unknownProperty(JsonParser parser, Class<?> type, String property) {
+        return new JsonParseException(parser, "Unrecognized field \"" + property + "\" of " + type.getSimpleName());
+    }
+
+    private static <N> N parseNumber(JsonParser parser, Function<String, N> parse) throws IOException {
+        try {
+            return parse.apply(parser.getText().trim());
+        }
+        catch (NumberFormatException e) {
+            throw new JsonParseException(parser, "Not a number '" + parser.getText() + "'");
+        }
+    }
+
+    private static Map<Class<?>, JsonCodec<?>> load() {
+        Map<Class<?>, JsonCodec<?>> codecs = new HashMap<>();
+        for (JsonCodec<?> codec : ServiceLoader.load(JsonCodec.class, JsonCodecs.class.getClassLoader())) {
+            codecs.put(codec.type(), codec);
+        }
+        return Collections.unmodifiableMap(codecs);
+    }
+}
@@ -0,0 +1,451 @@
+package com.example.stateful_functions.cloudevents.codec.processor;
+
+import com.example.stateful_functions.cloudevents.codec.GeneratedJsonCodec;
+import com.example.stateful_functions.cloudevents.codec.JsonCodec;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@link JsonCodec} for each class annotated with {@link GeneratedJsonCodec}, and lists them in
+ * META-INF/services so that JsonCodecs can find them.
+ *
+ * The codecs read and write with the Jackson streaming API, with one switch case per property and no reflection.
+ * Properties are the public getters of the class.  Values are created through a constructor annotated with
+ * {@code @JsonCreator} (with {@code @JsonProperty} parameters) if there is one, otherwise through the nested
+ * {@code Builder} class, which needs a no-argument constructor, a setter named after each property and build().
+ *
+ * Supported property types are String, BigDecimal, int, long, double, boolean, enums, other classes annotated with
+ * {@link GeneratedJsonCodec}, and Lists of these (other than the primitives).
+ */
+@SupportedAnnotationTypes("com.example.stateful_functions.cloudevents.codec.GeneratedJsonCodec")
+public class JsonCodecProcessor extends AbstractProcessor {
+
+    private static final String JSON_CREATOR = "com.fasterxml.jackson.annotation.JsonCreator";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String CODEC_SERVICE = "META-INF/services/" + JsonCodec.class.getName();
+
+    private final List<String> generatedCodecs = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(GeneratedJsonCodec.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GeneratedJsonCodec is only supported on classes");
+                continue;
+            }
+            try {
+                generateCodec((TypeElement) element);
+            }
+            catch (CodecException e) {
+                error(e.element, e.getMessage());
+            }
+            catch (IOException e) {
+                error(element, "Failed to write the codec: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void generateCodec(TypeElement type) throws IOException {
+        List<Property> properties = properties(type);
+        ExecutableElement creator = creator(type);
+        TypeElement builder = creator == null ? builder(type, properties) : null;
+
+        String packageName = packageOf(type).getQualifiedName().toString();
+        String codecName = codecName(type);
+        String typeName = type.getQualifiedName().toString();
+
+        JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(packageName + "." + codecName, type);
+        try (PrintWriter out = new PrintWriter(sourceFile.openWriter())) {
+            out.println("package " + packageName + ";");
+            out.println();
+            out.println("import com.example.stateful_functions.cloudevents.codec.JsonCodec;");
+            out.println("import com.example.stateful_functions.cloudevents.codec.JsonCodecs;");
+            out.println("import com.fasterxml.jackson.core.JsonGenerator;");
+            out.println("import com.fasterxml.jackson.core.JsonParser;");
+            out.println("import com.fasterxml.jackson.core.JsonToken;");
+            out.println("import com.fasterxml.jackson.core.io.SerializedString;");
+            out.println();
+            out.println("import java.io.IOException;");
+            out.println();
+            out.println("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")");
+            out.println("public final class " + codecName + " implements JsonCodec<" + typeName + "> {");
+            out.println();
+            out.println("    public static final " + codecName + " INSTANCE = new " + codecName + "();");
+            out.println();
+            for (Property property : properties) {
+                out.println("    private static final SerializedString " + property.constant() + " = new SerializedString(\"" + property.name + "\");");
+            }
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<" + typeName + "> type() {");
+            out.println("        return " + typeName + ".class;");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public " + typeName + " read(JsonParser parser) throws IOException {");
+            if (creator != null) {
+                for (VariableElement parameter : creator.getParameters()) {
+                    out.println("        " + parameter.asType() + " " + local(parameter) + " = " + defaultValue(parameter.asType()) + ";");
+                }
+            }
+            else {
+                out.println("        " + builder.getQualifiedName() + " builder = new " + builder.getQualifiedName() + "();");
+            }
+            out.println("        while (parser.nextToken() == JsonToken.FIELD_NAME) {");
+            out.println("            String field = parser.getCurrentName();");
+            out.println("            parser.nextToken();");
+            out.println("            switch (field) {");
+            if (creator != null) {
+                for (VariableElement parameter : creator.getParameters()) {
+                    out.println("                case \"" + jsonPropertyName(parameter) + "\":");
+                    out.println("                    " + local(parameter) + " = " + readExpression(parameter, parameter.asType(), "parser") + ";");
+                    out.println("                    break;");
+                }
+            }
+            else {
+                for (Property property : properties) {
+                    out.println("                case \"" + property.name + "\":");
+                    out.println("                    builder." + property.name + "(" + readExpression(property.getter, property.type, "parser") + ");");
+                    out.println("                    break;");
+                }
+            }
+            out.println("                default:");
+            out.println("                    throw JsonCodecs.unknownProperty(parser, " + typeName + ".class, field);");
+            out.println("            }");
+            out.println("        }");
+            if (creator != null) {
+                List<String> arguments = new ArrayList<>();
+                for (VariableElement parameter : creator.getParameters()) {
+                    arguments.add(local(parameter));
+                }
+                out.println("        return new " + typeName + "(" + String.join(", ", arguments) + ");");
+            }
+            else {
+                out.println("        return builder.build();");
+            }
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public void write(JsonGenerator generator, " + typeName + " value) throws IOException {");
+            out.println("        generator.writeStartObject();");
+            for (Property property : properties) {
+                out.println("        generator.writeFieldName(" + property.constant() + ");");
+                out.println("        " + writeStatement(property.getter, property.type, "generator", "value." + property.getter.getSimpleName() + "()"));
+            }
+            out.println("        generator.writeEndObject();");
+            out.println("    }");
+            out.println("}");
+        }
+        generatedCodecs.add(packageName + "." + codecName);
+    }
+
+    private List<Property> properties(TypeElement type) {
+        List<Property> properties = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC) || !method.getParameters().isEmpty()) {
+                continue;
+            }
+            String methodName = method.getSimpleName().toString();
+            String name = null;
+            if (methodName.startsWith("get") && methodName.length() > 3 && method.getReturnType().getKind() != TypeKind.VOID) {
+                name = propertyName(methodName.substring(3));
+            }
+            else if (methodName.startsWith("is") && methodName.length() > 2 && method.getReturnType().getKind() == TypeKind.BOOLEAN) {
+                name = propertyName(methodName.substring(2));
+            }
+            if (name != null) {
+                properties.add(new Property(name, method, method.getReturnType()));
+            }
+        }
+        return properties;
+    }
+
+    // Jackson's default naming: the leading upper case characters of the getter name are lower cased
+    private static String propertyName(String getterSuffix) {
+        char[] chars = getterSuffix.toCharArray();
+        for (int i = 0; i < chars.length && Character.isUpperCase(chars[i]); i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private ExecutableElement creator(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (annotation(constructor, JSON_CREATOR) != null) {
+                for (VariableElement parameter : constructor.getParameters()) {
+                    jsonPropertyName(parameter);
+                }
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    private TypeElement builder(TypeElement type, List<Property> properties) {
+        TypeElement builder = null;
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            if (nested.getSimpleName().contentEquals("Builder") && nested.getModifiers().contains(Modifier.STATIC)) {
+                builder = nested;
+            }
+        }
+        if (builder == null) {
+            throw new CodecException(type, "@GeneratedJsonCodec classes need a @JsonCreator constructor or a static nested Builder class");
+        }
+        boolean hasConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(builder.getEnclosedElements())) {
+            hasConstructor |= constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC);
+        }
+        if (!hasConstructor || publicMethod(builder, "build", 0) == null) {
+            throw new CodecException(builder, "Builder needs a public no-argument constructor and a public build() method");
+        }
+        for (Property property : properties) {
+            if (publicMethod(builder, property.name, 1) == null) {
+                throw new CodecException(builder, "Builder has no setter for property '" + property.name + "'");
+            }
+        }
+        return builder;
+    }
+
+    private static ExecutableElement publicMethod(TypeElement type, String name, int parameterCount) {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameterCount
+                    && method.getModifiers().contains(Modifier.PUBLIC)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private String jsonPropertyName(VariableElement parameter) {
+        AnnotationMirror jsonProperty = annotation(parameter, JSON_PROPERTY);
+        if (jsonProperty != null) {
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : jsonProperty.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")) {
+                    return entry.getValue().getValue().toString();
+                }
+            }
+        }
+        throw new CodecException(parameter, "@JsonCreator parameters need a @JsonProperty name");
+    }
+
+    private static AnnotationMirror annotation(Element element, String annotationType) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private String readExpression(Element property, TypeMirror type, String parser) {
+        switch (type.getKind()) {
+            case INT:
+                return "JsonCodecs.readInt(" + parser + ")";
+            case LONG:
+                return "JsonCodecs.readLong(" + parser + ")";
+            case DOUBLE:
+                return "JsonCodecs.readDouble(" + parser + ")";
+            case BOOLEAN:
+                return "JsonCodecs.readBoolean(" + parser + ")";
+            case DECLARED:
+                break;
+            default:
+                throw unsupported(property, type);
+        }
+        if (isType(type, String.class)) {
+            return "JsonCodecs.readString(" + parser + ")";
+        }
+        if (isType(type, java.math.BigDecimal.class)) {
+            return "JsonCodecs.readBigDecimal(" + parser + ")";
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        if (element.getKind() == ElementKind.ENUM) {
+            return "JsonCodecs.readEnum(" + parser + ", " + element.getQualifiedName() + ".class)";
+        }
+        if (element.getAnnotation(GeneratedJsonCodec.class) != null) {
+            return "JsonCodecs.readObject(" + parser + ", " + codecReference(element) + ")";
+        }
+        TypeMirror elementType = listElementType(type);
+        if (elementType != null && elementType.getKind() == TypeKind.DECLARED) {
+            String elementParser = parser + "_";
+            return "JsonCodecs.readList(" + parser + ", " + elementParser + " -> " + readExpression(property, elementType, elementParser) + ")";
+        }
+        throw unsupported(property, type);
+    }
+
+    private String writeStatement(Element property, TypeMirror type, String generator, String value) {
+        switch (type.getKind()) {
+            case INT:
+            case LONG:
+            case DOUBLE:
+                return generator + ".writeNumber(" + value + ");";
+            case BOOLEAN:
+                return generator + ".writeBoolean(" + value + ");";
+            case DECLARED:
+                break;
+            default:
+                throw unsupported(property, type);
+        }
+        if (isType(type, String.class)) {
+            return "JsonCodecs.writeString(" + generator + ", " + value + ");";
+        }
+        if (isType(type, java.math.BigDecimal.class)) {
+            return "JsonCodecs.writeBigDecimal(" + generator + ", " + value + ");";
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        if (element.getKind() == ElementKind.ENUM) {
+            return "JsonCodecs.writeEnum(" + generator + ", " + value + ");";
+        }
+        if (element.getAnnotation(GeneratedJsonCodec.class) != null) {
+            return "JsonCodecs.writeObject(" + generator + ", " + value + ", " + codecReference(element) + ");";
+        }
+        TypeMirror elementType = listElementType(type);
+        if (elementType != null && elementType.getKind() == TypeKind.DECLARED) {
+            String elementGenerator = generator + "_";
+            String elementValue = "element_";
+            return "JsonCodecs.writeList(" + generator + ", " + value + ", (" + elementGenerator + ", " + elementValue + ") -> { "
+                    + writeStatement(property, elementType, elementGenerator, elementValue) + " });";
+        }
+        throw unsupported(property, type);
+    }
+
+    private TypeMirror listElementType(TypeMirror type) {
+        TypeMirror list = processingEnv.getTypeUtils().erasure(processingEnv.getElementUtils().getTypeElement(List.class.getName()).asType());
+        if (!processingEnv.getTypeUtils().isSameType(processingEnv.getTypeUtils().erasure(type), list)) {
+            return null;
+        }
+        List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+        return typeArguments.size() == 1 ? typeArguments.get(0) : null;
+    }
+
+    private boolean isType(TypeMirror type, Class<?> clazz) {
+        return processingEnv.getTypeUtils().isSameType(type, processingEnv.getElementUtils().getTypeElement(clazz.getName()).asType());
+    }
+
+    private static String local(VariableElement parameter) {
+        return parameter.getSimpleName() + "Value";
+    }
+
+    private static String defaultValue(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT:
+            case LONG:
+                return "0";
+            case DOUBLE:
+                return "0.0";
+            case BOOLEAN:
+                return "false";
+            default:
+                return "null";
+        }
+    }
+
+    private static CodecException unsupported(Element property, TypeMirror type) {
+        return new CodecException(property, "Unsupported property type for @GeneratedJsonCodec: " + type);
+    }
+
+    private String codecReference(TypeElement type) {
+        return packageOf(type).getQualifiedName() + "." + codecName(type) + ".INSTANCE";
+    }
+
+    // The codec for a nested class is named after its enclosing classes, e.g. Outer_InnerJsonCodec
+    private static String codecName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        for (Element enclosing = type.getEnclosingElement(); enclosing.getKind() != ElementKind.PACKAGE; enclosing = enclosing.getEnclosingElement()) {
+            name = enclosing.getSimpleName() + "_" + name;
+        }
+        return name + "JsonCodec";
+    }
+
+    private PackageElement packageOf(TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type);
+    }
+
+    private void writeServiceFile() {
+        if (generatedCodecs.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject serviceFile = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", CODEC_SERVICE);
+            try (Writer writer = serviceFile.openWriter()) {
+                for (String codec : generatedCodecs) {
+                    writer.write(codec);
+                    writer.write('\n');
+                }
+            }
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + CODEC_SERVICE + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static final class Property {
+        private final String name;
+        private final ExecutableElement getter;
+        private final TypeMirror type;
+
+        Property(String name, ExecutableElement getter, TypeMirror type) {
+            this.name = name;
+            this.getter = getter;
+            this.type = type;
+        }
+
+        String constant() {
+            return "FIELD_" + name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+        }
+    }
+
+    private static final class CodecException extends RuntimeException {
+        private final Element element;
+
+        CodecException(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.stateful_functions.cloudevents.data;
 
+import com.example.stateful_functions.cloudevents.codec.GeneratedJsonCodec;
+
 import java.math.BigDecimal;
 
+@GeneratedJsonCodec
 public class CartItemStatusDetails {
     private String productId;
     private BigDecimal originPrice; // price of the product the last time the customer saw it
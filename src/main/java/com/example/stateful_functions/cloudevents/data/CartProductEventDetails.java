@@ -1,7 +1,10 @@
 package com.example.stateful_functions.cloudevents.data;
 
+import com.example.stateful_functions.cloudevents.codec.GeneratedJsonCodec;
+
 import java.math.BigDecimal;
 
+@GeneratedJsonCodec
 public class CartProductEventDetails {
 
     private String cartId;
@@ -1,11 +1,13 @@
 package com.example.stateful_functions.cloudevents.data;
 
+import com.example.stateful_functions.cloudevents.codec.GeneratedJsonCodec;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.ArrayList;
 import java.util.List;
 
+@GeneratedJsonCodec
 public class CartStatusEventDetails {
 
     private String cartId;
@@ -1,7 +1,10 @@
 package com.example.stateful_functions.cloudevents.data;
 
+import com.example.stateful_functions.cloudevents.codec.GeneratedJsonCodec;
+
 import java.math.BigDecimal;
 
+@GeneratedJsonCodec
 public class ProductEventDetails {
 
     private String id;
@@ -9,6 +12,7 @@ public class ProductEventDetails {
     private String description;
     private BigDecimal price;
     private ProductAvailability availability;
+    private String category;
 
     public ProductEventDetails() {
     }
@@ -19,6 +23,7 @@ public class ProductEventDetails {
         description = builder.description;
         price = builder.price;
         availability = builder.availability;
+        category = builder.category;
     }
 
     public String getId() {
@@ -41,6 +46,11 @@ public class ProductEventDetails {
         return availability;
     }
 
+    // Optional, see Configuration.PRODUCT_NOTIFY_WINDOWS
+    public String getCategory() {
+        return category;
+    }
+
 
     public static final class Builder {
         private String id;
@@ -48,6 +58,7 @@ public class ProductEventDetails {
         private String description;
         private BigDecimal price;
         private ProductAvailability availability;
+    private String category;
 
         public Builder() {
         }
@@ -58,6 +69,7 @@ public class ProductEventDetails {
             description = productEventDetails.description;
             price = productEventDetails.price;
             availability = productEventDetails.availability;
+            category = productEventDetails.category;
         }
 
         public Builder id(String val) {
@@ -85,6 +97,11 @@ public class ProductEventDetails {
             return this;
         }
 
+        public Builder category(String val) {
+            category = val;
+            return this;
+        }
+
         public ProductEventDetails build() {
             return new ProductEventDetails(this);
         }
@@ -1,5 +1,8 @@
 package com.example.stateful_functions.cloudevents.data.internal;
 
+import com.example.stateful_functions.cloudevents.codec.GeneratedJsonCodec;
+
+@GeneratedJsonCodec
 public class FunctionSubscriptionDetails {
 
     private FunctionSubscriptionAction action;
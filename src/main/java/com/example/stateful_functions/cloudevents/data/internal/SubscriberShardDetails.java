@@ -0,0 +1,60 @@
+package com.example.stateful_functions.cloudevents.data.internal;
+
+import com.example.stateful_functions.cloudevents.codec.GeneratedJsonCodec;
+
+@GeneratedJsonCodec
+public class SubscriberShardDetails {
+
+    private int shard;
+    private int shardCount;
+    private int subscriberCount;
+
+    public SubscriberShardDetails() {
+    }
+
+    private SubscriberShardDetails(Builder builder) {
+        shard = builder.shard;
+        shardCount = builder.shardCount;
+        subscriberCount = builder.subscriberCount;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount;
+    }
+
+    public static final class Builder {
+        private int shard;
+        private int shardCount;
+        private int subscriberCount;
+
+        public Builder() {
+        }
+
+        public Builder shard(int val) {
+            shard = val;
+            return this;
+        }
+
+        public Builder shardCount(int val) {
+            shardCount = val;
+            return this;
+        }
+
+        public Builder subscriberCount(int val) {
+            subscriberCount = val;
+            return this;
+        }
+
+        public SubscriberShardDetails build() {
+            return new SubscriberShardDetails(this);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.stateful_functions.cloudevents.identity;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * A UTC clock with millisecond precision that creates at most one OffsetDateTime per millisecond.  Events created
+ * within the same millisecond share the same (immutable) time.
+ */
+public class CachedClock {
+
+    private volatile Tick tick = new Tick(Long.MIN_VALUE, null);
+
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    public OffsetDateTime now() {
+        long millis = millis();
+        Tick current = tick;
+        if (current.millis != millis) {
+            current = new Tick(millis, OffsetDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+            tick = current;
+        }
+        return current.time;
+    }
+
+    private static final class Tick {
+        private final long millis;
+        private final OffsetDateTime time;
+
+        Tick(long millis, OffsetDateTime time) {
+            this.millis = millis;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.stateful_functions.cloudevents.identity;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+
+/**
+ * Event ids and times that are the same every time the same events are processed in the same order, for replay
+ * tests.  The clock is fixed at the start time, and the random bits of the ids come from a seeded generator.
+ *
+ * The generator is a single bean shared by every function in the task manager, so the ids depend on the order in
+ * which all of them ask for one.  That order is only fixed when the job runs at parallelism 1; with more subtasks
+ * the events they process interleave differently from run to run, and so do the ids.
+ */
+public class DeterministicEventIdentity extends UuidV7EventIdentity {
+
+    private final OffsetDateTime startTime;
+    private final SplittableRandom random;
+
+    public DeterministicEventIdentity(long seed, OffsetDateTime startTime) {
+        this.startTime = startTime.withOffsetSameInstant(ZoneOffset.UTC);
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+        return startTime.toInstant().toEpochMilli();
+    }
+
+    @Override
+    protected synchronized long randomBits() {
+        return random.nextLong();
+    }
+
+    @Override
+    public OffsetDateTime now() {
+        return startTime;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.stateful_functions.cloudevents.identity;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Ids and times for the CloudEvents emitted by the functions.
+ *
+ * The implementation is chosen by Configuration.EVENT_IDENTITY, see SpringModule.
+ */
+public interface EventIdentity {
+
+    /** A new event id, unique and ordered by the time it was created. */
+    String nextId();
+
+    /** The time for an event created now. */
+    OffsetDateTime now();
+}
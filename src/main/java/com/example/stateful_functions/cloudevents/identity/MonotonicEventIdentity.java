@@ -0,0 +1,28 @@
+package com.example.stateful_functions.cloudevents.identity;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Time-ordered event ids from the wall clock, with random bits from ThreadLocalRandom rather than the
+ * SecureRandom behind UUID.randomUUID(), and event times from a CachedClock.
+ */
+public class MonotonicEventIdentity extends UuidV7EventIdentity {
+
+    private final CachedClock clock = new CachedClock();
+
+    @Override
+    protected long currentTimeMillis() {
+        return clock.millis();
+    }
+
+    @Override
+    protected long randomBits() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    @Override
+    public OffsetDateTime now() {
+        return clock.now();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.stateful_functions.cloudevents.identity;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event ids laid out as version 7 (time-ordered) UUIDs: a 48 bit Unix millisecond timestamp, a 12 bit counter
+ * for ids within the same millisecond, and 62 random bits.
+ *
+ * Ids are monotonic: the timestamp and counter are treated as a single 60 bit value that always increases, so
+ * ids created within the same millisecond, or while the clock steps back, are still ordered.  When the counter
+ * overflows the id borrows the next millisecond.
+ */
+abstract class UuidV7EventIdentity implements EventIdentity {
+
+    private static final int COUNTER_BITS = 12;
+
+    private final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    /** The current time in milliseconds. */
+    protected abstract long currentTimeMillis();
+
+    /** 64 random bits, of which the low 62 are used. */
+    protected abstract long randomBits();
+
+    @Override
+    public String nextId() {
+        long now = currentTimeMillis() << COUNTER_BITS;
+        long timestampAndCounter = lastTimestampAndCounter.updateAndGet(last -> Math.max(now, last + 1));
+
+        long mostSignificantBits = (timestampAndCounter >>> COUNTER_BITS) << 16   // unix_ts_ms
+                | 0x7000L                                                         // version 7
+                | (timestampAndCounter & 0xFFFL);                                 // counter
+        long leastSignificantBits = (randomBits() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;  // variant 10
+        return new UUID(mostSignificantBits, leastSignificantBits).toString();
+    }
+}
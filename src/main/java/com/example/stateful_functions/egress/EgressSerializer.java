@@ -1,35 +1,91 @@
 package com.example.stateful_functions.egress;
 
 import com.example.stateful_functions.Configuration;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.example.stateful_functions.envelope.PayloadCompression;
+import com.example.stateful_functions.logging.ErrorBursts;
 import com.example.stateful_functions.protobuf.ExampleProtobuf;
-import org.apache.flink.kinesis.shaded.com.amazonaws.util.Md5Utils;
 import org.apache.flink.statefun.sdk.kinesis.egress.EgressRecord;
 import org.apache.flink.statefun.sdk.kinesis.egress.KinesisEgressSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 
 public class EgressSerializer implements KinesisEgressSerializer<ExampleProtobuf.Envelope> {
 
     private static final Logger LOG = LoggerFactory.getLogger(EgressSerializer.class);
 
+    private static final ErrorBursts ERRORS = new ErrorBursts(LOG);
+
+    private static final ExampleCloudEventFormats CLOUD_EVENT_FORMATS =
+            new ExampleCloudEventFormats(new ExampleCloudEventJsonFormat(), new ExampleCloudEventProtobufFormat());
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<PartitionKeyDigest> PARTITION_KEY_DIGESTS = ThreadLocal.withInitial(PartitionKeyDigest::new);
+
     @Override
     public EgressRecord serialize(ExampleProtobuf.Envelope envelope) {
         try {
-            String payload = envelope.getPayload();
+            // Functions egress events in the egress format, anything sent in another format is converted here
+            ExampleCloudEventFormat egressFormat = CLOUD_EVENT_FORMATS.egress();
+            if (CLOUD_EVENT_FORMATS.forEnvelope(envelope) != egressFormat) {
+                envelope = EnvelopeCloudEvent.toEnvelope(EnvelopeCloudEvent.from(envelope, CLOUD_EVENT_FORMATS), egressFormat).build();
+            }
+            byte[] payload = EnvelopeUtil.payloadBytes(envelope);
             String partitionKey = envelope.hasPartitionKey() ? envelope.getPartitionKey() :
-                    new String(Md5Utils.computeMD5Hash(payload.getBytes(UTF_8)));
+                    PARTITION_KEY_DIGESTS.get().partitionKey(payload);
+            if (payload.length >= Configuration.EGRESS_COMPRESSION_THRESHOLD) {
+                // The gzip or zlib header marks the record as compressed for consumers
+                payload = PayloadCompression.compress(payload, Configuration.EGRESS_COMPRESSION);
+            }
             return EgressRecord.newBuilder()
                     .withPartitionKey(partitionKey)
-                    .withData(payload.getBytes(UTF_8))
+                    .withData(payload)
                     .withStream(Configuration.EGRESS_KINESIS_STREAM_NAME)
                     .build();
         } catch (Exception e) {
-            LOG.info("Failed to serialize event", e);
+            ERRORS.error(e.getClass().getName(), "Failed to serialize event", e);
             return null;
         }
     }
-}
 
+    // The hex MD5 of a payload, for events without a partition key.  Kinesis hashes partition keys to pick a
+    // shard, so all that matters is that the key is spread as evenly as the payloads are.  The digest and the
+    // buffers it is written through are reused, leaving the key string as the only allocation.
+    private static final class PartitionKeyDigest {
+        private final MessageDigest md5;
+        private final byte[] digest;
+        private final char[] hex;
+
+        PartitionKeyDigest() {
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            }
+            catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 is not available", e);
+            }
+            digest = new byte[md5.getDigestLength()];
+            hex = new char[digest.length * 2];
+        }
+
+        String partitionKey(byte[] payload) throws DigestException {
+            md5.update(payload);
+            md5.digest(digest, 0, digest.length);
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+            }
+            return new String(hex);
+        }
+    }
+}
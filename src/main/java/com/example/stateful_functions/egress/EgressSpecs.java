@@ -37,5 +37,19 @@ public class EgressSpecs {
                             new PropertiesBuilder().property("VerifyCertificate", Configuration.IS_LOCAL_DEV ? "false" : "true").build())
                     .build();
 
+    // Records that couldn't be handled, see Quarantine
+    public static final EgressIdentifier<ExampleProtobuf.Envelope> QUARANTINE_ID =
+            new EgressIdentifier<>("default", "quarantine-egress", ExampleProtobuf.Envelope.class);
+
+    public static final EgressSpec<ExampleProtobuf.Envelope> quarantineKinesisEgress =
+            KinesisEgressBuilder.forIdentifier(QUARANTINE_ID)
+                    .withAwsRegion(Configuration.getAwsRegion())
+                    .withAwsCredentials(AwsCredentials.fromDefaultProviderChain())
+                    .withMaxOutstandingRecords(100)
+                    .withSerializer(QuarantineSerializer.class)
+                    .withProperties(
+                            new PropertiesBuilder().property("VerifyCertificate", Configuration.IS_LOCAL_DEV ? "false" : "true").build())
+                    .build();
+
 }
 
@@ -0,0 +1,38 @@
+package com.example.stateful_functions.egress;
+
+import com.example.stateful_functions.Configuration;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import org.apache.flink.statefun.sdk.kinesis.egress.EgressRecord;
+import org.apache.flink.statefun.sdk.kinesis.egress.KinesisEgressSerializer;
+
+/**
+ * Writes quarantined records to the quarantine stream as QuarantineRecords, with the bytes exactly as they were
+ * received and the reason they were quarantined.  Events the router quarantined (UNROUTED) have already been
+ * converted by the ingress, so they are written in the internal format, which is their content type.
+ */
+public class QuarantineSerializer implements KinesisEgressSerializer<ExampleProtobuf.Envelope> {
+
+    @Override
+    public EgressRecord serialize(ExampleProtobuf.Envelope envelope) {
+        ExampleProtobuf.QuarantineRecord.Builder record = ExampleProtobuf.QuarantineRecord.newBuilder()
+                .setReason(envelope.getQuarantineReason())
+                .setData(envelope.getPayload());
+        if (envelope.hasContentType()) {
+            record.setContentType(envelope.getContentType());
+        }
+        if (envelope.hasEventType()) {
+            record.setEventType(envelope.getEventType());
+        }
+        if (envelope.hasEventId()) {
+            record.setEventId(envelope.getEventId());
+        }
+        // Records without an id are spread by their contents
+        String partitionKey = envelope.hasEventId() ? envelope.getEventId() :
+                envelope.getQuarantineReason() + "-" + Integer.toHexString(envelope.getPayload().hashCode());
+        return EgressRecord.newBuilder()
+                .withPartitionKey(partitionKey)
+                .withData(record.build().toByteArray())
+                .withStream(Configuration.QUARANTINE_KINESIS_STREAM_NAME)
+                .build();
+    }
+}
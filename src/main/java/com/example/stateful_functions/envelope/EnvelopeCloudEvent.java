@@ -0,0 +1,208 @@
+package com.example.stateful_functions.envelope;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.TargetKeyPaths;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.google.protobuf.ByteString;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.CloudEventData;
+import io.cloudevents.SpecVersion;
+import io.cloudevents.jackson.JsonCloudEventData;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+
+/**
+ * A CloudEvent view of an envelope.
+ *
+ * The type, id, source and time attributes are answered from the envelope headers, so routing and dispatch
+ * can look at an event without touching the payload.  The payload is parsed the first time anything else
+ * (typically the data) is asked for, and at most once.
+ */
+public class EnvelopeCloudEvent implements CloudEvent {
+
+    private final ExampleProtobuf.Envelope envelope;
+    private final ExampleCloudEventFormat cloudEventFormat;
+    private CloudEvent parsedEvent;
+    private URI source;
+    private OffsetDateTime time;
+
+    private EnvelopeCloudEvent(ExampleProtobuf.Envelope envelope, ExampleCloudEventFormat cloudEventFormat, CloudEvent parsedEvent) {
+        this.envelope = envelope;
+        this.cloudEventFormat = cloudEventFormat;
+        this.parsedEvent = parsedEvent;
+    }
+
+    /**
+     * A CloudEvent for the envelope, or null if the envelope has no headers and its payload can't be parsed.
+     * Envelopes without headers (e.g. Kinesis records, or written by an older version of the job) are given headers
+     * here, so that {@link #getEnvelope()} can be passed on as-is.  For JSON payloads they are read by the
+     * JsonEventSniffer, leaving the payload to be parsed if and when it is needed.
+     */
+    public static EnvelopeCloudEvent from(ExampleProtobuf.Envelope envelope, ExampleCloudEventFormats cloudEventFormats) {
+        ExampleCloudEventFormat cloudEventFormat = cloudEventFormats.forEnvelope(envelope);
+        if (envelope.hasEventType()) {
+            return new EnvelopeCloudEvent(envelope, cloudEventFormat, null);
+        }
+        if (cloudEventFormat == cloudEventFormats.json()) {
+            ExampleProtobuf.Envelope.Builder builder = envelope.toBuilder();
+            if (!JsonEventSniffer.setHeaders(builder, EnvelopeUtil.payloadBytes(envelope))) {
+                return null;
+            }
+            return new EnvelopeCloudEvent(builder.build(), cloudEventFormat, null);
+        }
+        CloudEvent event = cloudEventFormat.deserialize(envelope.getPayload());
+        if (event == null) {
+            return null;
+        }
+        ExampleProtobuf.Envelope.Builder builder = envelope.toBuilder();
+        setHeaders(builder, event);
+        return new EnvelopeCloudEvent(builder.build(), cloudEventFormat, event);
+    }
+
+    /**
+     * An envelope with headers for the event, with the payload in the given format.  The payload of an event
+     * received in an envelope is reused if it is already in that format, transcoded if it hasn't been parsed and
+     * the format can (see ExampleCloudEventFormat.transcode), and otherwise the event is serialized.
+     */
+    public static ExampleProtobuf.Envelope.Builder toEnvelope(CloudEvent event, ExampleCloudEventFormat cloudEventFormat) {
+        if (event instanceof EnvelopeCloudEvent) {
+            EnvelopeCloudEvent envelopeEvent = (EnvelopeCloudEvent) event;
+            if (envelopeEvent.cloudEventFormat == cloudEventFormat) {
+                return envelopeEvent.envelope.toBuilder();
+            }
+            ByteString payload = envelopeEvent.parsedEvent == null ?
+                    cloudEventFormat.transcode(envelopeEvent.envelope.getPayload(), envelopeEvent.cloudEventFormat) : null;
+            if (payload == null) {
+                payload = cloudEventFormat.serialize(envelopeEvent.parsed());
+            }
+            return envelopeEvent.envelope.toBuilder()
+                    .setPayload(payload)
+                    .setContentType(cloudEventFormat.getContentType());
+        }
+        ExampleProtobuf.Envelope.Builder builder = ExampleProtobuf.Envelope.newBuilder()
+                .setPayload(cloudEventFormat.serialize(event))
+                .setContentType(cloudEventFormat.getContentType());
+        return setHeaders(builder, event);
+    }
+
+    /** Copy the header attributes of an event, and its target id if it has one, to an envelope. */
+    public static ExampleProtobuf.Envelope.Builder setHeaders(ExampleProtobuf.Envelope.Builder builder, CloudEvent event) {
+        builder.setEventType(event.getType())
+                .setEventId(event.getId())
+                .setEventSource(event.getSource().toString());
+        if (event.getTime() != null) {
+            builder.setEventTime(event.getTime().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        }
+        String targetId = targetIdFromData(event);
+        if (targetId != null) {
+            builder.setTargetId(targetId);
+        }
+        return builder;
+    }
+
+    /** The id of the function instance an event is addressed to, if the envelope carries it. */
+    public static String targetId(CloudEvent event) {
+        if (event instanceof EnvelopeCloudEvent) {
+            ExampleProtobuf.Envelope envelope = ((EnvelopeCloudEvent) event).envelope;
+            return envelope.hasTargetId() ? envelope.getTargetId() : null;
+        }
+        return null;
+    }
+
+    private static String targetIdFromData(CloudEvent event) {
+        if (!(event.getData() instanceof JsonCloudEventData)) {
+            return null;
+        }
+        return TargetKeyPaths.fromData(event.getType(), ((JsonCloudEventData) event.getData()).getNode());
+    }
+
+    /** The envelope backing this event, with headers. */
+    public ExampleProtobuf.Envelope getEnvelope() {
+        return envelope;
+    }
+
+    private CloudEvent parsed() {
+        if (parsedEvent == null) {
+            parsedEvent = cloudEventFormat.deserialize(envelope.getPayload());
+            if (parsedEvent == null) {
+                throw new IllegalStateException("Unable to parse the payload of event " + envelope.getEventId());
+            }
+        }
+        return parsedEvent;
+    }
+
+    @Override
+    public CloudEventData getData() {
+        return parsed().getData();
+    }
+
+    @Override
+    public SpecVersion getSpecVersion() {
+        return parsed().getSpecVersion();
+    }
+
+    @Override
+    public String getId() {
+        return envelope.getEventId();
+    }
+
+    @Override
+    public String getType() {
+        return envelope.getEventType();
+    }
+
+    @Override
+    public URI getSource() {
+        if (source == null) {
+            source = URI.create(envelope.getEventSource());
+        }
+        return source;
+    }
+
+    @Override
+    public String getDataContentType() {
+        return parsed().getDataContentType();
+    }
+
+    @Override
+    public URI getDataSchema() {
+        return parsed().getDataSchema();
+    }
+
+    @Override
+    public String getSubject() {
+        return parsed().getSubject();
+    }
+
+    @Override
+    public OffsetDateTime getTime() {
+        if (time == null && envelope.hasEventTime()) {
+            time = OffsetDateTime.parse(envelope.getEventTime(), DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        }
+        return time;
+    }
+
+    @Override
+    public Object getAttribute(String attributeName) throws IllegalArgumentException {
+        return parsed().getAttribute(attributeName);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+        return parsed().getAttributeNames();
+    }
+
+    @Override
+    public Object getExtension(String extensionName) {
+        return parsed().getExtension(extensionName);
+    }
+
+    @Override
+    public Set<String> getExtensionNames() {
+        return parsed().getExtensionNames();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.stateful_functions.envelope;
+
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.google.protobuf.ByteOutput;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers for moving envelope payloads around as raw bytes.
+ *
+ * The payload of an envelope is never modified once it has been built, so byte arrays are wrapped and
+ * unwrapped without copying wherever protobuf allows it.  Arrays passed to or returned from these
+ * methods must be treated as read-only.
+ */
+public class EnvelopeUtil {
+
+    /** Wrap a serialized event in an envelope without copying it. */
+    public static ExampleProtobuf.Envelope fromPayload(byte[] payload) {
+        return ExampleProtobuf.Envelope.newBuilder()
+                .setPayload(UnsafeByteOperations.unsafeWrap(payload))
+                .build();
+    }
+
+    /** The payload of an envelope as a byte array, copied only if it doesn't wrap a whole array. */
+    public static byte[] payloadBytes(ExampleProtobuf.Envelope envelope) {
+        return unsafeBytes(envelope.getPayload());
+    }
+
+    /** The contents of a ByteString as a byte array, copied only if it doesn't wrap a whole array. */
+    public static byte[] unsafeBytes(ByteString bytes) {
+        ArrayCapture capture = new ArrayCapture(bytes.size());
+        try {
+            UnsafeByteOperations.unsafeWriteTo(bytes, capture);
+        }
+        catch (IOException e) {
+            // ArrayCapture never throws
+        }
+        return capture.array != null ? capture.array : bytes.toByteArray();
+    }
+
+    // Captures the backing array of a ByteString, but only when it is handed over in one piece.
+    private static final class ArrayCapture extends ByteOutput {
+        private final int size;
+        private byte[] array;
+        private boolean fragmented;
+
+        ArrayCapture(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public void write(byte value) {
+            fragmented();
+        }
+
+        @Override
+        public void write(byte[] value, int offset, int length) {
+            fragmented();
+        }
+
+        @Override
+        public void writeLazy(byte[] value, int offset, int length) {
+            if (!fragmented && array == null && offset == 0 && length == size && value.length == size) {
+                array = value;
+            }
+            else {
+                fragmented();
+            }
+        }
+
+        @Override
+        public void write(ByteBuffer value) {
+            fragmented();
+        }
+
+        @Override
+        public void writeLazy(ByteBuffer value) {
+            fragmented();
+        }
+
+        private void fragmented() {
+            fragmented = true;
+            array = null;
+        }
+    }
+}
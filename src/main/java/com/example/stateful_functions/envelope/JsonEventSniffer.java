@@ -0,0 +1,156 @@
+package com.example.stateful_functions.envelope;
+
+import com.example.stateful_functions.cloudevents.TargetKeyPaths;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the envelope headers of a CloudEvents JSON event with a streaming parser, without building the event.
+ *
+ * Only the type, id, source and time attributes and the target key paths (see TargetKeyPaths) are read.  Everything
+ * else is skipped over without being materialized, and parsing stops as soon as all of them have been found.
+ */
+public class JsonEventSniffer {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /** Set the headers of an envelope from its JSON payload.  False if it isn't an object with a type, id and source. */
+    public static boolean setHeaders(ExampleProtobuf.Envelope.Builder builder, byte[] json) {
+        List<List<String>> dataPaths = TargetKeyPaths.dataPaths();
+        Sniffed sniffed = new Sniffed(dataPaths.size());
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (!sniffed.complete() && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "type":
+                        sniffed.type = text(parser, value);
+                        sniffed.targetKeyIndex = sniffed.type != null ? dataPaths.indexOf(TargetKeyPaths.forType(sniffed.type)) : -1;
+                        break;
+                    case "id":
+                        sniffed.id = text(parser, value);
+                        break;
+                    case "source":
+                        sniffed.source = text(parser, value);
+                        break;
+                    case "time":
+                        sniffed.time = text(parser, value);
+                        break;
+                    case "data":
+                        if (value == JsonToken.START_OBJECT) {
+                            sniffData(parser, dataPaths, sniffed);
+                        }
+                        else {
+                            parser.skipChildren();
+                        }
+                        sniffed.dataRead = true;
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        catch (IOException e) {
+            return false;
+        }
+
+        if (sniffed.type == null || sniffed.id == null || sniffed.source == null) {
+            return false;
+        }
+        builder.setEventType(sniffed.type)
+                .setEventId(sniffed.id)
+                .setEventSource(sniffed.source);
+        if (sniffed.time != null) {
+            builder.setEventTime(sniffed.time);
+        }
+        if (sniffed.targetKeyIndex >= 0 && sniffed.dataKeys[sniffed.targetKeyIndex] != null) {
+            builder.setTargetId(sniffed.dataKeys[sniffed.targetKeyIndex]);
+        }
+        return true;
+    }
+
+    // Reads the values at the data paths from the data object the parser is at the start of.  Objects on the way
+    // to a data path are descended into, everything else is skipped.  Returns early, leaving the parser inside
+    // the data, once every header has been found.
+    private static void sniffData(JsonParser parser, List<List<String>> dataPaths, Sniffed sniffed) throws IOException {
+        List<String> path = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.END_OBJECT) {
+                if (path.isEmpty()) {
+                    return;
+                }
+                path.remove(path.size() - 1);
+                continue;
+            }
+            path.add(parser.getCurrentName());
+            JsonToken value = parser.nextToken();
+
+            int index = dataPaths.indexOf(path);
+            if (index >= 0) {
+                sniffed.dataKeys[index] = value.isScalarValue() && value != JsonToken.VALUE_NULL ? parser.getText() : null;
+                parser.skipChildren();
+                path.remove(path.size() - 1);
+                if (sniffed.complete()) {
+                    return;
+                }
+            }
+            else if (value == JsonToken.START_OBJECT && isPrefix(path, dataPaths)) {
+                // descend, the matching END_OBJECT pops the field
+            }
+            else {
+                parser.skipChildren();
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    private static boolean isPrefix(List<String> path, List<List<String>> dataPaths) {
+        for (List<String> dataPath : dataPaths) {
+            if (dataPath.size() > path.size() && dataPath.subList(0, path.size()).equals(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String text(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static final class Sniffed {
+        private String type;
+        private String id;
+        private String source;
+        private String time;
+        private final String[] dataKeys;
+        private int targetKeyIndex = -1;
+        private boolean dataRead;
+
+        Sniffed(int dataPathCount) {
+            dataKeys = new String[dataPathCount];
+        }
+
+        // Everything the headers need has been read.  The time is optional, so without one the whole event is read.
+        boolean complete() {
+            if (type == null || id == null || source == null || time == null) {
+                return false;
+            }
+            return targetKeyIndex < 0 || dataRead || dataKeys[targetKeyIndex] != null;
+        }
+    }
+}
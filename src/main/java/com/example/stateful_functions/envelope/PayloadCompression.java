@@ -0,0 +1,196 @@
+package com.example.stateful_functions.envelope;
+
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Gzip (RFC 1952) and zlib deflate (RFC 1950) compression of Kinesis record payloads.
+ *
+ * Compressed payloads are recognized by their gzip or zlib header, neither of which can start a JSON or protobuf
+ * CloudEvent, so compressed and uncompressed records can share a stream.  The Inflaters and Deflaters are kept
+ * per thread and reset between records, and output goes through the thread's SerializationBuffer.
+ */
+public class PayloadCompression {
+
+    public static final String NONE = "none";
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    // Payloads that inflate to more than this are rejected, rather than taking down the task manager
+    private static final int MAX_DECOMPRESSED_SIZE = 16 * 1024 * 1024;
+
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private static final int GZIP_DEFLATE = 8;
+    private static final int GZIP_HEADER_SIZE = 10;
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final byte[] GZIP_HEADER = {(byte) GZIP_MAGIC_1, (byte) GZIP_MAGIC_2, GZIP_DEFLATE, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+
+    private static final ThreadLocal<Codecs> CODECS = ThreadLocal.withInitial(Codecs::new);
+
+    /** The compression of a payload from its header, GZIP, DEFLATE or NONE. */
+    public static String compressionOf(byte[] payload) {
+        if (payload.length >= 2) {
+            int b0 = payload[0] & 0xff;
+            int b1 = payload[1] & 0xff;
+            if (b0 == GZIP_MAGIC_1 && b1 == GZIP_MAGIC_2) {
+                return GZIP;
+            }
+            // CMF (deflate, window of at most 32K) and FLG (a check that makes the pair a multiple of 31)
+            if ((b0 & 0x0f) == GZIP_DEFLATE && (b0 >> 4) <= 7 && ((b0 << 8) | b1) % 31 == 0) {
+                return DEFLATE;
+            }
+        }
+        return NONE;
+    }
+
+    /** The payload decompressed, or the payload itself if it isn't compressed. */
+    public static byte[] decompress(byte[] payload) throws DataFormatException {
+        switch (compressionOf(payload)) {
+            case GZIP:
+                return gunzip(payload);
+            case DEFLATE:
+                return inflate(CODECS.get().zlibInflater, payload, 0, payload.length, null);
+            default:
+                return payload;
+        }
+    }
+
+    /** The payload compressed with GZIP or DEFLATE, or the payload itself for NONE. */
+    public static byte[] compress(byte[] payload, String compression) {
+        switch (compression) {
+            case GZIP:
+                return gzip(payload);
+            case DEFLATE:
+                return deflate(CODECS.get().zlibDeflater, payload, SerializationBuffer.forCurrentThread()).toByteArray();
+            case NONE:
+                return payload;
+            default:
+                throw new IllegalArgumentException("Unknown compression " + compression);
+        }
+    }
+
+    private static byte[] gunzip(byte[] payload) throws DataFormatException {
+        if (payload.length < GZIP_HEADER_SIZE + GZIP_TRAILER_SIZE || payload[2] != GZIP_DEFLATE) {
+            throw new DataFormatException("Not a gzip payload");
+        }
+        int flags = payload[3];
+        int offset = GZIP_HEADER_SIZE;
+        if ((flags & FEXTRA) != 0) {
+            offset += 2 + ((payload[offset] & 0xff) | (payload[offset + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            offset = skipZeroTerminated(payload, offset);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            offset = skipZeroTerminated(payload, offset);
+        }
+        if ((flags & FHCRC) != 0) {
+            offset += 2;
+        }
+        int trailer = payload.length - GZIP_TRAILER_SIZE;
+        if (offset > trailer) {
+            throw new DataFormatException("Truncated gzip header");
+        }
+
+        Codecs codecs = CODECS.get();
+        codecs.crc.reset();
+        // The trailer is passed on too, the inflater stops at the end of the deflate stream
+        byte[] decompressed = inflate(codecs.rawInflater, payload, offset, payload.length - offset, codecs.crc);
+        if ((int) codecs.crc.getValue() != readIntLE(payload, trailer) || decompressed.length != readIntLE(payload, trailer + 4)) {
+            throw new DataFormatException("Corrupt gzip payload");
+        }
+        return decompressed;
+    }
+
+    private static byte[] inflate(Inflater inflater, byte[] payload, int offset, int length, CRC32 crc) throws DataFormatException {
+        SerializationBuffer buffer = SerializationBuffer.forCurrentThread();
+        byte[] chunk = CODECS.get().chunk;
+        inflater.reset();
+        inflater.setInput(payload, offset, length);
+        try {
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(chunk);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated compressed payload");
+                }
+                if (buffer.size() + inflated > MAX_DECOMPRESSED_SIZE) {
+                    throw new DataFormatException("Payload decompresses to more than " + MAX_DECOMPRESSED_SIZE + " bytes");
+                }
+                buffer.write(chunk, 0, inflated);
+                if (crc != null) {
+                    crc.update(chunk, 0, inflated);
+                }
+            }
+        }
+        finally {
+            inflater.reset();
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] payload) {
+        Codecs codecs = CODECS.get();
+        SerializationBuffer buffer = SerializationBuffer.forCurrentThread();
+        buffer.write(GZIP_HEADER, 0, GZIP_HEADER_SIZE);
+        deflate(codecs.rawDeflater, payload, buffer);
+        codecs.crc.reset();
+        codecs.crc.update(payload, 0, payload.length);
+        writeIntLE(buffer, (int) codecs.crc.getValue());
+        writeIntLE(buffer, payload.length);
+        return buffer.toByteArray();
+    }
+
+    private static SerializationBuffer deflate(Deflater deflater, byte[] payload, SerializationBuffer buffer) {
+        byte[] chunk = CODECS.get().chunk;
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+        try {
+            while (!deflater.finished()) {
+                int deflated = deflater.deflate(chunk);
+                buffer.write(chunk, 0, deflated);
+            }
+        }
+        finally {
+            deflater.reset();
+        }
+        return buffer;
+    }
+
+    private static int skipZeroTerminated(byte[] payload, int offset) throws DataFormatException {
+        while (offset < payload.length && payload[offset] != 0) {
+            offset++;
+        }
+        if (offset == payload.length) {
+            throw new DataFormatException("Truncated gzip header");
+        }
+        return offset + 1;
+    }
+
+    private static int readIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8 | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    private static void writeIntLE(SerializationBuffer buffer, int value) {
+        buffer.write(value);
+        buffer.write(value >>> 8);
+        buffer.write(value >>> 16);
+        buffer.write(value >>> 24);
+    }
+
+    private static final class Codecs {
+        private final Inflater zlibInflater = new Inflater();
+        private final Inflater rawInflater = new Inflater(true);
+        private final Deflater zlibDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final Deflater rawDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final CRC32 crc = new CRC32();
+        private final byte[] chunk = new byte[8 * 1024];
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.stateful_functions.envelope;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UnsafeByteOperations;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A growable byte buffer, one per thread, that serializers write into and copy the result out of.  Each
+ * serialized event then allocates one array of exactly its size, instead of the buffers it was written
+ * through as well.
+ *
+ * A buffer is reset by {@link #forCurrentThread()}, so whatever was written must be copied out before
+ * anything else on the same thread serializes into it.  Buffers that grew beyond the size of a Kinesis
+ * record are dropped rather than kept around.
+ */
+public final class SerializationBuffer extends OutputStream {
+
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<SerializationBuffer> BUFFERS = ThreadLocal.withInitial(SerializationBuffer::new);
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int count;
+    private CodedOutputStream codedOutput;
+
+    private SerializationBuffer() {
+    }
+
+    /** The buffer of the current thread, emptied. */
+    public static SerializationBuffer forCurrentThread() {
+        SerializationBuffer serializationBuffer = BUFFERS.get();
+        serializationBuffer.reset();
+        return serializationBuffer;
+    }
+
+    /**
+     * A protobuf output stream writing into this buffer.  It buffers writes itself, so it must be flushed before
+     * the contents of this buffer are copied out, and whether or not writing it failed.
+     */
+    public CodedOutputStream codedOutput() {
+        if (codedOutput == null) {
+            codedOutput = CodedOutputStream.newInstance(this, INITIAL_CAPACITY);
+        }
+        return codedOutput;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        ensureCapacity(count + length);
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** A copy of the contents of the buffer. */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /** A copy of the contents of the buffer, wrapped rather than copied again. */
+    public ByteString toByteString() {
+        return UnsafeByteOperations.unsafeWrap(toByteArray());
+    }
+
+    private void reset() {
+        count = 0;
+        if (buffer.length > MAX_RETAINED_CAPACITY) {
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
@@ -1,81 +1,219 @@
 package com.example.stateful_functions.function;
 
 import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
-import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
 import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
 import com.example.stateful_functions.cloudevents.data.internal.FunctionAddressDetails;
 import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionAction;
 import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionDetails;
+import com.example.stateful_functions.cloudevents.identity.EventIdentity;
 import com.example.stateful_functions.egress.EgressSpecs;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.logging.ErrorBursts;
+import com.example.stateful_functions.logging.SampledLogger;
+import com.example.stateful_functions.metrics.EventTypeMetrics;
 import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.google.protobuf.ByteString;
 import io.cloudevents.CloudEvent;
 import io.cloudevents.core.builder.CloudEventBuilder;
-import io.cloudevents.jackson.JsonCloudEventData;
+import org.apache.flink.statefun.sdk.Address;
 import org.apache.flink.statefun.sdk.Context;
 import org.apache.flink.statefun.sdk.FunctionType;
 import org.apache.flink.statefun.sdk.StatefulFunction;
+import org.apache.flink.statefun.sdk.state.PersistedValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.net.URI;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class AbstractStatefulFunction implements StatefulFunction {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractStatefulFunction.class);
 
+    // Unparsable messages and handler failures, by function and exception class
+    private static final ErrorBursts ERRORS = new ErrorBursts(LOG);
+
+    // The events handled are logged by a sample, per function class
+    private static final ClassValue<SampledLogger> EVENT_LOGS = new ClassValue<>() {
+        @Override
+        protected SampledLogger computeValue(Class<?> functionClass) {
+            return new SampledLogger(LoggerFactory.getLogger(functionClass));
+        }
+    };
+
     public abstract FunctionType getFunctionType();
 
     @Autowired
-    ExampleCloudEventJsonFormat cloudEventJsonFormat;
+    ExampleCloudEventFormats cloudEventFormats;
 
     @Autowired
     protected ExampleCloudEventDataAccess cloudEventDataAccess;
 
+    @Autowired
+    protected EventIdentity eventIdentity;
+
+    private final List<BufferedValue<?>> bufferedValues = new ArrayList<>();
+
+    // Bound once per function class
+    private final EventHandlers eventHandlers = EventHandlers.of(getClass());
+
+    private final SampledLogger eventLog = EVENT_LOGS.get(getClass());
+
+    // Created with the context's metrics on the first invocation, see FunctionMetrics
+    private EventTypeMetrics<FunctionMetrics> metrics;
+
+    // Of the event being handled, for the messages it sends
+    private FunctionMetrics eventMetrics;
+
+    /**
+     * Buffers a persisted value, so that it is read and written once per invocation rather than once per event
+     * when the invocation is a batch.  Call from a field initializer, after the @Persisted field.
+     */
+    protected <T> BufferedValue<T> buffered(PersistedValue<T> persistedValue) {
+        BufferedValue<T> bufferedValue = new BufferedValue<>(persistedValue);
+        bufferedValues.add(bufferedValue);
+        return bufferedValue;
+    }
+
     @Override
     public final void invoke(Context context, Object o) {
         if (o instanceof ExampleProtobuf.Envelope) {
+            ExampleProtobuf.Envelope envelope = (ExampleProtobuf.Envelope) o;
+            try {
+                if (envelope.getBatchCount() > 0) {
+                    // Events bundled at the ingress, handled in order
+                    for (ExampleProtobuf.Envelope batchedEnvelope : envelope.getBatchList()) {
+                        handleEnvelope(context, batchedEnvelope);
+                    }
+                }
+                else {
+                    handleEnvelope(context, envelope);
+                }
+            }
+            finally {
+                for (BufferedValue<?> bufferedValue : bufferedValues) {
+                    bufferedValue.flush();
+                }
+            }
+        }
+    }
 
-            CloudEvent event = cloudEventJsonFormat.deserialize(((ExampleProtobuf.Envelope)o).getPayload());
+    private void handleEnvelope(Context context, ExampleProtobuf.Envelope envelope) {
+        // The headers are enough for dispatch and logging, the payload is parsed once a handler asks for the data
+        CloudEvent event = EnvelopeCloudEvent.from(envelope, cloudEventFormats);
+        if (event == null) {
+            metrics(context).forEventType(FunctionMetrics.UNPARSABLE).invocations.inc();
+            ERRORS.error(getClass().getSimpleName() + "/unparsable", "Dropping unparsable message addressed-to: {}", context.self());
+            return;
+        }
 
+        eventMetrics = metrics(context).forEventType(event.getType());
+        eventMetrics.invocations.inc();
+        long started = System.nanoTime();
+        try {
+            if (eventLog.sample()) {
+                eventLog.info("handleEvent function={} addressed-to={} eventId={} type={} skipped={}",
+                        this.getClass().getSimpleName(), context.self(), event.getId(), event.getType(), eventLog.skipped());
+            }
+            handleEvent(context, event);
+        }
+        catch (Throwable t) {
+            eventMetrics.errors.inc();
             try {
-                getLogger().info("handleEvent {}, addressed-to: {}, eventId: {}, type: {}",
-                        this.getClass().getSimpleName(), context.self(), event.getId(),
-                        event.getType());
-                handleEvent(context, event);
+                ERRORS.error(getClass().getSimpleName() + "/" + t.getClass().getName(),
+                        "Exception thrown by {}, message: {}, addressed-to: {}, eventId: {}, type: {}",
+                        this.getClass().getSimpleName(), t.getMessage(), context.self(), event.getId(),
+                        event.getType(), t);
             }
-            catch (Throwable t) {
-                try {
-                    LOG.error("Exception thrown by {}, message: {}, addressed-to: {}, eventId: {}, type: {}",
-                            this.getClass().getSimpleName(), t.getMessage(), context.self(), event.getId(),
-                            event.getType(), t);
-                }
-                catch (Throwable x) {
-                    getLogger().error(t.getMessage(), t);
-                }
+            catch (Throwable x) {
+                getLogger().error(t.getMessage(), t);
             }
         }
+        finally {
+            eventMetrics.handleTime.record(System.nanoTime() - started);
+            eventMetrics = null;
+        }
+    }
+
+    private EventTypeMetrics<FunctionMetrics> metrics(Context context) {
+        if (metrics == null || !metrics.isOf(context.metrics())) {
+            metrics = new EventTypeMetrics<>(context.metrics(), FunctionMetrics::new);
+        }
+        return metrics;
     }
 
     protected abstract Logger getLogger();
 
-    protected abstract void handleEvent(Context context, CloudEvent event);
+    /**
+     * Handles an event with the {@link OnEvent} handler of its type.  Functions may override this to handle events
+     * themselves.
+     */
+    protected void handleEvent(Context context, CloudEvent event) {
+        EventHandlers.EventHandler handler = eventHandlers.forType(event.getType());
+        if (handler == null) {
+            getLogger().debug("Ignoring event of type {}", event.getType());
+            return;
+        }
+        long started = System.nanoTime();
+        Object details = handler.decode(event, cloudEventDataAccess);
+        if (eventMetrics != null) {
+            eventMetrics.decodeTime.record(System.nanoTime() - started);
+        }
+        handler.invoke(this, context, event, details);
+    }
 
 
-    /** Send String payload to another function addressed by functionType and id. */
-    protected void send(Context context, FunctionType functionType, String id, String payload) {
+    /** Send a serialized payload to another function addressed by functionType and id. */
+    protected void send(Context context, FunctionType functionType, String id, ByteString payload) {
         ExampleProtobuf.Envelope protobufMessage = ExampleProtobuf.Envelope.newBuilder()
                 .setPayload(payload)
                 .build();
         context.send(functionType, id, protobufMessage);
+        countSent();
+    }
+
+    /**
+     * A message carrying the event, to send to other functions with {@link #send(Context, Address, ExampleProtobuf.Envelope)}.
+     * The event is serialized once, and the message is immutable, so the same one can be sent to any number of
+     * functions.  It has no target id, the functions it is sent to have theirs in their address.
+     */
+    protected ExampleProtobuf.Envelope toMessage(CloudEvent event) {
+        return EnvelopeCloudEvent.toEnvelope(event, cloudEventFormats.internal())
+                .clearPartitionKey()
+                .clearTargetId()
+                .build();
+    }
+
+    /** Send a message made by toMessage() to another function. */
+    protected void send(Context context, Address address, ExampleProtobuf.Envelope message) {
+        context.send(address, message);
+        countSent();
+    }
+
+    /** Send a message made by toMessage() to a function, this one included, after the delay. */
+    protected void sendAfter(Context context, Duration delay, Address address, ExampleProtobuf.Envelope message) {
+        context.sendAfter(delay, address, message);
+        countSent();
     }
 
     /** Send a CloudEvent to another function addressed by functionType and id. */
     protected void send(Context context, FunctionType functionType, String id, CloudEvent event) {
-        send(context, functionType, id, cloudEventJsonFormat.serialize(event));
+        ExampleProtobuf.Envelope envelope = EnvelopeCloudEvent.toEnvelope(event, cloudEventFormats.internal())
+                .clearPartitionKey()
+                .setTargetId(id)
+                .build();
+        context.send(functionType, id, envelope);
+        countSent();
+    }
+
+    private void countSent() {
+        if (eventMetrics != null) {
+            eventMetrics.sent.inc();
+        }
     }
 
     /** Subscribe to another function.  The destination (publisher) function must explicitly support subscriptions or queries. */
@@ -103,25 +241,34 @@ public abstract class AbstractStatefulFunction implements StatefulFunction {
 
         FunctionSubscriptionDetails functionSubscriptionDetails = builder.build();
 
-        CloudEvent subscriptionEvent = CloudEventBuilder.v1()
-                .withId(UUID.randomUUID().toString())
-                .withType(ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE)
-                .withSource(URI.create(String.format("http://stateful_functions.example.com/%s.%s/%s",
-                        subscriberType.namespace(), subscriberType.name(), subscriberId)))
-                .withData("application/json", JsonCloudEventData.wrap(
-                        cloudEventDataAccess.getObjectMapper().valueToTree(functionSubscriptionDetails)))
-                .withTime(OffsetDateTime.now(ZoneOffset.UTC))
-                .build();
+        CloudEvent subscriptionEvent = createEvent(new Address(subscriberType, subscriberId),
+                ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE, functionSubscriptionDetails);
+
+        send(context, publisherType, publisherId, subscriptionEvent);
+    }
 
-        send(context, publisherType, publisherId, cloudEventJsonFormat.serialize(subscriptionEvent));
+    /** An event between functions, from the source function, with the details as its data, or no data if null. */
+    protected CloudEvent createEvent(Address source, String eventType, Object details) {
+        CloudEventBuilder builder = CloudEventBuilder.v1()
+                .withId(eventIdentity.nextId())
+                .withType(eventType)
+                .withSource(URI.create(String.format("http://stateful_functions.example.com/%s.%s/%s",
+                        source.type().namespace(), source.type().name(), source.id())))
+                .withTime(eventIdentity.now());
+        if (details != null) {
+            builder.withData("application/json", cloudEventDataAccess.toCloudEventData(details));
+        }
+        return builder.build();
     }
 
-    /** Egress an event payload */
+    /** Egress an event payload.  Events leave the job as JSON. */
     protected void egressEvent(Context context, CloudEvent event, String partitionKey) {
-        ExampleProtobuf.Envelope protobufEnvelope = ExampleProtobuf.Envelope.newBuilder()
-                .setPayload(cloudEventJsonFormat.serialize(event))
+        ExampleProtobuf.Envelope protobufEnvelope = EnvelopeCloudEvent.toEnvelope(event, cloudEventFormats.egress())
                 .setPartitionKey(partitionKey)
                 .build();
         context.send(EgressSpecs.ID, protobufEnvelope);
+        if (eventMetrics != null) {
+            eventMetrics.egressed.inc();
+        }
     }
 }
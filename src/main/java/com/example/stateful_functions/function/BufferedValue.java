@@ -0,0 +1,61 @@
+package com.example.stateful_functions.function;
+
+import org.apache.flink.statefun.sdk.state.PersistedValue;
+
+import java.util.function.Supplier;
+
+/**
+ * A PersistedValue read at most once and written at most once per invocation, however many events the
+ * invocation handles.  Reads and writes go to a copy held here, which AbstractStatefulFunction writes back
+ * once the invocation's events are handled.  Create with AbstractStatefulFunction.buffered().
+ */
+public final class BufferedValue<T> {
+
+    private final PersistedValue<T> persistedValue;
+
+    private boolean loaded;
+    private boolean dirty;
+    private T value;
+
+    BufferedValue(PersistedValue<T> persistedValue) {
+        this.persistedValue = persistedValue;
+    }
+
+    public T get() {
+        if (!loaded) {
+            value = persistedValue.get();
+            loaded = true;
+        }
+        return value;
+    }
+
+    public T getOrDefault(Supplier<T> orElse) {
+        T current = get();
+        return current != null ? current : orElse.get();
+    }
+
+    public void set(T value) {
+        this.value = value;
+        loaded = true;
+        dirty = true;
+    }
+
+    public void clear() {
+        set(null);
+    }
+
+    /** Writes any change back to the persisted value, and forgets the copy. */
+    void flush() {
+        if (dirty) {
+            if (value == null) {
+                persistedValue.clear();
+            }
+            else {
+                persistedValue.set(value);
+            }
+        }
+        loaded = false;
+        dirty = false;
+        value = null;
+    }
+}
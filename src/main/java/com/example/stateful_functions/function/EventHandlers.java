@@ -0,0 +1,135 @@
+package com.example.stateful_functions.function;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import io.cloudevents.CloudEvent;
+import org.apache.flink.statefun.sdk.Context;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link OnEvent} handlers of a function class, by event type.
+ *
+ * Each handler method is bound once per class, when the class is first used, to a class generated by
+ * LambdaMetafactory that calls it directly, so handling an event is a map lookup and a plain call, without
+ * reflection.  Invalid handlers fail the binding with an IllegalStateException.
+ */
+final class EventHandlers {
+
+    private static final ClassValue<EventHandlers> HANDLERS = new ClassValue<>() {
+        @Override
+        protected EventHandlers computeValue(Class<?> functionClass) {
+            return new EventHandlers(functionClass);
+        }
+    };
+
+    // The lambda classes implementing these are defined in the packages of the function classes, so they are public
+    // Handler methods with the function, the context and the decoded data (or the event) as arguments
+    @FunctionalInterface
+    public interface DetailsInvoker {
+        void invoke(Object function, Context context, Object details);
+    }
+
+    // Handler methods with the function, the context, the event and its decoded data as arguments
+    @FunctionalInterface
+    public interface EventDetailsInvoker {
+        void invoke(Object function, Context context, CloudEvent event, Object details);
+    }
+
+    private final Map<String, EventHandler> handlersByType;
+
+    private EventHandlers(Class<?> functionClass) {
+        Map<String, EventHandler> handlers = new HashMap<>();
+        for (Class<?> type = functionClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                OnEvent onEvent = method.getAnnotation(OnEvent.class);
+                if (onEvent == null) {
+                    continue;
+                }
+                EventHandler handler = bind(functionClass, method);
+                if (handlers.putIfAbsent(onEvent.type(), handler) != null) {
+                    throw new IllegalStateException("More than one @OnEvent handler for " + onEvent.type() + " in " + functionClass.getName());
+                }
+            }
+        }
+        this.handlersByType = handlers;
+    }
+
+    static EventHandlers of(Class<?> functionClass) {
+        return HANDLERS.get(functionClass);
+    }
+
+    /** The handler of an event type, or null if there is none. */
+    EventHandler forType(String eventType) {
+        return handlersByType.get(eventType);
+    }
+
+    Set<String> eventTypes() {
+        return Collections.unmodifiableSet(handlersByType.keySet());
+    }
+
+    private static EventHandler bind(Class<?> functionClass, Method method) {
+        Class<?>[] parameters = method.getParameterTypes();
+        boolean withEvent = parameters.length == 3;
+        if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() != void.class
+                || (parameters.length != 2 && !withEvent) || parameters[0] != Context.class
+                || (withEvent && parameters[1] != CloudEvent.class)) {
+            throw new IllegalStateException("@OnEvent method " + method + " must be an instance method returning void, " +
+                    "taking (Context, T) or (Context, CloudEvent, T)");
+        }
+        Class<?> detailsClass = parameters[parameters.length - 1];
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+            MethodHandle implementation = lookup.unreflect(method);
+            MethodType instantiated = implementation.type().changeReturnType(void.class);
+            if (withEvent) {
+                CallSite callSite = LambdaMetafactory.metafactory(lookup, "invoke", MethodType.methodType(EventDetailsInvoker.class),
+                        MethodType.methodType(void.class, Object.class, Context.class, CloudEvent.class, Object.class),
+                        implementation, instantiated);
+                return new EventHandler(detailsClass, null, (EventDetailsInvoker) callSite.getTarget().invoke());
+            }
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "invoke", MethodType.methodType(DetailsInvoker.class),
+                    MethodType.methodType(void.class, Object.class, Context.class, Object.class),
+                    implementation, instantiated);
+            return new EventHandler(detailsClass, (DetailsInvoker) callSite.getTarget().invoke(), null);
+        }
+        catch (Throwable t) {
+            throw new IllegalStateException("Unable to bind @OnEvent method " + method + " of " + functionClass.getName(), t);
+        }
+    }
+
+    static final class EventHandler {
+        private final Class<?> detailsClass;
+        private final DetailsInvoker detailsInvoker;
+        private final EventDetailsInvoker eventDetailsInvoker;
+
+        private EventHandler(Class<?> detailsClass, DetailsInvoker detailsInvoker, EventDetailsInvoker eventDetailsInvoker) {
+            this.detailsClass = detailsClass;
+            this.detailsInvoker = detailsInvoker;
+            this.eventDetailsInvoker = eventDetailsInvoker;
+        }
+
+        /** Decodes the event's data into the handler's parameter type, or returns the event if that is CloudEvent. */
+        Object decode(CloudEvent event, ExampleCloudEventDataAccess cloudEventDataAccess) {
+            return detailsClass == CloudEvent.class ? event : cloudEventDataAccess.toDetails(event, detailsClass);
+        }
+
+        void invoke(Object function, Context context, CloudEvent event, Object details) {
+            if (detailsInvoker != null) {
+                detailsInvoker.invoke(function, context, details);
+            }
+            else {
+                eventDetailsInvoker.invoke(function, context, event, details);
+            }
+        }
+    }
+}
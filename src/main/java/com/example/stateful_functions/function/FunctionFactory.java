@@ -0,0 +1,156 @@
+package com.example.stateful_functions.function;
+
+import org.apache.flink.statefun.sdk.StatefulFunction;
+import org.springframework.beans.factory.Aware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Creates the instances of one function class without going through the application context.
+ *
+ * A prototype bean is created by Spring's full bean creation each time: resolving the constructor, finding the
+ * injection points and looking up each dependency.  All of that is resolved here once, when the factory is
+ * created.  Instances are built with the constructor reference from the generated FunctionRegistry (or a method
+ * handle of the no-argument constructor), and the singletons for their @Autowired fields are set directly.
+ *
+ * Only classes whose beans need nothing more than that are supported; resolve() returns null for the others, which
+ * FunctionProvider keeps getting from the application context (see fromApplicationContext()).
+ */
+final class FunctionFactory {
+
+    private final Supplier<? extends StatefulFunction> constructor;
+    private final Field[] fields;
+    private final Object[] values;
+
+    private FunctionFactory(Supplier<? extends StatefulFunction> constructor, List<Field> fields, List<Object> values) {
+        this.constructor = constructor;
+        this.fields = fields.toArray(new Field[0]);
+        this.values = values.toArray();
+    }
+
+    StatefulFunction create() {
+        StatefulFunction function = constructor.get();
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                fields[i].set(function, values[i]);
+            }
+        }
+        catch (IllegalAccessException e) {
+            // The fields were made accessible when the factory was resolved
+            throw new IllegalStateException(e);
+        }
+        return function;
+    }
+
+    /** A factory getting the instances from the application context, as prototype beans. */
+    static FunctionFactory fromApplicationContext(Class<? extends StatefulFunction> functionClass, ApplicationContext applicationContext) {
+        return new FunctionFactory(() -> applicationContext.getBean(functionClass), Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * A factory for the function class, with the given constructor or null to find its no-argument constructor, or
+     * null if its beans need more than singletons set in @Autowired fields.
+     */
+    static FunctionFactory resolve(Class<? extends StatefulFunction> functionClass, Supplier<? extends StatefulFunction> constructor,
+                                   ApplicationContext applicationContext) {
+        if (Aware.class.isAssignableFrom(functionClass) || InitializingBean.class.isAssignableFrom(functionClass)
+                || DisposableBean.class.isAssignableFrom(functionClass)) {
+            return null;
+        }
+        if (constructor == null) {
+            constructor = noArgumentConstructor(functionClass);
+            if (constructor == null) {
+                return null;
+            }
+        }
+
+        List<Field> fields = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (Class<?> type = functionClass; type != Object.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (hasSpringAnnotation(method.getAnnotations()) || hasAnnotationNamed(method.getAnnotations(), "PostConstruct")) {
+                    return null;
+                }
+            }
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                if (field.isAnnotationPresent(Autowired.class)) {
+                    Object singleton = singleton(field.getType(), applicationContext);
+                    if (singleton == null) {
+                        return null;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                    values.add(singleton);
+                }
+                else if (hasSpringAnnotation(field.getAnnotations())) {
+                    // e.g. @Value
+                    return null;
+                }
+            }
+        }
+        return new FunctionFactory(constructor, fields, values);
+    }
+
+    // The only bean of the type, if it is a singleton
+    private static Object singleton(Class<?> type, ApplicationContext applicationContext) {
+        String[] names = applicationContext.getBeanNamesForType(type);
+        if (names.length != 1 || !applicationContext.isSingleton(names[0])) {
+            return null;
+        }
+        return applicationContext.getBean(names[0]);
+    }
+
+    private static Supplier<? extends StatefulFunction> noArgumentConstructor(Class<? extends StatefulFunction> functionClass) {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().findConstructor(functionClass, MethodType.methodType(void.class));
+        }
+        catch (ReflectiveOperationException e) {
+            return null;
+        }
+        MethodHandle constructor = handle.asType(MethodType.methodType(StatefulFunction.class));
+        return () -> {
+            try {
+                return (StatefulFunction) constructor.invokeExact();
+            }
+            catch (Throwable t) {
+                throw new IllegalStateException("Failed to create a " + functionClass.getName(), t);
+            }
+        };
+    }
+
+    private static boolean hasSpringAnnotation(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation.annotationType().getName().startsWith("org.springframework.")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasAnnotationNamed(Annotation[] annotations, String simpleName) {
+        for (Annotation annotation : annotations) {
+            if (annotation.annotationType().getSimpleName().equals(simpleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.stateful_functions.function;
+
+import com.example.stateful_functions.metrics.LatencyCounter;
+import org.apache.flink.statefun.sdk.metrics.Counter;
+import org.apache.flink.statefun.sdk.metrics.Metrics;
+
+/**
+ * The metrics AbstractStatefulFunction keeps for each type of event a function handles, registered through
+ * Context.metrics() and so scoped to the function type:
+ *
+ * <ul>
+ *     <li>{@code <event type>.invocations}, events handled</li>
+ *     <li>{@code <event type>.errors}, events whose handler threw</li>
+ *     <li>{@code <event type>.handle-time-*}, the time to handle an event, including decoding its data</li>
+ *     <li>{@code <event type>.decode-time-*}, the time to decode the data for an {@link OnEvent} handler</li>
+ *     <li>{@code <event type>.sent}, messages sent to other functions while handling the events</li>
+ *     <li>{@code <event type>.egressed}, events sent to the egress while handling the events</li>
+ * </ul>
+ *
+ * The times are LatencyCounters.
+ */
+final class FunctionMetrics {
+
+    // For messages that couldn't be parsed into an event
+    static final String UNPARSABLE = "unparsable";
+
+    final Counter invocations;
+    final Counter errors;
+    final LatencyCounter handleTime;
+    final LatencyCounter decodeTime;
+    final Counter sent;
+    final Counter egressed;
+
+    FunctionMetrics(Metrics metrics, String prefix) {
+        invocations = metrics.counter(prefix + "invocations");
+        errors = metrics.counter(prefix + "errors");
+        handleTime = new LatencyCounter(metrics, prefix + "handle-time");
+        decodeTime = new LatencyCounter(metrics, prefix + "decode-time");
+        sent = metrics.counter(prefix + "sent");
+        egressed = metrics.counter(prefix + "egressed");
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.stateful_functions.function;
 
+import com.example.stateful_functions.Configuration;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.statefun.sdk.FunctionType;
 import org.apache.flink.statefun.sdk.StatefulFunction;
@@ -18,7 +19,17 @@ import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.Map;
-
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Binds the {@link StatefunFunction} classes, and creates their instances as Spring beans.
+ *
+ * The classes are found in the FunctionRegistry generated at build time, or with Configuration.FUNCTION_DISCOVERY
+ * "scan", by scanning the classpath as before.  Scanning reads every class file under the base package on every
+ * task manager when the job starts, so the registry shortens restarts and rescales.
+ */
 @Component
 public class FunctionProvider implements StatefulFunctionProvider, ApplicationContextAware, InitializingBean {
 
@@ -26,8 +37,22 @@ public class FunctionProvider implements StatefulFunctionProvider, ApplicationCo
 
     private static final String STATEFUN_BASE_PACKAGE = "com.example.stateful_functions";
 
+    public static final String REGISTRY = "registry";
+    public static final String SCAN = "scan";
+
+    private final String discovery;
+
     private ApplicationContext applicationContext;
 
+    public FunctionProvider() {
+        this(Configuration.FUNCTION_DISCOVERY);
+    }
+
+    @VisibleForTesting
+    public FunctionProvider(String discovery) {
+        this.discovery = discovery;
+    }
+
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         this.applicationContext = applicationContext;
@@ -35,8 +60,44 @@ public class FunctionProvider implements StatefulFunctionProvider, ApplicationCo
 
     private final Map<FunctionType,Class> functionsByType = new HashMap<>();
 
+    private final Map<FunctionType,Supplier<? extends StatefulFunction>> constructorsByType = new HashMap<>();
+
+    // Resolved on first use, once the singletons they inject can be created
+    private final Map<FunctionType,FunctionFactory> factoriesByType = new ConcurrentHashMap<>();
+
     @Override
     public void afterPropertiesSet() throws Exception {
+        long started = System.nanoTime();
+        if (!SCAN.equals(discovery) && loadRegistry()) {
+            LOG.info("Found {} function types in the generated registry in {} us", functionsByType.size(), (System.nanoTime() - started) / 1000);
+        }
+        else {
+            scan();
+            LOG.info("Found {} function types by scanning {} in {} us", functionsByType.size(), STATEFUN_BASE_PACKAGE, (System.nanoTime() - started) / 1000);
+        }
+
+        // Bind the @OnEvent handlers now, so that invalid ones fail the job at startup
+        for (Class functionClass : functionsByType.values()) {
+            if (AbstractStatefulFunction.class.isAssignableFrom(functionClass)) {
+                EventHandlers.of(functionClass);
+            }
+        }
+    }
+
+    private boolean loadRegistry() {
+        boolean found = false;
+        for (FunctionRegistry registry : ServiceLoader.load(FunctionRegistry.class, FunctionProvider.class.getClassLoader())) {
+            functionsByType.putAll(registry.functionsByType());
+            constructorsByType.putAll(registry.constructorsByType());
+            found = true;
+        }
+        if (!found) {
+            LOG.warn("No generated function registry on the classpath, scanning for @StatefunFunction classes instead");
+        }
+        return found;
+    }
+
+    private void scan() throws ReflectiveOperationException {
         ClassPathScanningCandidateComponentProvider componentProvider = new ClassPathScanningCandidateComponentProvider(false);
         componentProvider.addIncludeFilter(new AnnotationTypeFilter(StatefunFunction.class));
 
@@ -63,7 +124,17 @@ public class FunctionProvider implements StatefulFunctionProvider, ApplicationCo
             throw new IllegalArgumentException("Unknown function type: " + functionType);
         }
 
-        return (StatefulFunction)applicationContext.getBean(functionsByType.get(functionType));
+        return factoriesByType.computeIfAbsent(functionType, this::resolveFactory).create();
+    }
+
+    private FunctionFactory resolveFactory(FunctionType functionType) {
+        Class functionClass = functionsByType.get(functionType);
+        FunctionFactory factory = FunctionFactory.resolve(functionClass, constructorsByType.get(functionType), applicationContext);
+        if (factory == null) {
+            LOG.info("Creating {} functions through the application context", functionType);
+            factory = FunctionFactory.fromApplicationContext(functionClass, applicationContext);
+        }
+        return factory;
     }
 
     public void bindFunctions(StatefulFunctionModule.Binder binder) {
@@ -0,0 +1,20 @@
+package com.example.stateful_functions.function;
+
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.apache.flink.statefun.sdk.StatefulFunction;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The {@link StatefunFunction} classes and their function types, as found at build time.  Implementations are
+ * generated by StatefunFunctionProcessor and found with a ServiceLoader, so FunctionProvider doesn't need to scan
+ * the classpath.
+ */
+public interface FunctionRegistry {
+
+    Map<FunctionType, Class<? extends StatefulFunction>> functionsByType();
+
+    /** References to the no-argument constructors of the function classes that have one, by function type. */
+    Map<FunctionType, Supplier<? extends StatefulFunction>> constructorsByType();
+}
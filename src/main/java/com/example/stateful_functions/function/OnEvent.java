@@ -0,0 +1,26 @@
+package com.example.stateful_functions.function;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of an AbstractStatefulFunction as the handler of one event type, e.g.
+ *
+ * <pre>
+ * &#64;OnEvent(type = ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+ * void onProduct(Context context, ProductEventDetails details)
+ * </pre>
+ *
+ * The event data is decoded once into the type of the last parameter, unless that is CloudEvent, in which case it
+ * is the event itself.  A handler may also take the event as well as its data, as (Context, CloudEvent, T).
+ * Handlers are bound when the function class is first used, see EventHandlers.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface OnEvent {
+
+    /** The event type handled. */
+    String type();
+}
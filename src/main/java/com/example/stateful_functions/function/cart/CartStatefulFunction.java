@@ -9,12 +9,13 @@ import com.example.stateful_functions.cloudevents.data.ProductAvailability;
 import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
 import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionAction;
 import com.example.stateful_functions.function.AbstractStatefulFunction;
+import com.example.stateful_functions.function.BufferedValue;
+import com.example.stateful_functions.function.OnEvent;
 import com.example.stateful_functions.function.StatefunFunction;
 import com.example.stateful_functions.function.product.ProductStateAvailability;
 import com.example.stateful_functions.function.product.ProductStatefulFunction;
 import io.cloudevents.CloudEvent;
 import io.cloudevents.core.builder.CloudEventBuilder;
-import io.cloudevents.jackson.JsonCloudEventData;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.statefun.sdk.Context;
 import org.apache.flink.statefun.sdk.FunctionType;
@@ -24,9 +25,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.util.UUID;
 
 @StatefunFunction
 public class CartStatefulFunction extends AbstractStatefulFunction {
@@ -48,27 +46,15 @@ public class CartStatefulFunction extends AbstractStatefulFunction {
     }
 
     @Persisted
-    private final PersistedValue<CartStateDetails> state = PersistedValue.of("state", CartStateDetails.class);
+    private final PersistedValue<CartStateDetails> persistedState = PersistedValue.of("state", CartStateDetails.class);
+
+    private final BufferedValue<CartStateDetails> state = buffered(persistedState);
 
 
     // FOR TESTING ONLY!
     @VisibleForTesting
     public CartStateDetails getStateValue() {
-        return state.get();
-    }
-
-    @Override
-    public void handleEvent(Context context, CloudEvent event) {
-        switch (event.getType()) {
-            case ExampleCloudEventType.CART_PRODUCT_EVENT_TYPE: {
-                handleCartProductEvent(context, event);
-                break;
-            }
-            case ExampleCloudEventType.PRODUCT_EVENT_TYPE: {
-                handleProductEvent(context, event);
-                break;
-            }
-        }
+        return persistedState.get();
     }
 
     private void productSubscription(Context context, String cartId, String productId, FunctionSubscriptionAction action) {
@@ -76,8 +62,8 @@ public class CartStatefulFunction extends AbstractStatefulFunction {
         subscribe(context, ProductStatefulFunction.FUNCTION_TYPE, productId, CartStatefulFunction.FUNCTION_TYPE, cartId, action,null);
     }
 
-    private void handleCartProductEvent(Context context, CloudEvent event) {
-        CartProductEventDetails cartProduct = cloudEventDataAccess.toCartProductEventDetails(event);
+    @OnEvent(type = ExampleCloudEventType.CART_PRODUCT_EVENT_TYPE)
+    private void handleCartProductEvent(Context context, CartProductEventDetails cartProduct) {
         CartStateDetails cartState = state.getOrDefault(() -> new CartStateDetails(cartProduct.getCartId()));
 
         CartItemStateDetails cartItem = cartState.getItems().get(cartProduct.getProductId());
@@ -126,13 +112,13 @@ public class CartStatefulFunction extends AbstractStatefulFunction {
         }
     }
 
-    private void handleProductEvent(Context context, CloudEvent event) {
+    @OnEvent(type = ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+    private void handleProductEvent(Context context, ProductEventDetails productDetails) {
         CartStateDetails cartState = state.get();
         if (cartState == null) {
             // Nothing to do
             return;
         }
-        ProductEventDetails productDetails = cloudEventDataAccess.toProductEventDetails(event);
 
         CartItemStateDetails cartItem = cartState.getItems().get(productDetails.getId());
         if (cartItem == null) {
@@ -163,11 +149,11 @@ public class CartStatefulFunction extends AbstractStatefulFunction {
 
         }
         CloudEvent cartStatusEvent = CloudEventBuilder.v1()
-                .withId(UUID.randomUUID().toString())
+                .withId(eventIdentity.nextId())
                 .withType(ExampleCloudEventType.CART_STATUS_EVENT_TYPE)
                 .withSource(URI.create("http://stateful_functions.example.com/cart-function"))
-                .withData("application/json", JsonCloudEventData.wrap(cloudEventDataAccess.getObjectMapper().valueToTree(cartStatusEventDetails)))
-                .withTime(OffsetDateTime.now(ZoneOffset.UTC))
+                .withData("application/json", cloudEventDataAccess.toCloudEventData(cartStatusEventDetails))
+                .withTime(eventIdentity.now())
                 .build();
 
         egressEvent(context, cartStatusEvent, cartState.getId());
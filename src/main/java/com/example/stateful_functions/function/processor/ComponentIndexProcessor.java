@@ -0,0 +1,123 @@
+package com.example.stateful_functions.function.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Writes the Spring candidate component index, META-INF/spring.components, for the classes being compiled, as
+ * spring-context-indexer does.  With the index on the classpath @ComponentScan reads it rather than scanning the
+ * classpath, which is most of the time it takes to start the job's application context.
+ *
+ * Classes are indexed if they are annotated, directly or through other annotations (e.g. {@code @Configuration}
+ * or {@code @StatefunFunction}), with {@code @Component}.  Entries from an earlier, partial compilation are kept
+ * while their class still exists.  Setting the spring.index.ignore property makes Spring scan regardless.
+ */
+@SupportedAnnotationTypes("*")
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    private static final String COMPONENT = "org.springframework.stereotype.Component";
+    private static final String INDEX = "META-INF/spring.components";
+
+    // Class name to stereotype, sorted to keep the file stable between builds
+    private final Map<String, String> components = new TreeMap<>();
+    private final Set<String> processed = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            index(type);
+        }
+        return false;
+    }
+
+    private void index(TypeElement type) {
+        String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+        processed.add(name);
+        if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)
+                && isComponent(type, new HashSet<>())) {
+            components.put(name, COMPONENT);
+        }
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            if (nested.getModifiers().contains(Modifier.STATIC)) {
+                index(nested);
+            }
+        }
+    }
+
+    private boolean isComponent(Element element, Set<String> visited) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            String annotationName = annotationType.getQualifiedName().toString();
+            if (annotationName.equals(COMPONENT)) {
+                return true;
+            }
+            if (!annotationName.startsWith("java.") && visited.add(annotationName) && isComponent(annotationType, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            keepPreviousEntries();
+            if (components.isEmpty()) {
+                return;
+            }
+            FileObject indexFile = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            try (Writer writer = indexFile.openWriter()) {
+                for (Map.Entry<String, String> component : components.entrySet()) {
+                    writer.write(component.getKey() + "=" + component.getValue() + "\n");
+                }
+            }
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + INDEX + ": " + e.getMessage());
+        }
+    }
+
+    // Only the changed sources are processed by an incremental compilation
+    private void keepPreviousEntries() {
+        Properties previous = new Properties();
+        try (InputStream in = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX).openInputStream()) {
+            previous.load(in);
+        }
+        catch (IOException e) {
+            // No earlier index
+            return;
+        }
+        for (String name : previous.stringPropertyNames()) {
+            if (!processed.contains(name) && processingEnv.getElementUtils().getTypeElement(name.replace('$', '.')) != null) {
+                components.putIfAbsent(name, previous.getProperty(name));
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.stateful_functions.function.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a FunctionRegistry of the classes annotated with {@code @StatefunFunction}, and lists it in
+ * META-INF/services so that FunctionProvider can find it instead of scanning the classpath.
+ *
+ * The registry reads each class's FUNCTION_TYPE field directly, so the checks FunctionProvider used to make at
+ * startup are made here, at build time: a function class must be a public, concrete StatefulFunction with a public
+ * static FunctionType FUNCTION_TYPE.  The registry also has references to the classes' no-argument constructors,
+ * for FunctionFactory.
+ */
+@SupportedAnnotationTypes(StatefunFunctionProcessor.STATEFUN_FUNCTION)
+public class StatefunFunctionProcessor extends AbstractProcessor {
+
+    static final String STATEFUN_FUNCTION = "com.example.stateful_functions.function.StatefunFunction";
+
+    private static final String REGISTRY_PACKAGE = "com.example.stateful_functions.function";
+    private static final String REGISTRY_NAME = "GeneratedFunctionRegistry";
+    private static final String REGISTRY_SERVICE = "META-INF/services/" + REGISTRY_PACKAGE + ".FunctionRegistry";
+    private static final String STATEFUL_FUNCTION = "org.apache.flink.statefun.sdk.StatefulFunction";
+    private static final String FUNCTION_TYPE = "org.apache.flink.statefun.sdk.FunctionType";
+    private static final String FUNCTION_TYPE_FIELD = "FUNCTION_TYPE";
+
+    private final List<TypeElement> functions = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!functions.isEmpty()) {
+                writeRegistry();
+            }
+            return false;
+        }
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (isFunction(element)) {
+                    functions.add((TypeElement) element);
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isFunction(Element element) {
+        if (element.getKind() != ElementKind.CLASS) {
+            error(element, "@StatefunFunction is only supported on classes");
+            return false;
+        }
+        TypeElement type = (TypeElement) element;
+        if (!type.getModifiers().contains(Modifier.PUBLIC) || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(type, "A @StatefunFunction class must be public and not abstract");
+            return false;
+        }
+        TypeMirror statefulFunction = processingEnv.getElementUtils().getTypeElement(STATEFUL_FUNCTION).asType();
+        if (!processingEnv.getTypeUtils().isAssignable(type.asType(), statefulFunction)) {
+            error(type, "A @StatefunFunction class must implement " + STATEFUL_FUNCTION);
+            return false;
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getSimpleName().contentEquals(FUNCTION_TYPE_FIELD)
+                    && field.getModifiers().contains(Modifier.PUBLIC)
+                    && field.getModifiers().contains(Modifier.STATIC)
+                    && field.asType().toString().equals(FUNCTION_TYPE)) {
+                return true;
+            }
+        }
+        error(type, "A @StatefunFunction class needs a public static " + FUNCTION_TYPE + " " + FUNCTION_TYPE_FIELD + " field");
+        return false;
+    }
+
+    private void writeRegistry() {
+        try {
+            TypeElement[] originatingElements = functions.toArray(new TypeElement[0]);
+            JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(REGISTRY_PACKAGE + "." + REGISTRY_NAME, originatingElements);
+            try (PrintWriter out = new PrintWriter(sourceFile.openWriter())) {
+                out.println("package " + REGISTRY_PACKAGE + ";");
+                out.println();
+                out.println("import " + FUNCTION_TYPE + ";");
+                out.println("import " + STATEFUL_FUNCTION + ";");
+                out.println();
+                out.println("import java.util.Collections;");
+                out.println("import java.util.LinkedHashMap;");
+                out.println("import java.util.Map;");
+                out.println("import java.util.function.Supplier;");
+                out.println();
+                out.println("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")");
+                out.println("public final class " + REGISTRY_NAME + " implements FunctionRegistry {");
+                out.println();
+                out.println("    @Override");
+                out.println("    public Map<FunctionType, Class<? extends StatefulFunction>> functionsByType() {");
+                out.println("        Map<FunctionType, Class<? extends StatefulFunction>> functions = new LinkedHashMap<>();");
+                for (TypeElement function : functions) {
+                    String name = function.getQualifiedName().toString();
+                    out.println("        functions.put(" + name + "." + FUNCTION_TYPE_FIELD + ", " + name + ".class);");
+                }
+                out.println("        return Collections.unmodifiableMap(functions);");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public Map<FunctionType, Supplier<? extends StatefulFunction>> constructorsByType() {");
+                out.println("        Map<FunctionType, Supplier<? extends StatefulFunction>> constructors = new LinkedHashMap<>();");
+                for (TypeElement function : functions) {
+                    if (hasPublicNoArgumentConstructor(function)) {
+                        String name = function.getQualifiedName().toString();
+                        out.println("        constructors.put(" + name + "." + FUNCTION_TYPE_FIELD + ", " + name + "::new);");
+                    }
+                }
+                out.println("        return Collections.unmodifiableMap(constructors);");
+                out.println("    }");
+                out.println("}");
+            }
+
+            FileObject serviceFile = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", REGISTRY_SERVICE, originatingElements);
+            try (Writer writer = serviceFile.openWriter()) {
+                writer.write(REGISTRY_PACKAGE + "." + REGISTRY_NAME);
+                writer.write('\n');
+            }
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write the function registry: " + e.getMessage());
+        }
+    }
+
+    // Functions without one are created by Spring, which can use other constructors
+    private static boolean hasPublicNoArgumentConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.stateful_functions.function.product;
+
+import com.example.stateful_functions.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How long the changes to a product are coalesced before its subscribers are notified, by product category.  The
+ * first change in a window schedules the notification, and the ones after it only update the product, so the
+ * subscribers are sent the product as it is at the end of the window: during a flash sale, one notification per
+ * window rather than one per price change.
+ *
+ * Configured by Configuration.PRODUCT_NOTIFY_WINDOWS, e.g. "electronics=500,*=100".  Invalid entries are logged and
+ * skipped.
+ */
+final class NotifyWindows {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NotifyWindows.class);
+
+    private static final String ANY_CATEGORY = "*";
+
+    static final NotifyWindows CONFIGURED = parse(Configuration.PRODUCT_NOTIFY_WINDOWS);
+
+    private final Map<String, Duration> windowsByCategory;
+    private final Duration otherWindow;
+
+    private NotifyWindows(Map<String, Duration> windowsByCategory) {
+        this.windowsByCategory = Collections.unmodifiableMap(windowsByCategory);
+        this.otherWindow = windowsByCategory.getOrDefault(ANY_CATEGORY, Duration.ZERO);
+    }
+
+    /** The window of the category, which may be null, or zero if the changes aren't coalesced. */
+    Duration windowOf(String category) {
+        return category == null ? otherWindow : windowsByCategory.getOrDefault(category, otherWindow);
+    }
+
+    static NotifyWindows parse(String windows) {
+        Map<String, Duration> parsed = new HashMap<>();
+        for (String entry : windows.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            try {
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("expected <category>=<millis>");
+                }
+                long millis = Long.parseLong(entry.substring(separator + 1).trim());
+                if (millis < 0) {
+                    throw new IllegalArgumentException("the window can't be negative");
+                }
+                parsed.put(entry.substring(0, separator).trim(), Duration.ofMillis(millis));
+            }
+            catch (IllegalArgumentException e) {
+                LOG.warn("Ignoring product notify window '{}': {}", entry, e.getMessage());
+            }
+        }
+        return new NotifyWindows(parsed);
+    }
+}
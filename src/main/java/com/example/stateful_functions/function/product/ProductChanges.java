@@ -0,0 +1,98 @@
+package com.example.stateful_functions.function.product;
+
+import com.example.stateful_functions.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Which changes to a product its subscribers are notified of.  A product event that changes none of the notified
+ * fields only updates the product's state.
+ *
+ * Configured by Configuration.PRODUCT_NOTIFY_FIELDS, e.g. "price,availability", the fields carts depend on, or "*"
+ * for all of them.  Prices are compared by value, so 42 and 42.00 are the same price.
+ */
+final class ProductChanges {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductChanges.class);
+
+    private static final String ALL_FIELDS = "*";
+
+    enum Field {
+        ID {
+            @Override
+            boolean changed(ProductStateDetails before, ProductStateDetails after) {
+                return !Objects.equals(before.getId(), after.getId());
+            }
+        },
+        TITLE {
+            @Override
+            boolean changed(ProductStateDetails before, ProductStateDetails after) {
+                return !Objects.equals(before.getTitle(), after.getTitle());
+            }
+        },
+        DESCRIPTION {
+            @Override
+            boolean changed(ProductStateDetails before, ProductStateDetails after) {
+                return !Objects.equals(before.getDescription(), after.getDescription());
+            }
+        },
+        PRICE {
+            @Override
+            boolean changed(ProductStateDetails before, ProductStateDetails after) {
+                if (before.getPrice() == null || after.getPrice() == null) {
+                    return before.getPrice() != after.getPrice();
+                }
+                return before.getPrice().compareTo(after.getPrice()) != 0;
+            }
+        },
+        AVAILABILITY {
+            @Override
+            boolean changed(ProductStateDetails before, ProductStateDetails after) {
+                return before.getAvailability() != after.getAvailability();
+            }
+        };
+
+        abstract boolean changed(ProductStateDetails before, ProductStateDetails after);
+    }
+
+    static final Set<Field> NOTIFY_FIELDS = parse(Configuration.PRODUCT_NOTIFY_FIELDS);
+
+    /** Whether subscribers are notified of the change from before (null for a new product) to after. */
+    static boolean isNotified(ProductStateDetails before, ProductStateDetails after, Set<Field> notifyFields) {
+        if (before == null) {
+            return true;
+        }
+        for (Field field : notifyFields) {
+            if (field.changed(before, after)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static Set<Field> parse(String notifyFields) {
+        if (notifyFields.trim().equals(ALL_FIELDS)) {
+            return Collections.unmodifiableSet(EnumSet.allOf(Field.class));
+        }
+        Set<Field> parsed = EnumSet.noneOf(Field.class);
+        for (String entry : notifyFields.split(",")) {
+            String name = entry.trim().toUpperCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            try {
+                parsed.add(Field.valueOf(name));
+            }
+            catch (IllegalArgumentException e) {
+                LOG.warn("Ignoring product notify field '{}', expected one of {} or {}", entry, EnumSet.allOf(Field.class), ALL_FIELDS);
+            }
+        }
+        return Collections.unmodifiableSet(parsed);
+    }
+}
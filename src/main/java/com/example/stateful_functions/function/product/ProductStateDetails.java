@@ -19,6 +19,7 @@ public class ProductStateDetails {
     private String description;
     private BigDecimal price;
     private ProductStateAvailability availability;
+    private String category;
 
     public static class ProductStateDetailsTypeInfoFactory extends TypeInfoFactory<ProductStateDetails> {
         @Override
@@ -31,6 +32,7 @@ public class ProductStateDetails {
                 put("description", Types.STRING);
                 put("price", Types.BIG_DEC);
                 put("availability", Types.ENUM(ProductStateAvailability.class));
+                put("category", Types.STRING);
             } } );
         }
     }
@@ -77,4 +79,12 @@ public class ProductStateDetails {
     public void setAvailability(ProductStateAvailability availability) {
         this.availability = availability;
     }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
 }
@@ -1,18 +1,25 @@
 package com.example.stateful_functions.function.product;
 
 
+import com.example.stateful_functions.Configuration;
 import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
 import com.example.stateful_functions.cloudevents.data.ProductAvailability;
 import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
 import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionAction;
 import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionDetails;
+import com.example.stateful_functions.cloudevents.data.internal.SubscriberShardDetails;
 import com.example.stateful_functions.function.AbstractStatefulFunction;
+import com.example.stateful_functions.function.BufferedValue;
+import com.example.stateful_functions.function.OnEvent;
 import com.example.stateful_functions.function.StatefunFunction;
 import com.example.stateful_functions.function.subscriber.FunctionSubscriber;
 import com.example.stateful_functions.function.subscriber.FunctionSubscriberUtil;
+import com.example.stateful_functions.function.subscriber.SubscriberChunk;
+import com.example.stateful_functions.function.subscriber.SubscriberSet;
+import com.example.stateful_functions.function.subscriber.SubscriberShards;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
 import io.cloudevents.CloudEvent;
 import io.cloudevents.core.builder.CloudEventBuilder;
-import io.cloudevents.jackson.JsonCloudEventData;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.statefun.sdk.Context;
 import org.apache.flink.statefun.sdk.FunctionType;
@@ -23,9 +30,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @StatefunFunction
 public class ProductStatefulFunction extends AbstractStatefulFunction {
@@ -36,6 +44,13 @@ public class ProductStatefulFunction extends AbstractStatefulFunction {
 
     private static final Logger LOG = LoggerFactory.getLogger(ProductStatefulFunction.class);
 
+    // Product events sent to the subscribers, those not sent as nothing the subscribers use changed, and those
+    // coalesced into a notification already due at the end of the product's notify window.  Events of products
+    // without subscribers are counted as none of them.
+    static final String NOTIFICATIONS_SENT = "notifications-sent";
+    static final String NOTIFICATIONS_SUPPRESSED = "notifications-suppressed";
+    static final String NOTIFICATIONS_COALESCED = "notifications-coalesced";
+
     @Override
     protected Logger getLogger() {
         return LOG;
@@ -47,15 +62,47 @@ public class ProductStatefulFunction extends AbstractStatefulFunction {
     }
 
     @Persisted
-    private final PersistedValue<ProductStateDetails> state = PersistedValue.of("state", ProductStateDetails.class);
+    private final PersistedValue<ProductStateDetails> persistedState = PersistedValue.of("state", ProductStateDetails.class);
+
+    private final BufferedValue<ProductStateDetails> state = buffered(persistedState);
+
+    // The subscribers of products from before the subscriber set, moved to it by localSubscriberCount()
+    @Persisted
+    private final PersistedTable<String,FunctionSubscriber> tableSubscribers = PersistedTable.of("subscribers", String.class, FunctionSubscriber.class);
+
+    @Persisted
+    private final PersistedTable<Integer,SubscriberChunk> subscriberChunks = PersistedTable.of("subscriber-chunks", Integer.class, SubscriberChunk.class);
+
+    private final SubscriberSet subscribers = new SubscriberSet(subscriberChunks);
+
+    // The number of subscribers in the set, or null if they haven't been moved to it yet
+    @Persisted
+    private final PersistedValue<Integer> persistedSubscriberCount = PersistedValue.of("subscriber-set-count", Integer.class);
+
+    private final BufferedValue<Integer> subscriberCount = buffered(persistedSubscriberCount);
+
+    // The number of subscriber shards holding the subscribers, or 0 if the subscribers are in the table.  See SubscriberShards.
+    @Persisted
+    private final PersistedValue<Integer> persistedShardCount = PersistedValue.of("shard-count", Integer.class);
 
+    private final BufferedValue<Integer> shardCount = buffered(persistedShardCount);
+
+    // When the subscribers are due to be notified of the changes in the notify window, in epoch millis, if they are
     @Persisted
-    private final PersistedTable<String,FunctionSubscriber> subscribers = PersistedTable.of("subscribers", String.class, FunctionSubscriber.class);
+    private final PersistedValue<Long> persistedNotifyDue = PersistedValue.of("notify-due", Long.class);
+
+    private final BufferedValue<Long> notifyDue = buffered(persistedNotifyDue);
 
     // FOR TESTING ONLY!
     @VisibleForTesting
     public ProductStateDetails getStateValue() {
-        return state.get();
+        return persistedState.get();
+    }
+
+    // FOR TESTING ONLY!
+    @VisibleForTesting
+    public int getShardCount() {
+        return persistedShardCount.getOrDefault(0);
     }
 
     private ProductStateDetails fromProductEventDetails(ProductEventDetails productEventDetails) {
@@ -65,55 +112,165 @@ public class ProductStatefulFunction extends AbstractStatefulFunction {
         productStateDetails.setDescription(productEventDetails.getDescription());
         productStateDetails.setPrice(productEventDetails.getPrice());
         productStateDetails.setAvailability(ProductStateAvailability.valueOf(productEventDetails.getAvailability().name()));
+        productStateDetails.setCategory(productEventDetails.getCategory());
         return productStateDetails;
     }
 
-    @Override
-    public void handleEvent(Context context, CloudEvent event) {
-        switch (event.getType()) {
-            case ExampleCloudEventType.PRODUCT_EVENT_TYPE: {
-                handleProductEvent(context, event);
+    @OnEvent(type = ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+    private void handleProductEvent(Context context, CloudEvent event, ProductEventDetails productEventDetails) {
+        ProductStateDetails before = state.get();
+        ProductStateDetails after = fromProductEventDetails(productEventDetails);
+        state.set(after);
 
-                break;
-            }
-            case ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE: {
-                handleFunctionSubscriptionEvent(context, event);
-                break;
-            }
-            default: {
-                LOG.info("Ignoring event of type {}", event.getType());
-            }
+        // Most product events only change the title or description, which subscribers don't use
+        if (!ProductChanges.isNotified(before, after, ProductChanges.NOTIFY_FIELDS)) {
+            context.metrics().counter(NOTIFICATIONS_SUPPRESSED).inc();
+            return;
+        }
+        // Subscribers are sent the product as it is when they subscribe
+        if (!hasSubscribers()) {
+            return;
+        }
+
+        Duration window = NotifyWindows.CONFIGURED.windowOf(after.getCategory());
+        if (window.isZero()) {
+            notifySubscribers(context, event);
+            return;
+        }
+
+        // The first change in the window schedules the notification, which is of the product as it is then.  A
+        // notification a window overdue, e.g. not restored with the state, is rescheduled.
+        long now = System.currentTimeMillis();
+        Long due = notifyDue.get();
+        if (due != null && now <= due + window.toMillis()) {
+            context.metrics().counter(NOTIFICATIONS_COALESCED).inc();
+            return;
         }
+        notifyDue.set(now + window.toMillis());
+        sendAfter(context, window, context.self(),
+                toMessage(createEvent(context.self(), ExampleCloudEventType.PRODUCT_NOTIFY_EVENT_TYPE, null)));
     }
 
-    private void handleProductEvent(Context context, CloudEvent event) {
-        state.set(fromProductEventDetails(cloudEventDataAccess.toProductEventDetails(event)));
-        notifySubscribers(context, event);
+    @OnEvent(type = ExampleCloudEventType.PRODUCT_NOTIFY_EVENT_TYPE)
+    private void handleProductNotifyEvent(Context context, CloudEvent event) {
+        if (notifyDue.get() == null) {
+            // Already notified, by a rescheduled notification
+            return;
+        }
+        notifyDue.clear();
+        notifySubscribers(context, createEventFromState());
     }
 
-    private void handleFunctionSubscriptionEvent(Context context, CloudEvent subscriptionEvent) {
-        FunctionSubscriptionDetails subscriptionDetails = cloudEventDataAccess.toFunctionSubscriptionDetails(subscriptionEvent);
+    @OnEvent(type = ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE)
+    private void handleFunctionSubscriptionEvent(Context context, CloudEvent event, FunctionSubscriptionDetails subscriptionDetails) {
         FunctionSubscriber subscriber = FunctionSubscriberUtil.subscriberFromSubscription(subscriptionDetails);
+        String subscriberId = subscriber.getSubscriberId();
+        int shards = shardCount.getOrDefault(() -> 0);
+
+        if (shards > 0 && subscriptionDetails.getAction() != FunctionSubscriptionAction.QUERY) {
+            // The subscription is kept by the subscriber's shard
+            send(context, SubscriberShards.shardAddress(context.self(), SubscriberShards.shardOf(subscriberId, shards)), toMessage(event));
+        }
+        else if (subscriptionDetails.getAction() == FunctionSubscriptionAction.UNSUBSCRIBE) {
+            int count = localSubscriberCount();
+            if (subscribers.remove(subscriber)) {
+                subscriberCount.set(count - 1);
+            }
+        }
+        else if (subscriptionDetails.getAction() == FunctionSubscriptionAction.SUBSCRIBE) {
+            int count = localSubscriberCount();
+            if (subscribers.add(subscriber)) {
+                subscriberCount.set(count + 1);
+            }
+        }
+
         if (subscriptionDetails.getAction() == FunctionSubscriptionAction.UNSUBSCRIBE) {
-            subscribers.remove(subscriber.getSubscriberId());
             return;
         }
+        notifySubscriber(context, subscriber, createEventFromState());
 
-        if (subscriptionDetails.getAction() == FunctionSubscriptionAction.SUBSCRIBE) {
-            subscribers.set(subscriber.getSubscriberId(), subscriber);
+        if (shards == 0 && localSubscriberCount() > Configuration.SUBSCRIBER_SHARD_SIZE) {
+            shardSubscribers(context);
         }
+    }
 
-        notifySubscriber(context, subscriber, createEventFromState());
+    // A shard holds more subscribers than it should, double the shards if it hasn't been done since the shard counted them
+    @OnEvent(type = ExampleCloudEventType.SUBSCRIBER_SHARD_FULL_EVENT_TYPE)
+    private void handleSubscriberShardFullEvent(Context context, SubscriberShardDetails shardDetails) {
+        int shards = shardCount.getOrDefault(() -> 0);
+        if (shardDetails.getShardCount() != shards || shards * 2 > Configuration.SUBSCRIBER_SHARDS_MAX) {
+            return;
+        }
+        getLogger().info("Resharding subscribers of {} from {} to {} shards, shard {} has {} subscribers",
+                context.self(), shards, shards * 2, shardDetails.getShard(), shardDetails.getSubscriberCount());
+        splitShards(context, shards * 2);
+    }
+
+    // Moves the subscribers from the set to 2 shards
+    private void shardSubscribers(Context context) {
+        getLogger().info("Sharding {} subscribers of {}", localSubscriberCount(), context.self());
+        splitShards(context, 2);
+
+        for (FunctionSubscriber subscriber : subscribers.removeIf(subscriberId -> true)) {
+            FunctionSubscriptionDetails subscription = FunctionSubscriberUtil.subscriptionFromSubscriber(
+                    context.self(), subscriber, FunctionSubscriptionAction.SUBSCRIBE);
+            CloudEvent subscriptionEvent = createEvent(context.self(), ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE, subscription);
+            send(context, SubscriberShards.shardAddress(context.self(), SubscriberShards.shardOf(subscriber.getSubscriberId(), 2)), toMessage(subscriptionEvent));
+        }
+        subscriberCount.set(0);
+    }
+
+    // Every shard is told the new number of shards, and the existing ones move the subscribers of the new ones to them
+    private void splitShards(Context context, int shards) {
+        shardCount.set(shards);
+        ExampleProtobuf.Envelope message = toMessage(createEvent(context.self(), ExampleCloudEventType.SUBSCRIBER_SHARD_SPLIT_EVENT_TYPE,
+                new SubscriberShardDetails.Builder().shardCount(shards).build()));
+        for (int shard = 0; shard < shards; shard++) {
+            send(context, SubscriberShards.shardAddress(context.self(), shard), message);
+        }
+    }
+
+    // The number of subscribers in the set, after moving any in the table of a product from before it to it
+    private int localSubscriberCount() {
+        Integer count = subscriberCount.get();
+        if (count == null) {
+            count = 0;
+            List<String> subscriberIds = new ArrayList<>();
+            for (Map.Entry<String, FunctionSubscriber> subscriber : tableSubscribers.entries()) {
+                if (subscribers.add(subscriber.getValue())) {
+                    count++;
+                }
+                subscriberIds.add(subscriber.getKey());
+            }
+            for (String subscriberId : subscriberIds) {
+                tableSubscribers.remove(subscriberId);
+            }
+            subscriberCount.set(count);
+        }
+        return count;
     }
 
     private void notifySubscriber(Context context, FunctionSubscriber subscriber, CloudEvent productEvent) {
-        send(context, new FunctionType(subscriber.getNamespace(), subscriber.getType()), subscriber.getId(), productEvent);
+        send(context, subscriber.getAddress(), toMessage(productEvent));
+    }
+
+    private boolean hasSubscribers() {
+        return shardCount.getOrDefault(() -> 0) > 0 || localSubscriberCount() > 0;
     }
 
+    // The event is serialized once, and the same message sent to every subscriber, or to every shard of them
     private void notifySubscribers(Context context, CloudEvent productEvent) {
-        for (String key : subscribers.keys()) {
-            FunctionSubscriber subscriber = subscribers.get(key);
-            notifySubscriber(context, subscriber, productEvent);
+        if (!hasSubscribers()) {
+            return;
+        }
+        context.metrics().counter(NOTIFICATIONS_SENT).inc();
+        ExampleProtobuf.Envelope message = toMessage(productEvent);
+        int shards = shardCount.getOrDefault(() -> 0);
+        for (int shard = 0; shard < shards; shard++) {
+            send(context, SubscriberShards.shardAddress(context.self(), shard), message);
+        }
+        if (shards == 0) {
+            subscribers.forEachAddress(subscriber -> send(context, subscriber, message));
         }
     }
 
@@ -127,14 +284,15 @@ public class ProductStatefulFunction extends AbstractStatefulFunction {
                 .description(productStateDetails.getDescription())
                 .price(productStateDetails.getPrice())
                 .availability(ProductAvailability.valueOf(productStateDetails.getAvailability().name()))
+                .category(productStateDetails.getCategory())
                 .build();
 
         CloudEvent productEvent = CloudEventBuilder.v1()
-                .withId(UUID.randomUUID().toString())
+                .withId(eventIdentity.nextId())
                 .withType(ExampleCloudEventType.PRODUCT_EVENT_TYPE)
                 .withSource(URI.create("http://stateful_functions.example.com/product-function"))
-                .withData("application/json", JsonCloudEventData.wrap(cloudEventDataAccess.getObjectMapper().valueToTree(productDetails)))
-                .withTime(OffsetDateTime.now(ZoneOffset.UTC))
+                .withData("application/json", cloudEventDataAccess.toCloudEventData(productDetails))
+                .withTime(eventIdentity.now())
                 .build();
 
         return productEvent;
@@ -0,0 +1,45 @@
+package com.example.stateful_functions.function.quarantine;
+
+import com.example.stateful_functions.egress.EgressSpecs;
+import com.example.stateful_functions.function.StatefunFunction;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.example.stateful_functions.quarantine.QuarantineReason;
+import org.apache.flink.statefun.sdk.Context;
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.apache.flink.statefun.sdk.StatefulFunction;
+
+/**
+ * Passes quarantined records on to the quarantine egress, for the router (see Quarantine).  Stateless, and not an
+ * AbstractStatefulFunction since the records are not events it could parse.
+ */
+@StatefunFunction
+public class QuarantineStatefulFunction implements StatefulFunction {
+
+    public static final String NAMESPACE = "example";
+    public static final String TYPE = "quarantine";
+    public static final FunctionType FUNCTION_TYPE = new FunctionType(NAMESPACE, TYPE);
+
+    // Instances per reason, so that a burst of bad records isn't handled by a single task
+    private static final int INSTANCES_PER_REASON = 16;
+
+    /** The id of the instance to quarantine an envelope with. */
+    public static String instanceFor(QuarantineReason reason, ExampleProtobuf.Envelope envelope) {
+        return reason.name() + "-" + Math.floorMod(envelope.getPayload().hashCode(), INSTANCES_PER_REASON);
+    }
+
+    @Override
+    public void invoke(Context context, Object o) {
+        if (!(o instanceof ExampleProtobuf.Envelope)) {
+            return;
+        }
+        ExampleProtobuf.Envelope envelope = (ExampleProtobuf.Envelope) o;
+        if (envelope.getBatchCount() > 0) {
+            for (ExampleProtobuf.Envelope batchedEnvelope : envelope.getBatchList()) {
+                context.send(EgressSpecs.QUARANTINE_ID, batchedEnvelope);
+            }
+        }
+        else {
+            context.send(EgressSpecs.QUARANTINE_ID, envelope);
+        }
+    }
+}
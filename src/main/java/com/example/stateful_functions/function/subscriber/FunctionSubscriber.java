@@ -4,22 +4,34 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.typeinfo.TypeInfo;
 import org.apache.flink.api.common.typeinfo.TypeInfoFactory;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.sdk.FunctionType;
 
 import java.lang.reflect.Type;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Parameters required to maintain a subscription by another function.
  */
 @TypeInfo(FunctionSubscriber.StatefunSubscriberTypeInfoFactory.class)
 public class FunctionSubscriber {
+
+    // Subscribers are of a handful of function types, resolved once rather than for each notification.  Namespaces
+    // and types come from subscription events, so only this many are cached and the rest are created each time.
+    private static final int MAX_CACHED_TYPES = 1024;
+    private static final Map<String, Map<String, FunctionType>> FUNCTION_TYPES = new ConcurrentHashMap<>();
+    private static final AtomicInteger CACHED_TYPES = new AtomicInteger();
+
     private String namespace;
     private String type;
     private String id;
@@ -84,6 +96,33 @@ public class FunctionSubscriber {
                 StringUtils.isNotBlank(id);
     }
 
+    /** The address of the subscriber function, to send notifications to. */
+    public Address getAddress() {
+        return new Address(functionType(namespace, type), id);
+    }
+
+    static FunctionType functionType(String namespace, String type) {
+        Map<String, FunctionType> types = FUNCTION_TYPES.get(namespace);
+        FunctionType functionType = types != null ? types.get(type) : null;
+        if (functionType != null) {
+            return functionType;
+        }
+        functionType = new FunctionType(namespace, type);
+        if (CACHED_TYPES.get() < MAX_CACHED_TYPES) {
+            FunctionType cached = FUNCTION_TYPES.computeIfAbsent(namespace, n -> new ConcurrentHashMap<>()).putIfAbsent(type, functionType);
+            if (cached != null) {
+                return cached;
+            }
+            CACHED_TYPES.incrementAndGet();
+        }
+        return functionType;
+    }
+
+    @VisibleForTesting
+    static int cachedFunctionTypes() {
+        return CACHED_TYPES.get();
+    }
+
     public String getSubscriberId() {
         return new StringBuilder(namespace)
                 .append(':')
@@ -1,7 +1,9 @@
 package com.example.stateful_functions.function.subscriber;
 
 import com.example.stateful_functions.cloudevents.data.internal.FunctionAddressDetails;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionAction;
 import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionDetails;
+import org.apache.flink.statefun.sdk.Address;
 
 import java.time.Clock;
 import java.time.LocalDateTime;
@@ -20,4 +22,22 @@ public class FunctionSubscriberUtil {
         return subscriber;
     }
 
+    // The subscription of a FunctionSubscriber from persistent state to the publisher, to pass it on to another function.
+    public static FunctionSubscriptionDetails subscriptionFromSubscriber(Address publisher, FunctionSubscriber subscriber, FunctionSubscriptionAction action) {
+        return new FunctionSubscriptionDetails.Builder()
+                .publisher(new FunctionAddressDetails.Builder()
+                        .namespace(publisher.type().namespace())
+                        .type(publisher.type().name())
+                        .id(publisher.id())
+                        .build())
+                .subscriber(new FunctionAddressDetails.Builder()
+                        .namespace(subscriber.getNamespace())
+                        .type(subscriber.getType())
+                        .id(subscriber.getId())
+                        .build())
+                .action(action)
+                .correlationId(subscriber.getCorrelationId())
+                .build();
+    }
+
 }
@@ -0,0 +1,64 @@
+package com.example.stateful_functions.function.subscriber;
+
+import org.apache.flink.api.common.typeinfo.TypeInfo;
+import org.apache.flink.api.common.typeinfo.TypeInfoFactory;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeinfo.Types;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Some of the subscribers of a SubscriberSet, packed: the namespaces and function types of the subscribers once
+ * each, and the subscribers as a byte array of (function type index, id, correlation id) entries.
+ */
+@TypeInfo(SubscriberChunk.SubscriberChunkTypeInfoFactory.class)
+public class SubscriberChunk {
+
+    private List<String> namespaces = new ArrayList<>();
+    private List<String> types = new ArrayList<>();
+    private byte[] subscribers = new byte[0];
+
+    public static class SubscriberChunkTypeInfoFactory extends TypeInfoFactory<SubscriberChunk> {
+        @Override
+        public TypeInformation<SubscriberChunk> createTypeInfo(
+                Type t, Map<String, TypeInformation<?>> genericParameters) {
+
+            return Types.POJO(SubscriberChunk.class, new HashMap<>() { {
+                put("namespaces", Types.LIST(Types.STRING));
+                put("types", Types.LIST(Types.STRING));
+                put("subscribers", Types.PRIMITIVE_ARRAY(Types.BYTE));
+            } } );
+        }
+    }
+
+    public SubscriberChunk() {
+    }
+
+    public List<String> getNamespaces() {
+        return namespaces;
+    }
+
+    public void setNamespaces(List<String> namespaces) {
+        this.namespaces = namespaces;
+    }
+
+    public List<String> getTypes() {
+        return types;
+    }
+
+    public void setTypes(List<String> types) {
+        this.types = types;
+    }
+
+    public byte[] getSubscribers() {
+        return subscribers;
+    }
+
+    public void setSubscribers(byte[] subscribers) {
+        this.subscribers = subscribers;
+    }
+}
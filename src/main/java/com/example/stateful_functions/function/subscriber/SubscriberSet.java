@@ -0,0 +1,256 @@
+package com.example.stateful_functions.function.subscriber;
+
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.apache.flink.statefun.sdk.state.PersistedTable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The subscribers of a function, kept compactly in a PersistedTable of {@link SubscriberChunk}s by the high bits
+ * of the subscriber id's hash.  A table of a FunctionSubscriber per subscriber keys every entry by
+ * "namespace:type:id", and stores the namespace, type and id again in the value with a creation time; a chunk
+ * stores each namespace and type once and packs the ids of a few hundred subscribers into one array, so there are
+ * far fewer state entries, each smaller per subscriber, and notifying the subscribers is one pass over the chunks.
+ *
+ * Adding or removing a subscriber rewrites its chunk.  The creation times of subscribers aren't kept.
+ */
+public final class SubscriberSet {
+
+    // 64 chunks: a set holds up to SUBSCRIBER_SHARD_SIZE subscribers, 10000 by default, about 160 in each chunk
+    private static final int CHUNK_BITS = 6;
+
+    private final PersistedTable<Integer, SubscriberChunk> chunks;
+
+    public SubscriberSet(PersistedTable<Integer, SubscriberChunk> chunks) {
+        this.chunks = chunks;
+    }
+
+    /** Adds the subscriber, or updates its correlation id.  Returns whether it wasn't in the set. */
+    public boolean add(FunctionSubscriber subscriber) {
+        int chunk = chunkOf(subscriber.getSubscriberId());
+        List<Entry> entries = read(chunks.get(chunk));
+        Entry entry = find(entries, subscriber.getNamespace(), subscriber.getType(), subscriber.getId());
+        if (entry == null) {
+            entries.add(new Entry(subscriber.getNamespace(), subscriber.getType(), subscriber.getId(), subscriber.getCorrelationId()));
+        }
+        else if (Objects.equals(entry.correlationId, subscriber.getCorrelationId())) {
+            return false;
+        }
+        else {
+            entry.correlationId = subscriber.getCorrelationId();
+        }
+        chunks.set(chunk, write(entries));
+        return entry == null;
+    }
+
+    /** Removes the subscriber.  Returns whether it was in the set. */
+    public boolean remove(FunctionSubscriber subscriber) {
+        int chunk = chunkOf(subscriber.getSubscriberId());
+        List<Entry> entries = read(chunks.get(chunk));
+        Entry entry = find(entries, subscriber.getNamespace(), subscriber.getType(), subscriber.getId());
+        if (entry == null) {
+            return false;
+        }
+        entries.remove(entry);
+        update(chunk, entries);
+        return true;
+    }
+
+    public boolean contains(FunctionSubscriber subscriber) {
+        List<Entry> entries = read(chunks.get(chunkOf(subscriber.getSubscriberId())));
+        return find(entries, subscriber.getNamespace(), subscriber.getType(), subscriber.getId()) != null;
+    }
+
+    /** Removes the subscribers whose subscriber ids (see FunctionSubscriber.getSubscriberId()) match, and returns them. */
+    public List<FunctionSubscriber> removeIf(Predicate<String> subscriberIds) {
+        List<FunctionSubscriber> removed = new ArrayList<>();
+        Map<Integer, List<Entry>> updated = new HashMap<>();
+        for (Map.Entry<Integer, SubscriberChunk> chunk : chunks.entries()) {
+            List<Entry> entries = read(chunk.getValue());
+            boolean changed = entries.removeIf(entry -> {
+                if (!subscriberIds.test(entry.subscriberId())) {
+                    return false;
+                }
+                removed.add(entry.toSubscriber());
+                return true;
+            });
+            if (changed) {
+                updated.put(chunk.getKey(), entries);
+            }
+        }
+        updated.forEach(this::update);
+        return removed;
+    }
+
+    /** The address of every subscriber, in one pass over the chunks. */
+    public void forEachAddress(Consumer<Address> action) {
+        for (SubscriberChunk chunk : chunks.values()) {
+            FunctionType[] functionTypes = new FunctionType[chunk.getTypes().size()];
+            for (int i = 0; i < functionTypes.length; i++) {
+                functionTypes[i] = FunctionSubscriber.functionType(chunk.getNamespaces().get(i), chunk.getTypes().get(i));
+            }
+            Reader reader = new Reader(chunk.getSubscribers());
+            while (reader.hasMore()) {
+                FunctionType functionType = functionTypes[reader.readVarint()];
+                action.accept(new Address(functionType, reader.readString()));
+                reader.skipString();
+            }
+        }
+    }
+
+    public void clear() {
+        chunks.clear();
+    }
+
+    private static int chunkOf(String subscriberId) {
+        return SubscriberShards.hash(subscriberId) >>> (Integer.SIZE - CHUNK_BITS);
+    }
+
+    private void update(int chunk, List<Entry> entries) {
+        if (entries.isEmpty()) {
+            chunks.remove(chunk);
+        }
+        else {
+            chunks.set(chunk, write(entries));
+        }
+    }
+
+    private static Entry find(List<Entry> entries, String namespace, String type, String id) {
+        for (Entry entry : entries) {
+            if (entry.id.equals(id) && entry.type.equals(type) && entry.namespace.equals(namespace)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static List<Entry> read(SubscriberChunk chunk) {
+        List<Entry> entries = new ArrayList<>();
+        if (chunk == null) {
+            return entries;
+        }
+        Reader reader = new Reader(chunk.getSubscribers());
+        while (reader.hasMore()) {
+            int functionType = reader.readVarint();
+            entries.add(new Entry(chunk.getNamespaces().get(functionType), chunk.getTypes().get(functionType),
+                    reader.readString(), reader.readString()));
+        }
+        return entries;
+    }
+
+    // The dictionary only has the function types still in use
+    private static SubscriberChunk write(List<Entry> entries) {
+        SubscriberChunk chunk = new SubscriberChunk();
+        ByteArrayOutputStream subscribers = new ByteArrayOutputStream(entries.size() * 16);
+        for (Entry entry : entries) {
+            int functionType = 0;
+            while (functionType < chunk.getTypes().size()
+                    && !(chunk.getTypes().get(functionType).equals(entry.type) && chunk.getNamespaces().get(functionType).equals(entry.namespace))) {
+                functionType++;
+            }
+            if (functionType == chunk.getTypes().size()) {
+                chunk.getNamespaces().add(entry.namespace);
+                chunk.getTypes().add(entry.type);
+            }
+            writeVarint(subscribers, functionType);
+            writeString(subscribers, entry.id);
+            writeString(subscribers, entry.correlationId);
+        }
+        chunk.setSubscribers(subscribers.toByteArray());
+        return chunk;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // Written as its length in bytes plus 1, 0 for null, and its UTF-8 bytes
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean hasMore() {
+            return position < bytes.length;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        String readString() {
+            int length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        void skipString() {
+            int length = readVarint() - 1;
+            position += Math.max(0, length);
+        }
+    }
+
+    private static final class Entry {
+        final String namespace;
+        final String type;
+        final String id;
+        String correlationId;
+
+        Entry(String namespace, String type, String id, String correlationId) {
+            this.namespace = namespace;
+            this.type = type;
+            this.id = id;
+            this.correlationId = correlationId;
+        }
+
+        String subscriberId() {
+            return namespace + ':' + type + ':' + id;
+        }
+
+        FunctionSubscriber toSubscriber() {
+            FunctionSubscriber subscriber = new FunctionSubscriber();
+            subscriber.setNamespace(namespace);
+            subscriber.setType(type);
+            subscriber.setId(id);
+            subscriber.setCorrelationId(correlationId);
+            return subscriber;
+        }
+    }
+}
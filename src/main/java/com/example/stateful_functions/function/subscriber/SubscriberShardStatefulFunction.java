@@ -0,0 +1,162 @@
+package com.example.stateful_functions.function.subscriber;
+
+import com.example.stateful_functions.Configuration;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionAction;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionDetails;
+import com.example.stateful_functions.cloudevents.data.internal.SubscriberShardDetails;
+import com.example.stateful_functions.function.AbstractStatefulFunction;
+import com.example.stateful_functions.function.BufferedValue;
+import com.example.stateful_functions.function.OnEvent;
+import com.example.stateful_functions.function.StatefunFunction;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import io.cloudevents.CloudEvent;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.sdk.Context;
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.apache.flink.statefun.sdk.annotations.Persisted;
+import org.apache.flink.statefun.sdk.state.PersistedTable;
+import org.apache.flink.statefun.sdk.state.PersistedValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * A shard of the subscribers of a publisher with too many for it to notify itself, see {@link SubscriberShards}.
+ * The publisher sends the shard the subscriptions of its subscribers, and one message per event, which the shard
+ * sends on to each of its subscribers.
+ *
+ * A shard holding more than SUBSCRIBER_SHARD_SIZE subscribers reports it to the publisher once, which may double
+ * the number of shards and tell each of them.  A shard then moves the subscribers that hash to the new shard after
+ * it.  Events and unsubscriptions the publisher sends to the new shard while the subscribers are on their way may
+ * arrive before them: such a subscriber misses that event, or stays subscribed, and subscribers ignore events of
+ * publishers they no longer use.
+ */
+@StatefunFunction
+public class SubscriberShardStatefulFunction extends AbstractStatefulFunction {
+
+    public static final String NAMESPACE = "example";
+    public static final String TYPE = "subscriber-shard";
+    public static final FunctionType FUNCTION_TYPE = new FunctionType(NAMESPACE, TYPE);
+
+    private static final Logger LOG = LoggerFactory.getLogger(SubscriberShardStatefulFunction.class);
+
+    @Override
+    protected Logger getLogger() {
+        return LOG;
+    }
+
+    @Override
+    public FunctionType getFunctionType() {
+        return FUNCTION_TYPE;
+    }
+
+    @Persisted
+    private final PersistedTable<Integer,SubscriberChunk> subscriberChunks = PersistedTable.of("subscriber-chunks", Integer.class, SubscriberChunk.class);
+
+    private final SubscriberSet subscribers = new SubscriberSet(subscriberChunks);
+
+    @Persisted
+    private final PersistedValue<Integer> persistedSubscriberCount = PersistedValue.of("subscriber-count", Integer.class);
+
+    private final BufferedValue<Integer> subscriberCount = buffered(persistedSubscriberCount);
+
+    // The number of shards, as last told by the publisher
+    @Persisted
+    private final PersistedValue<Integer> shardCount = PersistedValue.of("shard-count", Integer.class);
+
+    // The number of shards when this one last reported it was full, so that it reports once per number of shards
+    @Persisted
+    private final PersistedValue<Integer> fullReportedAt = PersistedValue.of("full-reported-at", Integer.class);
+
+    // FOR TESTING ONLY!
+    @VisibleForTesting
+    public int getSubscriberCount() {
+        return persistedSubscriberCount.getOrDefault(0);
+    }
+
+    // FOR TESTING ONLY!
+    @VisibleForTesting
+    public boolean isSubscribed(Address subscriber) {
+        FunctionSubscriber functionSubscriber = new FunctionSubscriber();
+        functionSubscriber.setNamespace(subscriber.type().namespace());
+        functionSubscriber.setType(subscriber.type().name());
+        functionSubscriber.setId(subscriber.id());
+        return subscribers.contains(functionSubscriber);
+    }
+
+    @Override
+    protected void handleEvent(Context context, CloudEvent event) {
+        switch (event.getType()) {
+            case ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE:
+            case ExampleCloudEventType.SUBSCRIBER_SHARD_SPLIT_EVENT_TYPE:
+                super.handleEvent(context, event);
+                break;
+            default:
+                // An event of the publisher
+                notifySubscribers(context, event);
+        }
+    }
+
+    @OnEvent(type = ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE)
+    private void handleFunctionSubscriptionEvent(Context context, FunctionSubscriptionDetails subscriptionDetails) {
+        FunctionSubscriber subscriber = FunctionSubscriberUtil.subscriberFromSubscription(subscriptionDetails);
+        int count = subscriberCount.getOrDefault(() -> 0);
+
+        if (subscriptionDetails.getAction() == FunctionSubscriptionAction.UNSUBSCRIBE) {
+            if (subscribers.remove(subscriber)) {
+                subscriberCount.set(count - 1);
+            }
+            return;
+        }
+
+        if (subscriptionDetails.getAction() == FunctionSubscriptionAction.SUBSCRIBE && subscribers.add(subscriber)) {
+            subscriberCount.set(count + 1);
+            reportIfFull(context);
+        }
+    }
+
+    @OnEvent(type = ExampleCloudEventType.SUBSCRIBER_SHARD_SPLIT_EVENT_TYPE)
+    private void handleSplitEvent(Context context, SubscriberShardDetails shardDetails) {
+        int count = shardDetails.getShardCount();
+        shardCount.set(count);
+
+        int shard = SubscriberShards.shardIndex(context.self().id());
+        Address publisher = SubscriberShards.publisherOf(context.self().id());
+        List<FunctionSubscriber> moved = subscribers.removeIf(subscriberId -> SubscriberShards.shardOf(subscriberId, count) != shard);
+        for (FunctionSubscriber subscriber : moved) {
+            FunctionSubscriptionDetails subscription = FunctionSubscriberUtil.subscriptionFromSubscriber(
+                    publisher, subscriber, FunctionSubscriptionAction.SUBSCRIBE);
+            CloudEvent subscriptionEvent = createEvent(context.self(), ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE, subscription);
+            send(context, SubscriberShards.shardAddress(publisher, SubscriberShards.shardOf(subscriber.getSubscriberId(), count)), toMessage(subscriptionEvent));
+        }
+        subscriberCount.set(subscriberCount.getOrDefault(() -> 0) - moved.size());
+        reportIfFull(context);
+    }
+
+    private void reportIfFull(Context context) {
+        int count = subscriberCount.getOrDefault(() -> 0);
+        int shards = shardCount.getOrDefault(0);
+        if (count <= Configuration.SUBSCRIBER_SHARD_SIZE || fullReportedAt.getOrDefault(0) == shards) {
+            return;
+        }
+        fullReportedAt.set(shards);
+
+        SubscriberShardDetails shardDetails = new SubscriberShardDetails.Builder()
+                .shard(SubscriberShards.shardIndex(context.self().id()))
+                .shardCount(shards)
+                .subscriberCount(count)
+                .build();
+        Address publisher = SubscriberShards.publisherOf(context.self().id());
+        send(context, publisher.type(), publisher.id(),
+                createEvent(context.self(), ExampleCloudEventType.SUBSCRIBER_SHARD_FULL_EVENT_TYPE, shardDetails));
+    }
+
+    // The event is serialized once, and the same message sent to every subscriber
+    private void notifySubscribers(Context context, CloudEvent event) {
+        ExampleProtobuf.Envelope message = toMessage(event);
+        subscribers.forEachAddress(subscriber -> send(context, subscriber, message));
+    }
+}
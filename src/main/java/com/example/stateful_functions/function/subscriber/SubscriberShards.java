@@ -0,0 +1,52 @@
+package com.example.stateful_functions.function.subscriber;
+
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.sdk.FunctionType;
+
+/**
+ * Where the subscribers of a publisher with too many to notify from one function instance are kept: in shards, one
+ * SubscriberShardStatefulFunction instance each, addressed by the publisher and the shard's index.  A subscriber's
+ * shard is its subscriber id's hash modulo the number of shards.
+ *
+ * The number of shards only ever doubles, so when it does each subscriber either stays in its shard or moves to
+ * the shard the old number of shards after it, and a shard only sends subscribers to the one new shard.
+ */
+public final class SubscriberShards {
+
+    private static final char SHARD_SEPARATOR = '#';
+
+    private SubscriberShards() {
+    }
+
+    /** The index of the subscriber's shard. */
+    public static int shardOf(String subscriberId, int shardCount) {
+        return Math.floorMod(hash(subscriberId), shardCount);
+    }
+
+    // Shards are by the low bits of the hash, see SubscriberSet for the high bits
+    static int hash(String subscriberId) {
+        int hash = subscriberId.hashCode();
+        // Spread the bits of ids that differ only at the end, e.g. cart-1, cart-2, ...
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    /** The address of a shard of the publisher's subscribers. */
+    public static Address shardAddress(Address publisher, int shard) {
+        String id = publisher.type().namespace() + ':' + publisher.type().name() + ':' + publisher.id() + SHARD_SEPARATOR + shard;
+        return new Address(SubscriberShardStatefulFunction.FUNCTION_TYPE, id);
+    }
+
+    /** The index of the shard with the id. */
+    public static int shardIndex(String shardId) {
+        return Integer.parseInt(shardId.substring(shardId.lastIndexOf(SHARD_SEPARATOR) + 1));
+    }
+
+    /** The publisher of the shard with the id. */
+    public static Address publisherOf(String shardId) {
+        String[] publisher = shardId.substring(0, shardId.lastIndexOf(SHARD_SEPARATOR)).split(":", 3);
+        return new Address(new FunctionType(publisher[0], publisher[1]), publisher[2]);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.stateful_functions.ingress;
+
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.flink.api.common.functions.RuntimeContext;
+import org.apache.flink.api.common.state.CheckpointListener;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable;
+import org.apache.flink.runtime.state.FunctionInitializationContext;
+import org.apache.flink.runtime.state.FunctionSnapshotContext;
+import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction;
+import org.apache.flink.streaming.api.functions.source.RichParallelSourceFunction;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps the Kinesis source to bundle its events with an EnvelopeBundler before they reach the router.
+ *
+ * Events are added to the bundler under the source's checkpoint lock, and a timer emits the bundles whose window
+ * has passed, under the same lock.  Events still in open bundles at a checkpoint have already been consumed from
+ * Kinesis, so they are kept in this function's operator state and emitted first after a restore.
+ *
+ * Lifecycle, checkpoint and type information calls are passed on to the wrapped source.
+ */
+public class BundlingSourceFunction extends RichParallelSourceFunction<ExampleProtobuf.Envelope>
+        implements CheckpointedFunction, CheckpointListener, ResultTypeQueryable<ExampleProtobuf.Envelope> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(BundlingSourceFunction.class);
+
+    private final RichParallelSourceFunction<ExampleProtobuf.Envelope> delegate;
+    private final int maxEvents;
+    private final long windowMillis;
+
+    private transient EnvelopeBundler bundler;
+    private transient ListState<byte[]> pendingState;
+    private transient List<ExampleProtobuf.Envelope> restored;
+    private transient ScheduledExecutorService timer;
+
+    public BundlingSourceFunction(RichParallelSourceFunction<ExampleProtobuf.Envelope> delegate, int maxEvents, long windowMillis) {
+        this.delegate = delegate;
+        this.maxEvents = maxEvents;
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public void setRuntimeContext(RuntimeContext runtimeContext) {
+        super.setRuntimeContext(runtimeContext);
+        delegate.setRuntimeContext(runtimeContext);
+    }
+
+    @Override
+    public void open(org.apache.flink.configuration.Configuration parameters) throws Exception {
+        delegate.open(parameters);
+    }
+
+    @Override
+    public void close() throws Exception {
+        delegate.close();
+    }
+
+    @Override
+    public void run(SourceContext<ExampleProtobuf.Envelope> sourceContext) throws Exception {
+        Object lock = sourceContext.getCheckpointLock();
+        synchronized (lock) {
+            bundler = new EnvelopeBundler(maxEvents, windowMillis);
+            if (restored != null) {
+                LOG.info("Emitting {} events bundled before the restore", restored.size());
+                restored.forEach(sourceContext::collect);
+                restored = null;
+            }
+        }
+
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "envelope-bundler-" + getRuntimeContext().getIndexOfThisSubtask());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, windowMillis / 2);
+        timer.scheduleAtFixedRate(() -> {
+            synchronized (lock) {
+                bundler.expire(System.currentTimeMillis(), sourceContext::collect);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        try {
+            delegate.run(new BundlingSourceContext(sourceContext));
+        }
+        finally {
+            timer.shutdownNow();
+            synchronized (lock) {
+                bundler.flush(sourceContext::collect);
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        delegate.cancel();
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    @Override
+    public void initializeState(FunctionInitializationContext context) throws Exception {
+        if (delegate instanceof CheckpointedFunction) {
+            ((CheckpointedFunction) delegate).initializeState(context);
+        }
+        pendingState = context.getOperatorStateStore().getListState(new ListStateDescriptor<>("bundled-envelopes", byte[].class));
+        if (context.isRestored()) {
+            restored = new ArrayList<>();
+            for (byte[] envelope : pendingState.get()) {
+                restored.add(parse(envelope));
+            }
+        }
+    }
+
+    @Override
+    public void snapshotState(FunctionSnapshotContext context) throws Exception {
+        if (delegate instanceof CheckpointedFunction) {
+            ((CheckpointedFunction) delegate).snapshotState(context);
+        }
+        pendingState.clear();
+        // Before run() starts, anything restored is still waiting to be emitted
+        List<ExampleProtobuf.Envelope> pending = bundler != null ? bundler.pending() : restored;
+        if (pending != null) {
+            for (ExampleProtobuf.Envelope envelope : pending) {
+                pendingState.add(envelope.toByteArray());
+            }
+        }
+    }
+
+    @Override
+    public void notifyCheckpointComplete(long checkpointId) throws Exception {
+        if (delegate instanceof CheckpointListener) {
+            ((CheckpointListener) delegate).notifyCheckpointComplete(checkpointId);
+        }
+    }
+
+    @Override
+    public void notifyCheckpointAborted(long checkpointId) throws Exception {
+        if (delegate instanceof CheckpointListener) {
+            ((CheckpointListener) delegate).notifyCheckpointAborted(checkpointId);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public TypeInformation<ExampleProtobuf.Envelope> getProducedType() {
+        return delegate instanceof ResultTypeQueryable ?
+                ((ResultTypeQueryable<ExampleProtobuf.Envelope>) delegate).getProducedType() :
+                TypeInformation.of(ExampleProtobuf.Envelope.class);
+    }
+
+    private static ExampleProtobuf.Envelope parse(byte[] envelope) {
+        try {
+            return ExampleProtobuf.Envelope.parseFrom(envelope);
+        }
+        catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("Unable to restore a bundled envelope", e);
+        }
+    }
+
+    // The delegate emits through this, already holding the checkpoint lock
+    private final class BundlingSourceContext implements SourceContext<ExampleProtobuf.Envelope> {
+        private final SourceContext<ExampleProtobuf.Envelope> sourceContext;
+
+        BundlingSourceContext(SourceContext<ExampleProtobuf.Envelope> sourceContext) {
+            this.sourceContext = sourceContext;
+        }
+
+        @Override
+        public void collect(ExampleProtobuf.Envelope envelope) {
+            bundler.add(envelope, System.currentTimeMillis(), sourceContext::collect);
+        }
+
+        // The job doesn't use event time, and a bundle has no single timestamp
+        @Override
+        public void collectWithTimestamp(ExampleProtobuf.Envelope envelope, long timestamp) {
+            collect(envelope);
+        }
+
+        @Override
+        public void emitWatermark(Watermark watermark) {
+            // Bundled events must not end up behind a watermark they arrived before
+            bundler.flush(sourceContext::collect);
+            sourceContext.emitWatermark(watermark);
+        }
+
+        @Override
+        public void markAsTemporarilyIdle() {
+            sourceContext.markAsTemporarilyIdle();
+        }
+
+        @Override
+        public Object getCheckpointLock() {
+            return sourceContext.getCheckpointLock();
+        }
+
+        @Override
+        public void close() {
+            sourceContext.close();
+        }
+    }
+}
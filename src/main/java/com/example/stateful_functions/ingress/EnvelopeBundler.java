@@ -0,0 +1,120 @@
+package com.example.stateful_functions.ingress;
+
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bundles consecutive ingress events for the same target into one batch envelope, so that a burst of events for
+ * a product or cart is routed once and handled in one function invocation.
+ *
+ * Events are bundled by target id, for events that have one in their headers, and a bundle only holds events of
+ * one type and content type, so it routes exactly like its events would.  An event that doesn't fit the open
+ * bundle for its target closes it first, which keeps the events for each target in order.  A bundle is emitted
+ * once it holds maxEvents events or its first event is windowMillis old, and a bundle of one is emitted as the
+ * plain event.  Events without a target id are emitted straight away.
+ *
+ * Not thread-safe; BundlingSourceFunction calls it under the source's checkpoint lock.
+ */
+public class EnvelopeBundler {
+
+    private final int maxEvents;
+    private final long windowMillis;
+
+    // Open bundles by target id, oldest first
+    private final Map<String, Bundle> bundles = new LinkedHashMap<>();
+
+    public EnvelopeBundler(int maxEvents, long windowMillis) {
+        if (maxEvents < 2) {
+            throw new IllegalArgumentException("Bundles need at least 2 events, not " + maxEvents);
+        }
+        this.maxEvents = maxEvents;
+        this.windowMillis = windowMillis;
+    }
+
+    /** Adds an event received at time now, emitting whatever it completes (or the event itself) to out. */
+    public void add(ExampleProtobuf.Envelope envelope, long now, Consumer<ExampleProtobuf.Envelope> out) {
+        if (!envelope.hasTargetId() || !envelope.hasEventType() || envelope.getBatchCount() > 0) {
+            out.accept(envelope);
+            return;
+        }
+        Bundle bundle = bundles.get(envelope.getTargetId());
+        if (bundle != null && !bundle.accepts(envelope)) {
+            bundles.remove(envelope.getTargetId());
+            out.accept(bundle.toEnvelope());
+            bundle = null;
+        }
+        if (bundle == null) {
+            bundle = new Bundle(now);
+            bundles.put(envelope.getTargetId(), bundle);
+        }
+        bundle.events.add(envelope);
+        if (bundle.events.size() >= maxEvents) {
+            bundles.remove(envelope.getTargetId());
+            out.accept(bundle.toEnvelope());
+        }
+    }
+
+    /** Emits the bundles whose window has passed at time now. */
+    public void expire(long now, Consumer<ExampleProtobuf.Envelope> out) {
+        Iterator<Bundle> openBundles = bundles.values().iterator();
+        while (openBundles.hasNext()) {
+            Bundle bundle = openBundles.next();
+            if (now - bundle.opened < windowMillis) {
+                break;
+            }
+            openBundles.remove();
+            out.accept(bundle.toEnvelope());
+        }
+    }
+
+    /** Emits every open bundle. */
+    public void flush(Consumer<ExampleProtobuf.Envelope> out) {
+        expire(Long.MAX_VALUE, out);
+    }
+
+    /** The events in the open bundles, in the order they were added per target. */
+    public List<ExampleProtobuf.Envelope> pending() {
+        List<ExampleProtobuf.Envelope> pending = new ArrayList<>();
+        for (Bundle bundle : bundles.values()) {
+            pending.addAll(bundle.events);
+        }
+        return pending;
+    }
+
+    public boolean isEmpty() {
+        return bundles.isEmpty();
+    }
+
+    private static final class Bundle {
+        private final long opened;
+        private final List<ExampleProtobuf.Envelope> events = new ArrayList<>();
+
+        Bundle(long opened) {
+            this.opened = opened;
+        }
+
+        boolean accepts(ExampleProtobuf.Envelope envelope) {
+            ExampleProtobuf.Envelope first = events.get(0);
+            return first.getEventType().equals(envelope.getEventType())
+                    && first.getContentType().equals(envelope.getContentType());
+        }
+
+        ExampleProtobuf.Envelope toEnvelope() {
+            ExampleProtobuf.Envelope first = events.get(0);
+            if (events.size() == 1) {
+                return first;
+            }
+            return first.toBuilder()
+                    .clearPayload()
+                    .clearPartitionKey()
+                    .addAllBatch(events)
+                    .build();
+        }
+    }
+}
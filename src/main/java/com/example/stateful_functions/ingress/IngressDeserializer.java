@@ -1,6 +1,17 @@
 package com.example.stateful_functions.ingress;
 
+import com.example.stateful_functions.Configuration;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.example.stateful_functions.envelope.PayloadCompression;
 import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.example.stateful_functions.quarantine.Quarantine;
+import com.example.stateful_functions.quarantine.QuarantineReason;
+import com.example.stateful_functions.quarantine.RecordValidator;
 import io.cloudevents.core.format.EventFormat;
 import io.cloudevents.core.provider.EventFormatProvider;
 import io.cloudevents.jackson.JsonFormat;
@@ -9,9 +20,10 @@ import org.apache.flink.statefun.sdk.kinesis.ingress.KinesisIngressDeserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.charset.StandardCharsets;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.DataFormatException;
 
 public class IngressDeserializer implements KinesisIngressDeserializer<ExampleProtobuf.Envelope> {
 
@@ -19,15 +31,73 @@ public class IngressDeserializer implements KinesisIngressDeserializer<ExamplePr
 
     public static final EventFormat CLOUD_EVENT_FORMAT = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
 
+    private static final ExampleCloudEventFormats CLOUD_EVENT_FORMATS =
+            new ExampleCloudEventFormats(new ExampleCloudEventJsonFormat(), new ExampleCloudEventProtobufFormat());
+
+    private static final Set<String> UNCOMPRESSED_STREAMS = uncompressedStreams(Configuration.INGRESS_DECOMPRESSION);
+
+    /**
+     * The record as an envelope in the internal format, or for records that can't be events, a quarantine envelope
+     * with the record as it was received (see Quarantine).  Records are validated before they are parsed, so bad
+     * records are quarantined without an exception being thrown.
+     */
     @Override
     public ExampleProtobuf.Envelope deserialize(IngressRecord ingressRecord) {
+        byte[] received = ingressRecord.getData();
         try {
-            return ExampleProtobuf.Envelope.newBuilder().setPayload(new String(ingressRecord.getData(), UTF_8)).build();
+            if (received == null || received.length == 0) {
+                return Quarantine.quarantined(QuarantineReason.EMPTY, received);
+            }
+            // The record data is owned by this envelope from here on, so it is wrapped rather than copied
+            byte[] record = received;
+            if (!UNCOMPRESSED_STREAMS.contains(ingressRecord.getStream())) {
+                try {
+                    record = PayloadCompression.decompress(record);
+                }
+                catch (DataFormatException e) {
+                    return Quarantine.quarantined(QuarantineReason.CORRUPT_COMPRESSION, received);
+                }
+            }
+            ExampleCloudEventFormat recordFormat = CLOUD_EVENT_FORMATS.forRecord(ingressRecord.getStream(), record);
+            boolean json = recordFormat == CLOUD_EVENT_FORMATS.json();
+            QuarantineReason invalid = json ? RecordValidator.validateJson(record) : RecordValidator.validateProtobuf(record);
+            if (invalid != null) {
+                return Quarantine.quarantined(invalid, received);
+            }
+            ExampleProtobuf.Envelope envelope = EnvelopeUtil.fromPayload(record);
+            if (!json) {
+                envelope = envelope.toBuilder().setContentType(recordFormat.getContentType()).build();
+            }
+
+            // Sniff (JSON) or read (protobuf) the routing attributes of the event into the envelope headers, and
+            // convert it to the internal format
+            EnvelopeCloudEvent event = EnvelopeCloudEvent.from(envelope, CLOUD_EVENT_FORMATS);
+            if (event == null) {
+                return Quarantine.quarantined(QuarantineReason.MISSING_ATTRIBUTES, received);
+            }
+            return EnvelopeCloudEvent.toEnvelope(event, CLOUD_EVENT_FORMATS.internal()).build();
         }
         catch (Throwable t) {
-            LOG.debug("Failed to deserialize event", t);
-            return null;
+            // Counted by reason at the router, so the cause is enough here
+            LOG.debug("Failed to deserialize record from {}: {}", ingressRecord.getStream(), t.toString());
+            return Quarantine.quarantined(QuarantineReason.DESERIALIZATION_FAILED, received);
         }
     }
-}
 
+    private static Set<String> uncompressedStreams(String decompression) {
+        Set<String> streams = new HashSet<>();
+        for (String entry : decompression.split(",")) {
+            String[] streamAndEnabled = entry.trim().split("=");
+            if (streamAndEnabled.length != 2 || !(streamAndEnabled[1].trim().equals("true") || streamAndEnabled[1].trim().equals("false"))) {
+                if (!entry.trim().isEmpty()) {
+                    LOG.warn("Ignoring ingress decompression '{}', expected <stream name>=true|false", entry);
+                }
+                continue;
+            }
+            if (streamAndEnabled[1].trim().equals("false")) {
+                streams.add(streamAndEnabled[0].trim());
+            }
+        }
+        return Collections.unmodifiableSet(streams);
+    }
+}
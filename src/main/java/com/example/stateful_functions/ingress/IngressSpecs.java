@@ -4,6 +4,7 @@ package com.example.stateful_functions.ingress;
 import com.example.stateful_functions.Configuration;
 
 import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import org.apache.flink.statefun.flink.io.datastream.SourceFunctionSpec;
 import org.apache.flink.statefun.sdk.io.IngressIdentifier;
 import org.apache.flink.statefun.sdk.io.IngressSpec;
 import org.apache.flink.statefun.sdk.kinesis.auth.AwsCredentials;
@@ -17,7 +18,7 @@ public class IngressSpecs {
             new IngressIdentifier<>(ExampleProtobuf.Envelope.class, "example", "input-ingress");
 
     private static final IngressSpec<ExampleProtobuf.Envelope> createKinesisIngress(IngressIdentifier<ExampleProtobuf.Envelope> id, String streamName) {
-        return KinesisSourceIngressBuilder.forIdentifier(id)
+        KinesisSourceIngressBuilder<ExampleProtobuf.Envelope> builder = KinesisSourceIngressBuilder.forIdentifier(id)
                 .withAwsRegion(Configuration.getAwsRegion())
                 .withAwsCredentials(AwsCredentials.fromDefaultProviderChain())
                 .withDeserializer(IngressDeserializer.class)
@@ -31,8 +32,13 @@ public class IngressSpecs {
                 .withConsumerProperty(ConsumerConfigConstants.SHARD_GETRECORDS_BACKOFF_EXPONENTIAL_CONSTANT, "1.5")
                 .withConsumerProperty(ConsumerConfigConstants.SHARD_GETRECORDS_RETRIES, "100")
                 .withConsumerProperty(ConsumerConfigConstants.SHARD_DISCOVERY_INTERVAL_MILLIS, "120000")
-                .withConsumerProperty(ConsumerConfigConstants.SHARD_USE_ADAPTIVE_READS, "true")
-                .build();
+                .withConsumerProperty(ConsumerConfigConstants.SHARD_USE_ADAPTIVE_READS, "true");
+
+        if (Configuration.INGRESS_BUNDLE_MAX_EVENTS > 1) {
+            return new SourceFunctionSpec<>(id, new BundlingSourceFunction(builder.buildSourceFunction(),
+                    Configuration.INGRESS_BUNDLE_MAX_EVENTS, Configuration.INGRESS_BUNDLE_WINDOW_MILLIS));
+        }
+        return builder.build();
 
     }
 
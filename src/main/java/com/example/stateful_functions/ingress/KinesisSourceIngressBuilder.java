@@ -193,6 +193,13 @@ public final class KinesisSourceIngressBuilder<T> {
      * @return A new {@link KinesisIngressSpec}.
      */
     public SourceFunctionSpec<T> build() {
+        return new SourceFunctionSpec<>(id, buildSourceFunction());
+    }
+
+    /**
+     * @return The Kinesis consumer a {@link #build()} spec would run, for wrapping in another source function.
+     */
+    public FlinkKinesisConsumer<T> buildSourceFunction() {
         Properties mergedProperties = new Properties();
         mergedProperties.putAll(consumerConfigProperties);
         mergedProperties.putAll(clientConfigurationProperties);
@@ -200,9 +207,8 @@ public final class KinesisSourceIngressBuilder<T> {
         mergedProperties.putAll(forAwsCredentials(awsCredentials));
         setStartupPositionProperties(mergedProperties, startupPosition);
 
-        FlinkKinesisConsumer<T> flinkKinesisConsumer = new FlinkKinesisConsumer<T>(streams,
+        return new FlinkKinesisConsumer<T>(streams,
                 new KinesisDeserializationSchemaDelegate(deserializer), mergedProperties);
-        return new SourceFunctionSpec<>(id, flinkKinesisConsumer);
     }
 
     // ========================================================================================
@@ -0,0 +1,85 @@
+package com.example.stateful_functions.logging;
+
+import com.example.stateful_functions.Configuration;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregates repeated errors, so that a burst of the same failure, e.g. every event of a type failing in a handler,
+ * is logged once in full and then counted rather than logged once per event.
+ *
+ * Errors are grouped by a key chosen by the caller, typically the function and the exception class.  The first error
+ * of a key is logged with its stack trace; the ones after it are counted, and every interval a summary of each key
+ * with errors counted is logged with the message of the last one.  A key with nothing counted in an interval is
+ * forgotten, so its next error is logged in full again.
+ */
+public final class ErrorBursts {
+
+    private static final ScheduledExecutorService SUMMARIES = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "error-burst-summaries");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Logger logger;
+    private final long intervalMillis;
+    private final Map<String, Burst> bursts = new ConcurrentHashMap<>();
+
+    /** Errors of the logger, summarized every ERROR_SUMMARY_INTERVAL_MILLIS. */
+    public ErrorBursts(Logger logger) {
+        this(logger, Configuration.ERROR_SUMMARY_INTERVAL_MILLIS);
+        SUMMARIES.scheduleWithFixedDelay(this::summarize, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Not scheduled, summarize() is called by the test
+    @VisibleForTesting
+    ErrorBursts(Logger logger, long intervalMillis) {
+        this.logger = logger;
+        this.intervalMillis = Math.max(1, intervalMillis);
+    }
+
+    /**
+     * Logs the error if it is the first of its key since the last summary, otherwise counts it.  The throwable is
+     * the last argument, as for Logger.error().
+     */
+    public void error(String key, String format, Object... arguments) {
+        Burst burst = bursts.computeIfAbsent(key, k -> new Burst());
+        if (burst.errors.getAndIncrement() == 0) {
+            logger.error(format, arguments);
+        }
+        else {
+            burst.lastArguments = arguments;
+            burst.lastFormat = format;
+        }
+    }
+
+    @VisibleForTesting
+    void summarize() {
+        for (Map.Entry<String, Burst> entry : bursts.entrySet()) {
+            Burst burst = entry.getValue();
+            long repeated = burst.errors.getAndSet(1) - 1;
+            if (repeated <= 0) {
+                bursts.remove(entry.getKey(), burst);
+                continue;
+            }
+            Object[] arguments = burst.lastArguments;
+            Object last = arguments != null && arguments.length > 0 ? arguments[arguments.length - 1] : null;
+            logger.error("{} more errors of {} in the last {} ms, the last: {}", repeated, entry.getKey(), intervalMillis,
+                    last instanceof Throwable ? last.toString() : burst.lastFormat);
+        }
+    }
+
+    private static final class Burst {
+        // Errors since the last summary, including the one logged in full
+        final AtomicLong errors = new AtomicLong();
+        volatile String lastFormat;
+        volatile Object[] lastArguments;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.stateful_functions.logging;
+
+import com.example.stateful_functions.Configuration;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which of a stream of frequent log lines, such as one per event handled, are written: one in every
+ * sampling interval, and no more than a rate per second.  Callers check {@link #sample()} before logging, so the
+ * lines not written cost a counter increment and no formatting:
+ *
+ * <pre>
+ * if (sampledLogger.sample()) {
+ *     sampledLogger.info("event function={} self={} skipped={}", name, context.self(), sampledLogger.skipped());
+ * }
+ * </pre>
+ *
+ * The rate limit is a budget per second rather than a token bucket, which is enough to keep a burst from flooding
+ * the appenders.  A logger may be shared by any number of threads.
+ */
+public final class SampledLogger {
+
+    private static final long SECOND_NANOS = 1_000_000_000L;
+
+    private final Logger logger;
+    private final long sampling;
+    private final long ratePerSecond;
+    private final LongSupplier nanoClock;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong windowStart = new AtomicLong();
+    private final AtomicLong writtenInWindow = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final ThreadLocal<Long> skippedBeforeSample = ThreadLocal.withInitial(() -> 0L);
+
+    /** A logger sampled as configured by LOG_EVENT_SAMPLING and LOG_EVENT_RATE. */
+    public SampledLogger(Logger logger) {
+        this(logger, Configuration.LOG_EVENT_SAMPLING, Configuration.LOG_EVENT_RATE, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    public SampledLogger(Logger logger, long sampling, long ratePerSecond, LongSupplier nanoClock) {
+        this.logger = logger;
+        this.sampling = Math.max(1, sampling);
+        this.ratePerSecond = ratePerSecond;
+        this.nanoClock = nanoClock;
+        windowStart.set(nanoClock.getAsLong());
+    }
+
+    public Logger getLogger() {
+        return logger;
+    }
+
+    /** Whether this line is to be written, at INFO.  A rate of 0 or less writes none. */
+    public boolean sample() {
+        if (ratePerSecond <= 0 || !logger.isInfoEnabled()) {
+            return false;
+        }
+        if (calls.getAndIncrement() % sampling != 0 || !withinRate()) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        skippedBeforeSample.set(skipped.getAndSet(0));
+        return true;
+    }
+
+    /** The number of lines skipped before the last one sampled by this thread. */
+    public long skipped() {
+        return skippedBeforeSample.get();
+    }
+
+    public void info(String format, Object... arguments) {
+        logger.info(format, arguments);
+    }
+
+    private boolean withinRate() {
+        long now = nanoClock.getAsLong();
+        long start = windowStart.get();
+        if (now - start >= SECOND_NANOS && windowStart.compareAndSet(start, now)) {
+            writtenInWindow.set(0);
+        }
+        return writtenInWindow.incrementAndGet() <= ratePerSecond;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.stateful_functions.metrics;
+
+import org.apache.flink.statefun.sdk.metrics.Metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Metrics of one kind per event type, e.g. a function's counters for each type of event it handles, named with the
+ * event type as a prefix.  StateFun scopes the metrics of a function or router to it, so together they are keyed by
+ * function type and event type.
+ *
+ * The metrics of an event type are created the first time it is seen and then found with a map lookup.  Event types
+ * come from the events, so past MAX_EVENT_TYPES they are all counted as "other" rather than registering metrics
+ * without bound.
+ *
+ * Not thread-safe: each instance is for the Metrics of one operator, which are only used from its task thread.
+ */
+public final class EventTypeMetrics<T> {
+
+    static final int MAX_EVENT_TYPES = 256;
+    static final String OTHER = "other";
+
+    private final Metrics metrics;
+    private final BiFunction<Metrics, String, T> factory;
+    private final Map<String, T> byEventType = new HashMap<>();
+
+    /** The factory creates the metrics of an event type, given the prefix for their names. */
+    public EventTypeMetrics(Metrics metrics, BiFunction<Metrics, String, T> factory) {
+        this.metrics = metrics;
+        this.factory = factory;
+    }
+
+    /** Whether these are the given metrics, which StateFun creates once per function type or router per operator. */
+    public boolean isOf(Metrics metrics) {
+        return this.metrics == metrics;
+    }
+
+    public T forEventType(String eventType) {
+        T eventTypeMetrics = byEventType.get(eventType);
+        if (eventTypeMetrics == null) {
+            String name = byEventType.size() < MAX_EVENT_TYPES ? eventType : OTHER;
+            eventTypeMetrics = byEventType.get(name);
+            if (eventTypeMetrics == null) {
+                eventTypeMetrics = factory.apply(metrics, name + ".");
+                byEventType.put(name, eventTypeMetrics);
+            }
+        }
+        return eventTypeMetrics;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.stateful_functions.metrics;
+
+import org.apache.flink.statefun.sdk.metrics.Counter;
+import org.apache.flink.statefun.sdk.metrics.Metrics;
+
+/**
+ * A latency distribution kept in counters, as the StateFun metrics API has no histograms.  Each time is counted in
+ * one of a fixed set of buckets, e.g. handle-time-le-100us for times over 10 and up to 100 microseconds, and added
+ * to a total, so that the mean and a rough percentile can be derived from the rates of the counters.
+ */
+public final class LatencyCounter {
+
+    private static final long[] BUCKET_BOUNDS_MICROS = {10, 100, 1_000, 10_000, 100_000};
+
+    private final Counter[] buckets;
+    private final Counter totalNanos;
+
+    public LatencyCounter(Metrics metrics, String name) {
+        buckets = new Counter[BUCKET_BOUNDS_MICROS.length + 1];
+        for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+            buckets[i] = metrics.counter(name + "-le-" + BUCKET_BOUNDS_MICROS[i] + "us");
+        }
+        buckets[BUCKET_BOUNDS_MICROS.length] = metrics.counter(name + "-gt-" + BUCKET_BOUNDS_MICROS[BUCKET_BOUNDS_MICROS.length - 1] + "us");
+        totalNanos = metrics.counter(name + "-total-ns");
+    }
+
+    public void record(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MICROS.length && micros > BUCKET_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].inc();
+        totalNanos.inc(nanos);
+    }
+}
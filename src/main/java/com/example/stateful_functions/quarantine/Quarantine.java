@@ -0,0 +1,71 @@
+package com.example.stateful_functions.quarantine;
+
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.example.stateful_functions.function.quarantine.QuarantineStatefulFunction;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import io.cloudevents.jackson.JsonFormat;
+import org.apache.flink.statefun.sdk.io.Router;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends records that can't be handled to the quarantine egress, with the reason, instead of dropping them.
+ *
+ * The ingress deserializer marks such records with a quarantine envelope (see quarantined()), and the router,
+ * which also quarantines events no forwarder forwards, counts them per reason and forwards them to the
+ * QuarantineStatefulFunction, as routers can't reach egresses themselves.
+ */
+public final class Quarantine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Quarantine.class);
+
+    private Quarantine() {
+    }
+
+    /** An envelope quarantining a record as it was received, e.g. from Kinesis. */
+    public static ExampleProtobuf.Envelope quarantined(QuarantineReason reason, byte[] record) {
+        return EnvelopeUtil.fromPayload(record != null ? record : new byte[0]).toBuilder()
+                .setQuarantineReason(reason.name())
+                .build();
+    }
+
+    /**
+     * An envelope quarantining an event, with its headers.  A batch is quarantined as its events.  The event is
+     * no longer as it was received, so its content type is set, to JSON if its envelope had none.
+     */
+    public static ExampleProtobuf.Envelope quarantined(QuarantineReason reason, ExampleProtobuf.Envelope envelope) {
+        ExampleProtobuf.Envelope.Builder builder = quarantinedEvent(reason, envelope);
+        for (int i = 0; i < envelope.getBatchCount(); i++) {
+            builder.setBatch(i, quarantinedEvent(reason, envelope.getBatch(i)));
+        }
+        return builder.build();
+    }
+
+    private static ExampleProtobuf.Envelope.Builder quarantinedEvent(QuarantineReason reason, ExampleProtobuf.Envelope envelope) {
+        return envelope.toBuilder()
+                .setQuarantineReason(reason.name())
+                .setContentType(envelope.hasContentType() ? envelope.getContentType() : JsonFormat.CONTENT_TYPE);
+    }
+
+    /** The reason an envelope was quarantined, or null if it wasn't. */
+    public static QuarantineReason reasonOf(ExampleProtobuf.Envelope envelope) {
+        if (!envelope.hasQuarantineReason()) {
+            return null;
+        }
+        try {
+            return QuarantineReason.valueOf(envelope.getQuarantineReason());
+        }
+        catch (IllegalArgumentException e) {
+            // From a newer version of the job
+            return QuarantineReason.DESERIALIZATION_FAILED;
+        }
+    }
+
+    /** Counts a quarantined envelope and forwards it on its way to the quarantine egress. */
+    public static void forward(QuarantineReason reason, ExampleProtobuf.Envelope envelope, Router.Downstream<ExampleProtobuf.Envelope> downstream) {
+        int records = Math.max(1, envelope.getBatchCount());
+        downstream.metrics().counter(reason.getCounterName()).inc(records);
+        LOG.debug("Quarantining {} record(s) of type {}: {}", records, envelope.hasEventType() ? envelope.getEventType() : "unknown", reason);
+        downstream.forward(QuarantineStatefulFunction.FUNCTION_TYPE, QuarantineStatefulFunction.instanceFor(reason, envelope), envelope);
+    }
+}
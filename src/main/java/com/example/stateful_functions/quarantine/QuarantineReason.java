@@ -0,0 +1,31 @@
+package com.example.stateful_functions.quarantine;
+
+import java.util.Locale;
+
+/**
+ * Why a record was quarantined rather than handled.  The name is written to the quarantine stream, and each
+ * reason has its own counter.
+ */
+public enum QuarantineReason {
+    /** The record has no bytes. */
+    EMPTY,
+    /** The record looks compressed, but doesn't decompress. */
+    CORRUPT_COMPRESSION,
+    /** The record is not a well-formed JSON object. */
+    MALFORMED_JSON,
+    /** The record is not a well-formed protobuf message. */
+    MALFORMED_PROTOBUF,
+    /** The record is well-formed, but is missing the CloudEvent attributes needed to route it. */
+    MISSING_ATTRIBUTES,
+    /** The record passed validation, but couldn't be converted to an event. */
+    DESERIALIZATION_FAILED,
+    /** No forwarder or routing rule forwarded the event: none accepts its type, or those that do found no target id in it. */
+    UNROUTED;
+
+    private final String counterName = "quarantined-" + name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+    /** The name of the counter of records quarantined for this reason, e.g. quarantined-malformed-json. */
+    public String getCounterName() {
+        return counterName;
+    }
+}
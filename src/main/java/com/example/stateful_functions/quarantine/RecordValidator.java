@@ -0,0 +1,206 @@
+package com.example.stateful_functions.quarantine;
+
+/**
+ * Cheap structural checks of ingress records, so that records that can't be events are quarantined without
+ * going through (and throwing from) the CloudEvents parsers.  Both checks are a single pass over the bytes with
+ * no allocation beyond a small nesting stack.
+ *
+ * The checks reject what is certainly broken, not everything the parsers would: a record that passes can still
+ * fail to deserialize, and is then quarantined as DESERIALIZATION_FAILED.
+ */
+public final class RecordValidator {
+
+    // CloudEvents protobuf fields id, source, spec_version and type, required by the spec
+    private static final int REQUIRED_PROTOBUF_FIELDS = 0b11110;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private RecordValidator() {
+    }
+
+    /**
+     * Checks that a record is a single JSON object: balanced braces and brackets outside of strings, strings
+     * closed, without raw control characters and with valid escapes, and nothing but whitespace after the object.
+     * Returns null if it is, otherwise the reason to quarantine it.
+     */
+    public static QuarantineReason validateJson(byte[] record) {
+        int i = skipWhitespace(record, 0);
+        if (i == record.length) {
+            return QuarantineReason.EMPTY;
+        }
+        if (record[i] != '{') {
+            return QuarantineReason.MALFORMED_JSON;
+        }
+
+        // Open containers, as the closing character expected
+        byte[] stack = new byte[16];
+        int depth = 0;
+        for (; i < record.length; i++) {
+            byte b = record[i];
+            switch (b) {
+                case '{':
+                case '[':
+                    if (depth == stack.length) {
+                        byte[] grown = new byte[depth * 2];
+                        System.arraycopy(stack, 0, grown, 0, depth);
+                        stack = grown;
+                    }
+                    stack[depth++] = (byte) (b == '{' ? '}' : ']');
+                    break;
+                case '}':
+                case ']':
+                    if (depth == 0 || stack[--depth] != b) {
+                        return QuarantineReason.MALFORMED_JSON;
+                    }
+                    if (depth == 0) {
+                        return skipWhitespace(record, i + 1) == record.length ? null : QuarantineReason.MALFORMED_JSON;
+                    }
+                    break;
+                case '"':
+                    i = endOfString(record, i + 1);
+                    if (i < 0) {
+                        return QuarantineReason.MALFORMED_JSON;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return QuarantineReason.MALFORMED_JSON;
+    }
+
+    /**
+     * Checks that a record is a well-formed protobuf message, every field within its bounds and the record ending
+     * exactly at the end of the last one, with the fields a CloudEvent must have.  Returns null if it is,
+     * otherwise the reason to quarantine it.
+     */
+    public static QuarantineReason validateProtobuf(byte[] record) {
+        if (record.length == 0) {
+            return QuarantineReason.EMPTY;
+        }
+        int fieldsSeen = 0;
+        int i = 0;
+        while (i < record.length) {
+            int tagLength = varintLength(record, i);
+            long tag = varint(record, i, tagLength);
+            if (tagLength < 0 || tag < 0) {
+                return QuarantineReason.MALFORMED_PROTOBUF;
+            }
+            i += tagLength;
+            long fieldNumber = tag >>> 3;
+            if (fieldNumber == 0) {
+                return QuarantineReason.MALFORMED_PROTOBUF;
+            }
+            switch ((int) (tag & 0x7)) {
+                case WIRE_VARINT:
+                    int valueLength = varintLength(record, i);
+                    if (valueLength < 0) {
+                        return QuarantineReason.MALFORMED_PROTOBUF;
+                    }
+                    i += valueLength;
+                    break;
+                case WIRE_FIXED64:
+                    i += 8;
+                    break;
+                case WIRE_LENGTH_DELIMITED:
+                    int lengthLength = varintLength(record, i);
+                    long length = varint(record, i, lengthLength);
+                    if (lengthLength < 0 || length < 0 || length > record.length - i - lengthLength) {
+                        return QuarantineReason.MALFORMED_PROTOBUF;
+                    }
+                    i += lengthLength + (int) length;
+                    break;
+                case WIRE_FIXED32:
+                    i += 4;
+                    break;
+                default:
+                    // Groups are long deprecated, and CloudEvents don't use them
+                    return QuarantineReason.MALFORMED_PROTOBUF;
+            }
+            if (i > record.length) {
+                return QuarantineReason.MALFORMED_PROTOBUF;
+            }
+            if (fieldNumber < 32) {
+                fieldsSeen |= 1 << fieldNumber;
+            }
+        }
+        return (fieldsSeen & REQUIRED_PROTOBUF_FIELDS) == REQUIRED_PROTOBUF_FIELDS ? null : QuarantineReason.MISSING_ATTRIBUTES;
+    }
+
+    private static int skipWhitespace(byte[] record, int i) {
+        while (i < record.length && (record[i] == ' ' || record[i] == '\t' || record[i] == '\n' || record[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    // The index of the quote closing a string starting at i, or -1 if the string is not valid
+    private static int endOfString(byte[] record, int i) {
+        while (i < record.length) {
+            byte b = record[i];
+            if (b == '"') {
+                return i;
+            }
+            if (b >= 0 && b < 0x20) {
+                return -1;
+            }
+            if (b == '\\') {
+                if (++i == record.length) {
+                    return -1;
+                }
+                switch (record[i]) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                    case 'b':
+                    case 'f':
+                    case 'n':
+                    case 'r':
+                    case 't':
+                        break;
+                    case 'u':
+                        if (i + 4 >= record.length) {
+                            return -1;
+                        }
+                        for (int h = i + 1; h <= i + 4; h++) {
+                            if (Character.digit(record[h], 16) < 0) {
+                                return -1;
+                            }
+                        }
+                        i += 4;
+                        break;
+                    default:
+                        return -1;
+                }
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    // The number of bytes of the varint at i, or -1 if it runs past the end of the record or is longer than 64 bits
+    private static int varintLength(byte[] record, int i) {
+        for (int length = 1; length <= 10 && i < record.length; length++, i++) {
+            if (record[i] >= 0) {
+                // The tenth byte holds only the top bit of a 64 bit value
+                return length < 10 || record[i] <= 1 ? length : -1;
+            }
+        }
+        return -1;
+    }
+
+    // The value of the varint of the given length at i, negative if it needs all 64 bits (or the length is -1)
+    private static long varint(byte[] record, int i, int length) {
+        if (length < 0) {
+            return -1;
+        }
+        long value = 0;
+        for (int shift = 0, end = i + length; i < end; i++, shift += 7) {
+            value |= (long) (record[i] & 0x7F) << shift;
+        }
+        return value;
+    }
+}
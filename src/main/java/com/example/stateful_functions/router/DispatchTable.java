@@ -0,0 +1,234 @@
+package com.example.stateful_functions.router;
+
+import io.cloudevents.CloudEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The forwarders for each event type, compiled from their ForwardsEvents annotations and from the RoutingRules.
+ *
+ * Exact types are looked up in a hash map and prefixes in a trie walked along the event type, and the routes
+ * found for a type are cached, so dispatching a known type is a single hash lookup however many forwarders there
+ * are.  Forwarders without the annotation are the fallback, asked through accept() for every event after the
+ * table's routes.  Each forwarder is sent an event at most once, in the order the forwarders were given.
+ *
+ * Every route counts the events it forwarded, see {@link #hits()}.  Events no forwarder forwarded are counted as
+ * unrouted, whether no route matched their type or the forwarders found no target id in them.
+ */
+public final class DispatchTable {
+
+    static final String PREFIX_WILDCARD = "*";
+    static final String PREDICATE = "predicate";
+
+    // Event types come from outside the job, so only this many are cached and the rest go through the trie
+    private static final int MAX_CACHED_TYPES = 1024;
+
+    private static final Route[] NO_ROUTES = new Route[0];
+
+    private final List<Route> routes = new ArrayList<>();
+    private final Map<String, Route[]> exactRoutes = new HashMap<>();
+    private final PrefixNode prefixRoutes = new PrefixNode();
+    private final Route[] fallbackRoutes;
+    private final Map<String, Route[]> routesByType = new ConcurrentHashMap<>();
+    private final LongAdder unrouted = new LongAdder();
+
+    public DispatchTable(List<? extends Forwarder> forwarders) {
+        Map<String, List<Route>> exact = new HashMap<>();
+        List<Route> fallback = new ArrayList<>();
+        for (int order = 0; order < forwarders.size(); order++) {
+            Forwarder forwarder = forwarders.get(order);
+            if (forwarder instanceof RoutingRule) {
+                RoutingRule rule = (RoutingRule) forwarder;
+                if (rule.isPrefix()) {
+                    prefixRoutes.insert(rule.getEventType(), 0, addRoute(rule.getEventType() + PREFIX_WILDCARD, forwarder, order));
+                }
+                else {
+                    exact.computeIfAbsent(rule.getEventType(), t -> new ArrayList<>()).add(addRoute(rule.getEventType(), forwarder, order));
+                }
+                continue;
+            }
+            ForwardsEvents forwardsEvents = forwarder.getClass().getAnnotation(ForwardsEvents.class);
+            if (forwardsEvents == null) {
+                fallback.add(addRoute(PREDICATE, forwarder, order));
+                continue;
+            }
+            if (forwardsEvents.types().length == 0 && forwardsEvents.prefixes().length == 0) {
+                throw new IllegalStateException(forwarder.getClass().getName() + " forwards no event types or prefixes");
+            }
+            for (String type : forwardsEvents.types()) {
+                exact.computeIfAbsent(type, t -> new ArrayList<>()).add(addRoute(type, forwarder, order));
+            }
+            for (String prefix : forwardsEvents.prefixes()) {
+                prefixRoutes.insert(prefix, 0, addRoute(prefix + PREFIX_WILDCARD, forwarder, order));
+            }
+        }
+        exact.forEach((type, typeRoutes) -> exactRoutes.put(type, typeRoutes.toArray(NO_ROUTES)));
+        fallbackRoutes = fallback.toArray(NO_ROUTES);
+    }
+
+    /**
+     * Sends the event to each forwarder it is routed to, and returns how many forwarded it.  A forwarder that finds
+     * no target id in the event doesn't forward it, and isn't counted.
+     */
+    public int dispatch(RoutingContext context) {
+        CloudEvent event = context.getEvent();
+        int forwarded = 0;
+        for (Route route : routesFor(event.getType())) {
+            forwarded += route.forward(context);
+        }
+        for (Route route : fallbackRoutes) {
+            if (route.forwarder.accept(event)) {
+                forwarded += route.forward(context);
+            }
+        }
+        if (forwarded == 0) {
+            unrouted.increment();
+        }
+        return forwarded;
+    }
+
+    /**
+     * The events forwarded by each route so far, keyed by "&lt;event type&gt; -&gt; &lt;forwarder&gt;".  Prefix
+     * routes end their event type in "*", and fallback routes have "predicate" as theirs.  Routing rules are
+     * named by their rule.
+     */
+    public Map<String, Long> hits() {
+        Map<String, Long> hits = new LinkedHashMap<>();
+        for (Route route : routes) {
+            hits.put(route.toString(), route.hits.sum());
+        }
+        return hits;
+    }
+
+    /** The events no forwarder forwarded. */
+    public long unrouted() {
+        return unrouted.sum();
+    }
+
+    /** The routes, in the order they were compiled. */
+    public List<String> routes() {
+        List<String> names = new ArrayList<>();
+        for (Route route : routes) {
+            names.add(route.toString());
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private Route addRoute(String key, Forwarder forwarder, int order) {
+        Route route = new Route(key, forwarder, order);
+        routes.add(route);
+        return route;
+    }
+
+    private Route[] routesFor(String eventType) {
+        Route[] cached = routesByType.get(eventType);
+        if (cached != null) {
+            return cached;
+        }
+        Route[] resolved = resolve(eventType);
+        if (routesByType.size() < MAX_CACHED_TYPES) {
+            routesByType.put(eventType, resolved);
+        }
+        return resolved;
+    }
+
+    // Exact routes first, then prefixes from the longest, so a forwarder matched more than once keeps its most
+    // specific route.  The result is in forwarder order.
+    private Route[] resolve(String eventType) {
+        List<Route> matched = new ArrayList<>(Arrays.asList(exactRoutes.getOrDefault(eventType, NO_ROUTES)));
+        List<Route[]> prefixMatches = new ArrayList<>();
+        prefixRoutes.collect(eventType, prefixMatches);
+        for (int i = prefixMatches.size() - 1; i >= 0; i--) {
+            for (Route route : prefixMatches.get(i)) {
+                if (matched.stream().noneMatch(m -> m.forwarder == route.forwarder)) {
+                    matched.add(route);
+                }
+            }
+        }
+        if (matched.isEmpty()) {
+            return NO_ROUTES;
+        }
+        matched.sort(Comparator.comparingInt(route -> route.order));
+        return matched.toArray(NO_ROUTES);
+    }
+
+    private static final class Route {
+        private final String key;
+        private final Forwarder forwarder;
+        private final int order;
+        private final LongAdder hits = new LongAdder();
+
+        Route(String key, Forwarder forwarder, int order) {
+            this.key = key;
+            this.forwarder = forwarder;
+            this.order = order;
+        }
+
+        // 1 if the forwarder forwarded the event, otherwise 0
+        int forward(RoutingContext context) {
+            if (!forwarder.forward(context)) {
+                return 0;
+            }
+            hits.increment();
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return key + " -> " + (forwarder instanceof RoutingRule ? forwarder.toString() : forwarder.getClass().getSimpleName());
+        }
+    }
+
+    // A node of the prefix trie, with the routes of the prefix that ends at it
+    private static final class PrefixNode {
+        private char[] labels = new char[0];
+        private PrefixNode[] children = new PrefixNode[0];
+        private Route[] routes = NO_ROUTES;
+
+        void insert(String prefix, int index, Route route) {
+            if (index == prefix.length()) {
+                routes = Arrays.copyOf(routes, routes.length + 1);
+                routes[routes.length - 1] = route;
+                return;
+            }
+            PrefixNode child = child(prefix.charAt(index));
+            if (child == null) {
+                child = new PrefixNode();
+                labels = Arrays.copyOf(labels, labels.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                labels[labels.length - 1] = prefix.charAt(index);
+                children[children.length - 1] = child;
+            }
+            child.insert(prefix, index + 1, route);
+        }
+
+        // Adds the routes of every prefix of the event type, shortest first
+        void collect(String eventType, List<Route[]> matches) {
+            PrefixNode node = this;
+            for (int index = 0; node != null; index++) {
+                if (node.routes.length > 0) {
+                    matches.add(node.routes);
+                }
+                node = index < eventType.length() ? node.child(eventType.charAt(index)) : null;
+            }
+        }
+
+        private PrefixNode child(char label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == label) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.stateful_functions.router;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The event types a Forwarder accepts, by exact type or by prefix.  The MessageRouter compiles these into its
+ * DispatchTable at startup and doesn't call accept() on annotated forwarders.  Forwarders without it are asked
+ * through accept() for every event.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE})
+public @interface ForwardsEvents {
+
+    /** Event types accepted as they are. */
+    String[] types() default {};
+
+    /** Prefixes of the event types accepted. */
+    String[] prefixes() default {};
+}
@@ -1,19 +1,27 @@
 package com.example.stateful_functions.router;
 
-import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.metrics.EventTypeMetrics;
 import com.example.stateful_functions.protobuf.ExampleProtobuf;
-import io.cloudevents.CloudEvent;
+import com.example.stateful_functions.quarantine.Quarantine;
+import com.example.stateful_functions.quarantine.QuarantineReason;
+import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.statefun.sdk.io.Router;
+import org.apache.flink.statefun.sdk.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 
 
 @Component
-public final class MessageRouter implements Router<ExampleProtobuf.Envelope> {
+public final class MessageRouter implements Router<ExampleProtobuf.Envelope>, InitializingBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(MessageRouter.class);
 
@@ -22,21 +30,86 @@ public final class MessageRouter implements Router<ExampleProtobuf.Envelope> {
     private List<Forwarder> forwarders;
 
     @Autowired
-    ExampleCloudEventJsonFormat cloudEventJsonFormat;
+    ExampleCloudEventFormats cloudEventFormats;
 
+    @Autowired
+    ExampleCloudEventDataAccess cloudEventDataAccess;
+
+    @Autowired
+    RoutingRules routingRules;
+
+    // Replaced when the routing rules are reloaded
+    private volatile DispatchTable dispatchTable;
+
+    // The router is shared by the ingress operators, each routing on its own task thread with its own metrics
+    private final ThreadLocal<EventTypeMetrics<RouteMetrics>> routeMetrics = new ThreadLocal<>();
+
+    public MessageRouter() {
+    }
+
+    @VisibleForTesting
+    MessageRouter(List<Forwarder> forwarders, ExampleCloudEventFormats cloudEventFormats,
+                  ExampleCloudEventDataAccess cloudEventDataAccess, RoutingRules routingRules) {
+        this.forwarders = forwarders;
+        this.cloudEventFormats = cloudEventFormats;
+        this.cloudEventDataAccess = cloudEventDataAccess;
+        this.routingRules = routingRules;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        compile(routingRules.getRules());
+        routingRules.addListener(this::compile);
+    }
+
+    // The Spring forwarders come first, then the rules from configuration
+    private void compile(List<RoutingRule> rules) {
+        List<Forwarder> routed = new ArrayList<>(forwarders);
+        routed.addAll(rules);
+        dispatchTable = new DispatchTable(routed);
+        LOG.info("Routing events by {}", dispatchTable.routes());
+    }
+
+    /** The compiled forwarder routes, with their hit counters.  The counters start over when the rules are reloaded. */
+    public DispatchTable getDispatchTable() {
+        return dispatchTable;
+    }
 
     @Override
     public void route(ExampleProtobuf.Envelope envelope, Downstream<ExampleProtobuf.Envelope> downstream) {
 
-        CloudEvent cloudEvent = cloudEventJsonFormat.deserialize(envelope.getPayload());
+        // Records the ingress couldn't deserialize arrive already quarantined
+        QuarantineReason quarantineReason = Quarantine.reasonOf(envelope);
+        if (quarantineReason != null) {
+            Quarantine.forward(quarantineReason, envelope, downstream);
+            return;
+        }
+
+        // Routing only needs the envelope headers.  If they are missing they are sniffed from the payload, which
+        // is not parsed here.
+        EnvelopeCloudEvent cloudEvent = EnvelopeCloudEvent.from(envelope, cloudEventFormats);
         if (cloudEvent == null) {
+            Quarantine.forward(QuarantineReason.MISSING_ATTRIBUTES, Quarantine.quarantined(QuarantineReason.MISSING_ATTRIBUTES, envelope), downstream);
             return;
         }
-        for (Forwarder forwarder : forwarders) {
-            if (forwarder.accept(cloudEvent)) {
-                forwarder.forward(cloudEvent, downstream);
-            }
+        long started = System.nanoTime();
+        int forwarded = dispatchTable.dispatch(new RoutingContext(cloudEvent, downstream, cloudEventFormats, cloudEventDataAccess));
+        if (forwarded == 0) {
+            Quarantine.forward(QuarantineReason.UNROUTED, Quarantine.quarantined(QuarantineReason.UNROUTED, cloudEvent.getEnvelope()), downstream);
+            return;
         }
+        RouteMetrics metrics = routeMetrics(downstream.metrics()).forEventType(cloudEvent.getType());
+        metrics.routed.inc();
+        metrics.forwarded.inc(forwarded);
+        metrics.routeTime.record(System.nanoTime() - started);
     }
-}
 
+    private EventTypeMetrics<RouteMetrics> routeMetrics(Metrics metrics) {
+        EventTypeMetrics<RouteMetrics> eventTypeMetrics = routeMetrics.get();
+        if (eventTypeMetrics == null || !eventTypeMetrics.isOf(metrics)) {
+            eventTypeMetrics = new EventTypeMetrics<>(metrics, RouteMetrics::new);
+            routeMetrics.set(eventTypeMetrics);
+        }
+        return eventTypeMetrics;
+    }
+}
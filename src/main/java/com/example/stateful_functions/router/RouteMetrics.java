@@ -0,0 +1,29 @@
+package com.example.stateful_functions.router;
+
+import com.example.stateful_functions.metrics.LatencyCounter;
+import org.apache.flink.statefun.sdk.metrics.Counter;
+import org.apache.flink.statefun.sdk.metrics.Metrics;
+
+/**
+ * The metrics MessageRouter keeps for each type of event it routes, registered through Downstream.metrics():
+ *
+ * <ul>
+ *     <li>{@code <event type>.routed}, events routed to at least one function</li>
+ *     <li>{@code <event type>.forwarded}, messages forwarded to functions, one per route taken</li>
+ *     <li>{@code <event type>.route-time-*}, the time to route an event, a LatencyCounter</li>
+ * </ul>
+ *
+ * Events that aren't routed are quarantined and counted by reason instead, see Quarantine.
+ */
+final class RouteMetrics {
+
+    final Counter routed;
+    final Counter forwarded;
+    final LatencyCounter routeTime;
+
+    RouteMetrics(Metrics metrics, String prefix) {
+        routed = metrics.counter(prefix + "routed");
+        forwarded = metrics.counter(prefix + "forwarded");
+        routeTime = new LatencyCounter(metrics, prefix + "route-time");
+    }
+}
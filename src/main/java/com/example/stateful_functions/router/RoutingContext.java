@@ -0,0 +1,117 @@
+package com.example.stateful_functions.router;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import io.cloudevents.CloudEvent;
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.apache.flink.statefun.sdk.io.Router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One event being routed, shared by every forwarder it is dispatched to.
+ *
+ * The event data decoded for a forwarder and the envelope forwarded to the functions are kept, so an event that
+ * fans out to several functions is decoded and encoded once, not once per forwarder.
+ *
+ * The event may be a batch of events for one target id (see EnvelopeBundler), which has no data of its own.
+ * Forwarders that route by the target id forward the batch as it is, others route each of its events.
+ */
+public final class RoutingContext {
+
+    private final CloudEvent event;
+    private final Router.Downstream<ExampleProtobuf.Envelope> downstream;
+    private final ExampleCloudEventFormats cloudEventFormats;
+    private final ExampleCloudEventDataAccess cloudEventDataAccess;
+
+    private Class<?> detailsClass;
+    private Object details;
+    private ExampleProtobuf.Envelope envelope;
+    private List<RoutingContext> batchedEvents;
+
+    public RoutingContext(CloudEvent event, Router.Downstream<ExampleProtobuf.Envelope> downstream,
+                          ExampleCloudEventFormats cloudEventFormats, ExampleCloudEventDataAccess cloudEventDataAccess) {
+        this.event = event;
+        this.downstream = downstream;
+        this.cloudEventFormats = cloudEventFormats;
+        this.cloudEventDataAccess = cloudEventDataAccess;
+    }
+
+    public CloudEvent getEvent() {
+        return event;
+    }
+
+    public Router.Downstream<ExampleProtobuf.Envelope> getDownstream() {
+        return downstream;
+    }
+
+    /** Whether the event is a batch of events, all with the same type and target id. */
+    public boolean isBatch() {
+        return event instanceof EnvelopeCloudEvent && ((EnvelopeCloudEvent) event).getEnvelope().getBatchCount() > 0;
+    }
+
+    /** The events of a batch, each to be routed on its own, or none if the event isn't a batch. */
+    public List<RoutingContext> batchedEvents() {
+        if (batchedEvents == null) {
+            batchedEvents = new ArrayList<>();
+            if (isBatch()) {
+                for (ExampleProtobuf.Envelope batched : ((EnvelopeCloudEvent) event).getEnvelope().getBatchList()) {
+                    EnvelopeCloudEvent batchedEvent = EnvelopeCloudEvent.from(batched, cloudEventFormats);
+                    if (batchedEvent != null) {
+                        batchedEvents.add(new RoutingContext(batchedEvent, downstream, cloudEventFormats, cloudEventDataAccess));
+                    }
+                }
+            }
+        }
+        return batchedEvents;
+    }
+
+    /**
+     * The event data decoded as detailsClass, or null if the event has no data, as for a batch.  The last details
+     * decoded are kept, as forwarders of the same event almost always ask for the same class.
+     */
+    public <T> T details(Class<T> detailsClass) {
+        if (isBatch()) {
+            return null;
+        }
+        if (this.detailsClass != detailsClass) {
+            details = cloudEventDataAccess.toDetails(event, detailsClass);
+            this.detailsClass = detailsClass;
+        }
+        return detailsClass.cast(details);
+    }
+
+    /** The target id from the envelope headers if present, otherwise the id of the event data decoded as detailsClass. */
+    public <T> String targetId(Class<T> detailsClass, Function<T, String> idOf) {
+        String targetId = EnvelopeCloudEvent.targetId(event);
+        if (targetId != null) {
+            return targetId;
+        }
+        T eventDetails = details(detailsClass);
+        return eventDetails != null ? idOf.apply(eventDetails) : null;
+    }
+
+    /**
+     * The envelope the event is forwarded in.  The envelope it arrived in is passed on as-is, unless it still
+     * needs converting to the internal format, which happens once however many functions it goes to.
+     */
+    public ExampleProtobuf.Envelope envelope() {
+        if (envelope == null) {
+            envelope = EnvelopeCloudEvent.toEnvelope(event, cloudEventFormats.internal()).build();
+        }
+        return envelope;
+    }
+
+    /** Forwards the event to the function instance, and returns true, or returns false if there is no id. */
+    public boolean forward(FunctionType functionType, String id) {
+        if (id == null) {
+            return false;
+        }
+        downstream.forward(functionType, id, envelope());
+        return true;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.stateful_functions.router;
+
+import com.example.stateful_functions.cloudevents.TargetKeyPaths;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.cloudevents.CloudEvent;
+import org.apache.flink.statefun.sdk.FunctionType;
+
+import java.util.List;
+
+/**
+ * A routing rule from configuration, compiled: events of a type (or a type prefix) go to a function type, with
+ * the id found at a key path in the event data.  See RoutingRules for the syntax.
+ *
+ * Rules are forwarders the DispatchTable indexes like annotated ones.  The key path is compiled to a JSON
+ * pointer, and when it is the configured target key path of the event type the id comes from the envelope
+ * headers instead, without decoding the data.  A batch is forwarded as it is by such a rule, and as its events,
+ * each to the id in its own data, by others.
+ */
+public final class RoutingRule implements Forwarder {
+
+    private final String eventType;
+    private final boolean prefix;
+    private final FunctionType functionType;
+    private final List<String> dataPath;
+    private final JsonPointer idPointer;
+    private final String spec;
+
+    RoutingRule(String eventType, boolean prefix, FunctionType functionType, List<String> dataPath, String spec) {
+        this.eventType = eventType;
+        this.prefix = prefix;
+        this.functionType = functionType;
+        this.dataPath = dataPath;
+        this.spec = spec;
+        StringBuilder pointer = new StringBuilder();
+        for (String field : dataPath) {
+            pointer.append('/').append(field.replace("~", "~0").replace("/", "~1"));
+        }
+        this.idPointer = JsonPointer.compile(pointer.toString());
+    }
+
+    /** The event type matched, or the prefix of the types if isPrefix(). */
+    public String getEventType() {
+        return eventType;
+    }
+
+    public boolean isPrefix() {
+        return prefix;
+    }
+
+    public FunctionType getFunctionType() {
+        return functionType;
+    }
+
+    @Override
+    public boolean accept(CloudEvent event) {
+        return prefix ? event.getType().startsWith(eventType) : event.getType().equals(eventType);
+    }
+
+    @Override
+    public boolean forward(RoutingContext context) {
+        // A batch is bundled by the target id in the headers, so with another key path its events may have other targets
+        if (context.isBatch() && !isTargetKeyPath(context.getEvent())) {
+            boolean forwarded = false;
+            for (RoutingContext batched : context.batchedEvents()) {
+                forwarded |= batched.forward(functionType, targetId(batched));
+            }
+            return forwarded;
+        }
+        return context.forward(functionType, targetId(context));
+    }
+
+    private boolean isTargetKeyPath(CloudEvent event) {
+        return dataPath.equals(TargetKeyPaths.forType(event.getType()));
+    }
+
+    private String targetId(RoutingContext context) {
+        CloudEvent event = context.getEvent();
+        String headerId = EnvelopeCloudEvent.targetId(event);
+        if (headerId != null && isTargetKeyPath(event)) {
+            return headerId;
+        }
+        JsonNode data = context.details(JsonNode.class);
+        if (data == null) {
+            return null;
+        }
+        JsonNode id = data.at(idPointer);
+        return id.isValueNode() && !id.isNull() ? id.asText() : null;
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.stateful_functions.router;
+
+import com.example.stateful_functions.Configuration;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Routing rules declared in configuration rather than as Forwarder classes, compiled to RoutingRules.
+ *
+ * A rule is &lt;event type&gt;=&lt;namespace&gt;/&lt;function type&gt;@data.&lt;field&gt;[.&lt;field&gt;...], e.g.
+ * "example.product=example/product-audit@data.id".  An event type ending in * matches by prefix, and several rules
+ * may match the same type.  Rules are read from Configuration.ROUTING_RULES, comma separated, and from the file
+ * Configuration.ROUTING_RULES_FILE, one per line with # comments.  Invalid rules are logged and skipped.
+ *
+ * With Configuration.ROUTING_RULES_WATCH the file is watched, and the listeners (the MessageRouter) are given
+ * the rules again whenever it changes.
+ */
+@Component
+public class RoutingRules implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RoutingRules.class);
+
+    private static final String DATA = "data";
+
+    private final String inlineRules;
+    private final Path rulesFile;
+    private final boolean watch;
+
+    private final List<Consumer<List<RoutingRule>>> listeners = new CopyOnWriteArrayList<>();
+    private volatile List<RoutingRule> rules = Collections.emptyList();
+    private WatchService watchService;
+
+    public RoutingRules() {
+        this(Configuration.ROUTING_RULES,
+                Configuration.ROUTING_RULES_FILE.isEmpty() ? null : Paths.get(Configuration.ROUTING_RULES_FILE),
+                Configuration.ROUTING_RULES_WATCH);
+    }
+
+    @VisibleForTesting
+    public RoutingRules(String inlineRules, Path rulesFile, boolean watch) {
+        this.inlineRules = inlineRules;
+        this.rulesFile = rulesFile;
+        this.watch = watch;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        reload();
+        if (watch && rulesFile != null) {
+            startWatching();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    public List<RoutingRule> getRules() {
+        return rules;
+    }
+
+    /** Adds a listener given the rules each time they are reloaded. */
+    public void addListener(Consumer<List<RoutingRule>> listener) {
+        listeners.add(listener);
+    }
+
+    /** Reads and compiles the rules again, and passes them to the listeners.  Keeps the current rules if the file can't be read. */
+    public void reload() {
+        List<String> entries = new ArrayList<>(Arrays.asList(inlineRules.split(",")));
+        if (rulesFile != null) {
+            try {
+                entries.addAll(Files.readAllLines(rulesFile, StandardCharsets.UTF_8));
+            }
+            catch (IOException e) {
+                LOG.error("Unable to read routing rules from {}, keeping the {} current rules", rulesFile, rules.size(), e);
+                return;
+            }
+        }
+        rules = compile(entries);
+        LOG.info("Loaded routing rules {}", rules);
+        for (Consumer<List<RoutingRule>> listener : listeners) {
+            listener.accept(rules);
+        }
+    }
+
+    @VisibleForTesting
+    static List<RoutingRule> compile(List<String> entries) {
+        List<RoutingRule> compiled = new ArrayList<>();
+        for (String entry : entries) {
+            String rule = entry.trim();
+            if (rule.isEmpty() || rule.startsWith("#")) {
+                continue;
+            }
+            RoutingRule routingRule = compile(rule);
+            if (routingRule == null) {
+                LOG.warn("Ignoring routing rule '{}', expected <event type>=<namespace>/<function type>@data.<field>[.<field>...]", rule);
+                continue;
+            }
+            compiled.add(routingRule);
+        }
+        return Collections.unmodifiableList(compiled);
+    }
+
+    private static RoutingRule compile(String rule) {
+        int equals = rule.indexOf('=');
+        int slash = rule.indexOf('/', equals + 1);
+        int at = rule.indexOf('@', slash + 1);
+        if (equals <= 0 || slash < 0 || at < 0) {
+            return null;
+        }
+        String eventType = rule.substring(0, equals).trim();
+        String namespace = rule.substring(equals + 1, slash).trim();
+        String type = rule.substring(slash + 1, at).trim();
+        List<String> path = Arrays.asList(rule.substring(at + 1).trim().split("\\."));
+        if (namespace.isEmpty() || type.isEmpty() || path.size() < 2 || !DATA.equals(path.get(0)) || path.contains("")) {
+            return null;
+        }
+        boolean prefix = eventType.endsWith("*");
+        return new RoutingRule(prefix ? eventType.substring(0, eventType.length() - 1) : eventType, prefix,
+                new FunctionType(namespace, type), Collections.unmodifiableList(path.subList(1, path.size())), rule);
+    }
+
+    private void startWatching() throws IOException {
+        Path directory = rulesFile.toAbsolutePath().getParent();
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= rulesFile.getFileName().equals(event.context());
+                    }
+                    key.reset();
+                    if (changed) {
+                        reload();
+                    }
+                }
+            }
+            catch (InterruptedException | ClosedWatchServiceException e) {
+                LOG.info("Stopped watching {}", rulesFile);
+            }
+        }, "routing-rules-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        LOG.info("Watching {} for routing rule changes", rulesFile);
+    }
+}
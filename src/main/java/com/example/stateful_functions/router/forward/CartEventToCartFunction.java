@@ -1,24 +1,20 @@
 package com.example.stateful_functions.router.forward;
 
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
 import com.example.stateful_functions.cloudevents.data.CartProductEventDetails;
 import com.example.stateful_functions.function.cart.CartStatefulFunction;
-import com.example.stateful_functions.protobuf.ExampleProtobuf;
 import com.example.stateful_functions.router.AbstractForwarder;
-import io.cloudevents.CloudEvent;
-import org.apache.flink.statefun.sdk.io.Router;
+import com.example.stateful_functions.router.ForwardsEvents;
+import com.example.stateful_functions.router.RoutingContext;
 import org.springframework.stereotype.Component;
 
 @Component
+@ForwardsEvents(prefixes = ExampleCloudEventType.CART_EVENT_TYPE_PREFIX)
 public class CartEventToCartFunction extends AbstractForwarder {
 
     @Override
-    public boolean accept(CloudEvent event) {
-        return event.getType().startsWith("example.cart-");
-    }
-
-    @Override
-    public void forward(CloudEvent event, Router.Downstream<ExampleProtobuf.Envelope> downstream) {
-        CartProductEventDetails cartProductEventDetails = cloudEventDataAccess.toCartProductEventDetails(event);
-        forward(downstream, CartStatefulFunction.FUNCTION_TYPE, cartProductEventDetails.getCartId(), event);
+    public boolean forward(RoutingContext context) {
+        String cartId = context.targetId(CartProductEventDetails.class, CartProductEventDetails::getCartId);
+        return context.forward(CartStatefulFunction.FUNCTION_TYPE, cartId);
     }
 }
@@ -1,24 +1,20 @@
 package com.example.stateful_functions.router.forward;
 
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
 import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
 import com.example.stateful_functions.function.product.ProductStatefulFunction;
-import com.example.stateful_functions.protobuf.ExampleProtobuf;
 import com.example.stateful_functions.router.AbstractForwarder;
-import io.cloudevents.CloudEvent;
-import org.apache.flink.statefun.sdk.io.Router;
+import com.example.stateful_functions.router.ForwardsEvents;
+import com.example.stateful_functions.router.RoutingContext;
 import org.springframework.stereotype.Component;
 
 @Component
+@ForwardsEvents(types = ExampleCloudEventType.PRODUCT_EVENT_TYPE)
 public class ProductEventToProductFunction extends AbstractForwarder {
 
     @Override
-    public boolean accept(CloudEvent event) {
-        return "example.product".equals(event.getType());
-    }
-
-    @Override
-    public void forward(CloudEvent event, Router.Downstream<ExampleProtobuf.Envelope> downstream) {
-        ProductEventDetails productEventDetails = cloudEventDataAccess.toProductEventDetails(event);
-        forward(downstream, ProductStatefulFunction.FUNCTION_TYPE, productEventDetails.getId(), event);
+    public boolean forward(RoutingContext context) {
+        String productId = context.targetId(ProductEventDetails.class, ProductEventDetails::getId);
+        return context.forward(ProductStatefulFunction.FUNCTION_TYPE, productId);
     }
 }
@@ -0,0 +1,88 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.cloudevents.data.ProductAvailability;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.CloudEventUtils;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.core.data.BytesCloudEventData;
+import io.cloudevents.jackson.JsonCloudEventData;
+import io.cloudevents.jackson.PojoCloudEventDataMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding and encoding event data with a new PojoCloudEventDataMapper and a JsonNode tree per event (mapper, tree)
+ * against the cached ObjectReader and ObjectWriter in ExampleCloudEventDataAccess (reader, writer).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventDataBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ExampleCloudEventDataAccess cloudEventDataAccess;
+    private ProductEventDetails productDetails;
+    private CloudEvent productEvent;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new ObjectMapper();
+        cloudEventDataAccess = new ExampleCloudEventDataAccess(objectMapper);
+
+        productDetails = new ProductEventDetails.Builder()
+                .id(UUID.randomUUID().toString())
+                .title("Widget")
+                .description("Something you should definitely buy!")
+                .price(BigDecimal.valueOf(4200L, 2))
+                .availability(ProductAvailability.IN_STOCK)
+                .build();
+
+        // Data as it arrives in an event in the internal format
+        productEvent = CloudEventBuilder.v1()
+                .withId(UUID.randomUUID().toString())
+                .withType(ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+                .withSource(URI.create("http://example.com/product-service"))
+                .withData("application/json", BytesCloudEventData.wrap(objectMapper.writeValueAsBytes(productDetails)))
+                .build();
+    }
+
+    @Benchmark
+    public ProductEventDetails decodeMapper() {
+        return CloudEventUtils.mapData(productEvent, PojoCloudEventDataMapper.from(objectMapper, ProductEventDetails.class)).getValue();
+    }
+
+    @Benchmark
+    public ProductEventDetails decodeReader() {
+        return cloudEventDataAccess.toProductEventDetails(productEvent);
+    }
+
+    @Benchmark
+    public byte[] encodeTree() {
+        return JsonCloudEventData.wrap(objectMapper.valueToTree(productDetails)).toBytes();
+    }
+
+    @Benchmark
+    public byte[] encodeWriter() {
+        return cloudEventDataAccess.toCloudEventData(productDetails).toBytes();
+    }
+}
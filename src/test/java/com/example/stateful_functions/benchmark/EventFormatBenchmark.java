@@ -0,0 +1,97 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionAddressDetails;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionAction;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.jackson.JsonCloudEventData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of a subscription event, the most common function to function message, in each of the
+ * event formats.  The serialized sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventFormatBenchmark {
+
+    @Param({"json", "protobuf"})
+    public String format;
+
+    private ExampleCloudEventFormat cloudEventFormat;
+    private ExampleCloudEventDataAccess cloudEventDataAccess;
+    private CloudEvent subscriptionEvent;
+    private ByteString serializedEvent;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        cloudEventFormat = "json".equals(format) ? new ExampleCloudEventJsonFormat() : new ExampleCloudEventProtobufFormat();
+        cloudEventDataAccess = new ExampleCloudEventDataAccess(objectMapper);
+
+        FunctionSubscriptionDetails subscriptionDetails = new FunctionSubscriptionDetails.Builder()
+                .publisher(new FunctionAddressDetails.Builder()
+                        .namespace("com.example")
+                        .type("product")
+                        .id(UUID.randomUUID().toString())
+                        .build())
+                .subscriber(new FunctionAddressDetails.Builder()
+                        .namespace("com.example")
+                        .type("cart")
+                        .id(UUID.randomUUID().toString())
+                        .build())
+                .action(FunctionSubscriptionAction.SUBSCRIBE)
+                .correlationId(UUID.randomUUID().toString())
+                .build();
+
+        subscriptionEvent = CloudEventBuilder.v1()
+                .withId(UUID.randomUUID().toString())
+                .withType(ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE)
+                .withSource(URI.create("http://stateful_functions.example.com/com.example.cart/" + UUID.randomUUID()))
+                .withData("application/json", JsonCloudEventData.wrap(objectMapper.valueToTree(subscriptionDetails)))
+                .withTime(OffsetDateTime.now(ZoneOffset.UTC))
+                .build();
+
+        serializedEvent = cloudEventFormat.serialize(subscriptionEvent);
+        System.out.println(format + " subscription event: " + serializedEvent.size() + " bytes");
+    }
+
+    @Benchmark
+    public ByteString encode() {
+        return cloudEventFormat.serialize(subscriptionEvent);
+    }
+
+    @Benchmark
+    public FunctionSubscriptionDetails decode() {
+        CloudEvent event = cloudEventFormat.deserialize(serializedEvent);
+        return cloudEventDataAccess.toFunctionSubscriptionDetails(event);
+    }
+}
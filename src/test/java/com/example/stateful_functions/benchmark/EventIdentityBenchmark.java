@@ -0,0 +1,53 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.cloudevents.identity.EventIdentity;
+import com.example.stateful_functions.cloudevents.identity.MonotonicEventIdentity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The id and time of a new event from UUID.randomUUID() and OffsetDateTime.now() (jdk), against the
+ * MonotonicEventIdentity and its CachedClock (monotonic, cached).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventIdentityBenchmark {
+
+    private final EventIdentity eventIdentity = new MonotonicEventIdentity();
+
+    @Benchmark
+    public String jdkId() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String monotonicId() {
+        return eventIdentity.nextId();
+    }
+
+    @Benchmark
+    public OffsetDateTime jdkTime() {
+        return OffsetDateTime.now(ZoneOffset.UTC);
+    }
+
+    @Benchmark
+    public OffsetDateTime cachedTime() {
+        return eventIdentity.now();
+    }
+}
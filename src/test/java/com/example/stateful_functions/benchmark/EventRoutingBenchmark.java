@@ -0,0 +1,120 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.cloudevents.data.ProductAvailability;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.jackson.JsonCloudEventData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the work done for one product event between the Kinesis record and the product function.
+ *
+ * reparse: what the job did before the envelope carried headers - the router parses the payload and decodes the
+ * data to find the product id, serializes the event again, and the function parses and decodes it again.
+ *
+ * headers: the ingress parses the payload once to set the headers and converts it to the internal format, the
+ * router dispatches on the headers and forwards the same envelope, and the function parses the payload when it
+ * decodes the data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventRoutingBenchmark {
+
+    private ExampleCloudEventJsonFormat cloudEventJsonFormat;
+    private ExampleCloudEventFormats cloudEventFormats;
+    private ExampleCloudEventDataAccess cloudEventDataAccess;
+    private byte[] record;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        cloudEventJsonFormat = new ExampleCloudEventJsonFormat();
+        cloudEventFormats = new ExampleCloudEventFormats(cloudEventJsonFormat, new ExampleCloudEventProtobufFormat());
+        cloudEventDataAccess = new ExampleCloudEventDataAccess(objectMapper);
+
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            description.append("Something you should definitely buy! ");
+        }
+        ProductEventDetails productDetails = new ProductEventDetails.Builder()
+                .id(UUID.randomUUID().toString())
+                .title("Widget")
+                .description(description.toString())
+                .price(BigDecimal.valueOf(4200L, 2))
+                .availability(ProductAvailability.IN_STOCK)
+                .build();
+
+        CloudEvent productEvent = CloudEventBuilder.v1()
+                .withId(UUID.randomUUID().toString())
+                .withType(ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+                .withSource(URI.create("http://example.com/product-service"))
+                .withData("application/json", JsonCloudEventData.wrap(objectMapper.valueToTree(productDetails)))
+                .withTime(OffsetDateTime.now(ZoneOffset.UTC))
+                .build();
+
+        record = EnvelopeUtil.unsafeBytes(cloudEventJsonFormat.serialize(productEvent));
+    }
+
+    @Benchmark
+    public ProductEventDetails reparse() {
+        ExampleProtobuf.Envelope ingressEnvelope = EnvelopeUtil.fromPayload(record);
+
+        // router
+        CloudEvent routedEvent = cloudEventJsonFormat.deserialize(ingressEnvelope.getPayload());
+        String productId = cloudEventDataAccess.toProductEventDetails(routedEvent).getId();
+        ExampleProtobuf.Envelope forwardedEnvelope = ExampleProtobuf.Envelope.newBuilder()
+                .setPayload(cloudEventJsonFormat.serialize(routedEvent))
+                .build();
+
+        // function
+        CloudEvent event = cloudEventJsonFormat.deserialize(forwardedEnvelope.getPayload());
+        ProductEventDetails details = cloudEventDataAccess.toProductEventDetails(event);
+        return productId.equals(details.getId()) ? details : null;
+    }
+
+    @Benchmark
+    public ProductEventDetails headers() {
+        EnvelopeCloudEvent ingressEvent = EnvelopeCloudEvent.from(EnvelopeUtil.fromPayload(record), cloudEventFormats);
+        ExampleProtobuf.Envelope ingressEnvelope = EnvelopeCloudEvent.toEnvelope(ingressEvent, cloudEventFormats.internal()).build();
+
+        // router
+        CloudEvent routedEvent = EnvelopeCloudEvent.from(ingressEnvelope, cloudEventFormats);
+        String productId = EnvelopeCloudEvent.targetId(routedEvent);
+        ExampleProtobuf.Envelope forwardedEnvelope = ((EnvelopeCloudEvent) routedEvent).getEnvelope();
+
+        // function
+        CloudEvent event = EnvelopeCloudEvent.from(forwardedEnvelope, cloudEventFormats);
+        ProductEventDetails details = cloudEventDataAccess.toProductEventDetails(event);
+        return productId.equals(details.getId()) ? details : null;
+    }
+}
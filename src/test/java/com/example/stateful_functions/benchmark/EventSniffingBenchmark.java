@@ -0,0 +1,93 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.cloudevents.data.ProductAvailability;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.example.stateful_functions.envelope.JsonEventSniffer;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting the routing attributes of a product event from JSON by parsing the whole event and decoding its data
+ * (parse), against reading only the attributes and the target key with the JsonEventSniffer (sniff).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventSniffingBenchmark {
+
+    @Param({"40", "4000"})
+    public int descriptionLength;
+
+    private ExampleCloudEventJsonFormat cloudEventJsonFormat;
+    private ExampleCloudEventDataAccess cloudEventDataAccess;
+    private byte[] record;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        cloudEventJsonFormat = new ExampleCloudEventJsonFormat();
+        cloudEventDataAccess = new ExampleCloudEventDataAccess(objectMapper);
+
+        StringBuilder description = new StringBuilder();
+        while (description.length() < descriptionLength) {
+            description.append("Something you should definitely buy! ");
+        }
+        ProductEventDetails productDetails = new ProductEventDetails.Builder()
+                .id(UUID.randomUUID().toString())
+                .title("Widget")
+                .description(description.substring(0, descriptionLength))
+                .price(BigDecimal.valueOf(4200L, 2))
+                .availability(ProductAvailability.IN_STOCK)
+                .build();
+
+        CloudEvent productEvent = CloudEventBuilder.v1()
+                .withId(UUID.randomUUID().toString())
+                .withType(ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+                .withSource(URI.create("http://example.com/product-service"))
+                .withData("application/json", cloudEventDataAccess.toCloudEventData(productDetails))
+                .withTime(OffsetDateTime.now(ZoneOffset.UTC))
+                .build();
+
+        record = EnvelopeUtil.unsafeBytes(cloudEventJsonFormat.serialize(productEvent));
+    }
+
+    @Benchmark
+    public String parse() {
+        CloudEvent event = cloudEventJsonFormat.deserialize(record);
+        return event.getType() + cloudEventDataAccess.toProductEventDetails(event).getId();
+    }
+
+    @Benchmark
+    public String sniff() {
+        ExampleProtobuf.Envelope.Builder builder = ExampleProtobuf.Envelope.newBuilder();
+        JsonEventSniffer.setHeaders(builder, record);
+        return builder.getEventType() + builder.getTargetId();
+    }
+}
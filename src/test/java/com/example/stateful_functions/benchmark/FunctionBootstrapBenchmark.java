@@ -0,0 +1,59 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.SpringModule;
+import com.example.stateful_functions.function.FunctionProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.SpringProperties;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the job does at startup on every task manager, in a fresh JVM each time as it is on a restart or rescale:
+ * finding the function classes (functionProvider) and starting the whole application context (applicationContext),
+ * from the generated registry and component index (registry) or by scanning the classpath (scan).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class FunctionBootstrapBenchmark {
+
+    @Param({FunctionProvider.REGISTRY, FunctionProvider.SCAN})
+    private String discovery;
+
+    @Setup
+    public void setup() {
+        System.setProperty("FUNCTION_DISCOVERY", discovery);
+        if (FunctionProvider.SCAN.equals(discovery)) {
+            SpringProperties.setFlag("spring.index.ignore");
+        }
+    }
+
+    @Benchmark
+    public Map<?, ?> functionProvider() throws Exception {
+        FunctionProvider functionProvider = new FunctionProvider(discovery);
+        functionProvider.afterPropertiesSet();
+        return functionProvider.getFunctionsByType();
+    }
+
+    @Benchmark
+    public Object applicationContext() {
+        try (AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext(SpringModule.class)) {
+            return applicationContext.getBean(FunctionProvider.class);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.SpringModule;
+import com.example.stateful_functions.function.FunctionProvider;
+import com.example.stateful_functions.function.product.ProductStatefulFunction;
+import org.apache.flink.statefun.sdk.StatefulFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating a product function instance, as statefun asks the FunctionProvider to when a task starts: as a prototype
+ * bean from the application context (applicationContext, as FunctionProvider did), or with the FunctionFactory it
+ * resolves once per function type (functionProvider).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FunctionInstantiationBenchmark {
+
+    private AnnotationConfigApplicationContext applicationContext;
+    private FunctionProvider functionProvider;
+
+    @Setup
+    public void setup() {
+        applicationContext = new AnnotationConfigApplicationContext(SpringModule.class);
+        functionProvider = applicationContext.getBean(FunctionProvider.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public Object applicationContext() {
+        return applicationContext.getBean(ProductStatefulFunction.class);
+    }
+
+    @Benchmark
+    public StatefulFunction functionProvider() {
+        return functionProvider.functionOfType(ProductStatefulFunction.FUNCTION_TYPE);
+    }
+}
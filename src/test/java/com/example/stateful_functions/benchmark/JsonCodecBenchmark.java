@@ -0,0 +1,87 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.cloudevents.codec.JsonCodec;
+import com.example.stateful_functions.cloudevents.codec.JsonCodecs;
+import com.example.stateful_functions.cloudevents.data.CartItemStatusDetails;
+import com.example.stateful_functions.cloudevents.data.CartStatusEventDetails;
+import com.example.stateful_functions.cloudevents.data.ProductAvailability;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The generated CartStatusEventDetails codec (codec) against a cached databind ObjectReader and ObjectWriter
+ * (databind), for a cart of ten items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    private ObjectReader reader;
+    private ObjectWriter writer;
+    private JsonCodec<CartStatusEventDetails> codec;
+    private CartStatusEventDetails cartStatus;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        reader = objectMapper.readerFor(CartStatusEventDetails.class);
+        writer = objectMapper.writerFor(CartStatusEventDetails.class);
+        codec = JsonCodecs.forType(CartStatusEventDetails.class);
+
+        List<CartItemStatusDetails> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(new CartItemStatusDetails.Builder()
+                    .productId(UUID.randomUUID().toString())
+                    .originPrice(BigDecimal.valueOf(4200L + i, 2))
+                    .currentPrice(BigDecimal.valueOf(4242L + i, 2))
+                    .quantity(i + 1)
+                    .availability(ProductAvailability.IN_STOCK)
+                    .build());
+        }
+        cartStatus = new CartStatusEventDetails(UUID.randomUUID().toString(), items);
+        json = writer.writeValueAsBytes(cartStatus);
+    }
+
+    @Benchmark
+    public CartStatusEventDetails decodeDatabind() throws IOException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public CartStatusEventDetails decodeCodec() throws IOException {
+        return JsonCodecs.decode(codec, json);
+    }
+
+    @Benchmark
+    public byte[] encodeDatabind() throws IOException {
+        return writer.writeValueAsBytes(cartStatus);
+    }
+
+    @Benchmark
+    public byte[] encodeCodec() throws IOException {
+        return JsonCodecs.encode(codec, cartStatus);
+    }
+}
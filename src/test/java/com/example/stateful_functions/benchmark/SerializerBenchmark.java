@@ -0,0 +1,106 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.cloudevents.data.ProductAvailability;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.example.stateful_functions.egress.EgressSerializer;
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.example.stateful_functions.ingress.IngressDeserializer;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.apache.flink.statefun.sdk.kinesis.egress.EgressRecord;
+import org.apache.flink.statefun.sdk.kinesis.ingress.IngressRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Kinesis boundary for a product event: the ingress deserializer converting a record to the internal format
+ * (ingress), a function writing an event for the egress as JSON (egressEvent), and the egress serializer for an
+ * envelope without a partition key (egress).  Run with "-prof gc" to see the allocation rate of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark {
+
+    private IngressDeserializer ingressDeserializer;
+    private EgressSerializer egressSerializer;
+    private ExampleCloudEventJsonFormat cloudEventJsonFormat;
+    private CloudEvent productEvent;
+    private IngressRecord ingressRecord;
+    private ExampleProtobuf.Envelope egressEnvelope;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ExampleCloudEventDataAccess cloudEventDataAccess = new ExampleCloudEventDataAccess(objectMapper);
+        ingressDeserializer = new IngressDeserializer();
+        egressSerializer = new EgressSerializer();
+        cloudEventJsonFormat = new ExampleCloudEventJsonFormat();
+
+        ProductEventDetails productDetails = new ProductEventDetails.Builder()
+                .id(UUID.randomUUID().toString())
+                .title("Widget")
+                .description("Something you should definitely buy!")
+                .price(BigDecimal.valueOf(4200L, 2))
+                .availability(ProductAvailability.IN_STOCK)
+                .build();
+
+        productEvent = CloudEventBuilder.v1()
+                .withId(UUID.randomUUID().toString())
+                .withType(ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+                .withSource(URI.create("http://example.com/product-service"))
+                .withData("application/json", cloudEventDataAccess.toCloudEventData(productDetails))
+                .withTime(OffsetDateTime.now(ZoneOffset.UTC))
+                .build();
+
+        ByteString json = cloudEventJsonFormat.serialize(productEvent);
+        ingressRecord = IngressRecord.newBuilder()
+                .withData(EnvelopeUtil.unsafeBytes(json))
+                .withStream("example-ingress")
+                .withShardId("shardId-000000000000")
+                .withPartitionKey(productDetails.getId())
+                .withSequenceNumber("1")
+                .withApproximateArrivalTimestamp(System.currentTimeMillis())
+                .build();
+        egressEnvelope = EnvelopeUtil.fromPayload(EnvelopeUtil.unsafeBytes(json));
+    }
+
+    @Benchmark
+    public ExampleProtobuf.Envelope ingress() {
+        return ingressDeserializer.deserialize(ingressRecord);
+    }
+
+    @Benchmark
+    public ByteString egressEvent() {
+        return cloudEventJsonFormat.serialize(productEvent);
+    }
+
+    @Benchmark
+    public EgressRecord egress() {
+        return egressSerializer.serialize(egressEnvelope);
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.SpringModule;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.cloudevents.data.ProductAvailability;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionAddressDetails;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionAction;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionDetails;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.function.FunctionProvider;
+import com.example.stateful_functions.function.cart.CartStatefulFunction;
+import com.example.stateful_functions.function.product.ProductStatefulFunction;
+import com.example.stateful_functions.function.subscriber.FunctionSubscriber;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.sdk.Context;
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.apache.flink.statefun.sdk.StatefulFunction;
+import org.apache.flink.statefun.sdk.io.EgressIdentifier;
+import org.apache.flink.statefun.sdk.metrics.Counter;
+import org.apache.flink.statefun.sdk.metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifying the subscribers of a product of one update, with 10k subscribers.
+ *
+ * perSubscriber: what notifySubscribers did before - an envelope built for each subscriber, converting the event to
+ * the internal format each time if it wasn't in it, and a FunctionType created from the subscriber's strings.
+ *
+ * sharedMessage: the event converted once into a message sent to every subscriber, at their resolved addresses.
+ *
+ * productFunction: a product event handled by the product function, which notifies its subscribers.
+ *
+ * The event arrives in the internal format (protobuf) as it does from the ingress, or in JSON.  Only perSubscriber
+ * with JSON events depends on the payload size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubscriberFanOutBenchmark {
+
+    @Param({"10000"})
+    private int subscriberCount;
+
+    @Param({"100", "10000"})
+    private int descriptionLength;
+
+    @Param({"protobuf", "json"})
+    private String eventFormat;
+
+    private AnnotationConfigApplicationContext applicationContext;
+    private ExampleCloudEventFormats cloudEventFormats;
+    private List<FunctionSubscriber> subscribers;
+    private ExampleProtobuf.Envelope[] productEnvelopes;
+    private StatefulFunction productFunction;
+    private CountingContext context;
+    private int update;
+
+    @Setup
+    public void setup() {
+        applicationContext = new AnnotationConfigApplicationContext(SpringModule.class);
+        cloudEventFormats = applicationContext.getBean(ExampleCloudEventFormats.class);
+        ExampleCloudEventDataAccess cloudEventDataAccess = applicationContext.getBean(ExampleCloudEventDataAccess.class);
+        ExampleCloudEventFormat format = "json".equals(eventFormat) ? cloudEventFormats.json() : cloudEventFormats.internal();
+
+        StringBuilder description = new StringBuilder();
+        while (description.length() < descriptionLength) {
+            description.append("Something you should definitely buy! ");
+        }
+        // Alternate prices, so that every update is sent to the subscribers
+        productEnvelopes = new ExampleProtobuf.Envelope[2];
+        for (int i = 0; i < productEnvelopes.length; i++) {
+            ProductEventDetails productDetails = new ProductEventDetails.Builder()
+                    .id("widget")
+                    .title("Widget")
+                    .description(description.substring(0, descriptionLength))
+                    .price(BigDecimal.valueOf(4200L + i, 2))
+                    .availability(ProductAvailability.IN_STOCK)
+                    .build();
+            CloudEvent productEvent = CloudEventBuilder.v1()
+                    .withId("product-" + i)
+                    .withType(ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+                    .withSource(URI.create("http://example.com/product-service"))
+                    .withData("application/json", cloudEventDataAccess.toCloudEventData(productDetails))
+                    .withTime(OffsetDateTime.now(ZoneOffset.UTC))
+                    .build();
+            productEnvelopes[i] = EnvelopeCloudEvent.toEnvelope(productEvent, format).build();
+        }
+
+        context = new CountingContext();
+        productFunction = applicationContext.getBean(FunctionProvider.class).functionOfType(ProductStatefulFunction.FUNCTION_TYPE);
+        productFunction.invoke(context, productEnvelopes[0]);
+        subscribers = new ArrayList<>();
+        for (int i = 0; i < subscriberCount; i++) {
+            FunctionSubscriptionDetails subscription = new FunctionSubscriptionDetails.Builder()
+                    .publisher(new FunctionAddressDetails.Builder()
+                            .namespace(ProductStatefulFunction.NAMESPACE).type(ProductStatefulFunction.TYPE).id("widget").build())
+                    .subscriber(new FunctionAddressDetails.Builder()
+                            .namespace(CartStatefulFunction.NAMESPACE).type(CartStatefulFunction.TYPE).id("cart-" + i).build())
+                    .action(FunctionSubscriptionAction.SUBSCRIBE)
+                    .build();
+            CloudEvent subscriptionEvent = CloudEventBuilder.v1()
+                    .withId("subscription-" + i)
+                    .withType(ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE)
+                    .withSource(URI.create("http://stateful_functions.example.com/example.cart/cart-" + i))
+                    .withData("application/json", cloudEventDataAccess.toCloudEventData(subscription))
+                    .build();
+            productFunction.invoke(context, EnvelopeCloudEvent.toEnvelope(subscriptionEvent, cloudEventFormats.internal()).build());
+
+            FunctionSubscriber subscriber = new FunctionSubscriber();
+            subscriber.setNamespace(CartStatefulFunction.NAMESPACE);
+            subscriber.setType(CartStatefulFunction.TYPE);
+            subscriber.setId("cart-" + i);
+            subscribers.add(subscriber);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public int perSubscriber() {
+        CloudEvent productEvent = EnvelopeCloudEvent.from(productEnvelopes[0], cloudEventFormats);
+        for (FunctionSubscriber subscriber : subscribers) {
+            ExampleProtobuf.Envelope message = EnvelopeCloudEvent.toEnvelope(productEvent, cloudEventFormats.internal())
+                    .clearPartitionKey()
+                    .setTargetId(subscriber.getId())
+                    .build();
+            context.send(new FunctionType(subscriber.getNamespace(), subscriber.getType()), subscriber.getId(), message);
+        }
+        return context.sent;
+    }
+
+    @Benchmark
+    public int sharedMessage() {
+        CloudEvent productEvent = EnvelopeCloudEvent.from(productEnvelopes[0], cloudEventFormats);
+        ExampleProtobuf.Envelope message = EnvelopeCloudEvent.toEnvelope(productEvent, cloudEventFormats.internal())
+                .clearPartitionKey()
+                .clearTargetId()
+                .build();
+        for (FunctionSubscriber subscriber : subscribers) {
+            context.send(subscriber.getAddress(), message);
+        }
+        return context.sent;
+    }
+
+    @Benchmark
+    public int productFunction() {
+        productFunction.invoke(context, productEnvelopes[update++ & 1]);
+        return context.sent;
+    }
+
+    // Counts the messages sent, and has counters that count nothing
+    private static final class CountingContext implements Context, Metrics, Counter {
+        private static final Address SELF = new Address(ProductStatefulFunction.FUNCTION_TYPE, "widget");
+
+        int sent;
+
+        @Override
+        public Address self() {
+            return SELF;
+        }
+
+        @Override
+        public Address caller() {
+            return null;
+        }
+
+        @Override
+        public void send(Address address, Object message) {
+            sent++;
+        }
+
+        @Override
+        public <T> void send(EgressIdentifier<T> egressIdentifier, T message) {
+            sent++;
+        }
+
+        @Override
+        public void sendAfter(Duration delay, Address address, Object message) {
+            sent++;
+        }
+
+        @Override
+        public void sendAfter(Duration delay, Address address, Object message, String cancellationToken) {
+            sent++;
+        }
+
+        @Override
+        public void cancelDelayedMessage(String cancellationToken) {
+        }
+
+        @Override
+        public <M, T> void registerAsyncOperation(M metadata, CompletableFuture<T> future) {
+        }
+
+        @Override
+        public Metrics metrics() {
+            return this;
+        }
+
+        @Override
+        public Counter counter(String name) {
+            return this;
+        }
+
+        @Override
+        public void inc(long amount) {
+        }
+
+        @Override
+        public void dec(long amount) {
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.stateful_functions.benchmark;
+
+import com.example.stateful_functions.function.cart.CartStatefulFunction;
+import com.example.stateful_functions.function.subscriber.FunctionSubscriber;
+import com.example.stateful_functions.function.subscriber.SubscriberChunk;
+import com.example.stateful_functions.function.subscriber.SubscriberSet;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.sdk.state.PersistedTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The subscribers of a product as they are held by a state backend that serializes each table entry, as RocksDB does,
+ * with the Flink serializers of the state types.
+ *
+ * table: what ProductStatefulFunction kept before - one entry per subscriber, keyed by its subscriber id, with the
+ * namespace, type, id, correlation id and creation time of the subscriber.
+ *
+ * set: a SubscriberSet - one entry per chunk of subscribers, with the namespaces and types of the chunk listed once
+ * and the subscribers packed after them.
+ *
+ * The state entries and the bytes per subscriber are printed at setup.  fanOut reads every entry, as the function
+ * does when it notifies its subscribers, and sends to the address of each subscriber.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubscriberStorageBenchmark {
+
+    @Param({"100", "10000"})
+    private int subscriberCount;
+
+    @Param({"table", "set"})
+    private String storage;
+
+    private TypeSerializer<String> stringSerializer;
+    private TypeSerializer<FunctionSubscriber> subscriberSerializer;
+    private TypeSerializer<Integer> integerSerializer;
+    private TypeSerializer<SubscriberChunk> chunkSerializer;
+
+    // The serialized keys and values of the state entries
+    private List<byte[]> keys;
+    private List<byte[]> values;
+
+    private final DataInputDeserializer input = new DataInputDeserializer();
+    private int sent;
+
+    @Setup
+    public void setup() throws IOException {
+        ExecutionConfig executionConfig = new ExecutionConfig();
+        stringSerializer = TypeInformation.of(String.class).createSerializer(executionConfig);
+        subscriberSerializer = TypeInformation.of(FunctionSubscriber.class).createSerializer(executionConfig);
+        integerSerializer = TypeInformation.of(Integer.class).createSerializer(executionConfig);
+        chunkSerializer = TypeInformation.of(SubscriberChunk.class).createSerializer(executionConfig);
+
+        keys = new ArrayList<>();
+        values = new ArrayList<>();
+        PersistedTable<Integer, SubscriberChunk> chunks = PersistedTable.of("subscriber-chunks", Integer.class, SubscriberChunk.class);
+        SubscriberSet set = new SubscriberSet(chunks);
+        for (int i = 0; i < subscriberCount; i++) {
+            FunctionSubscriber subscriber = new FunctionSubscriber();
+            subscriber.setNamespace(CartStatefulFunction.NAMESPACE);
+            subscriber.setType(CartStatefulFunction.TYPE);
+            subscriber.setId("cart-" + i);
+            if ("table".equals(storage)) {
+                keys.add(serialize(stringSerializer, subscriber.getSubscriberId()));
+                values.add(serialize(subscriberSerializer, subscriber));
+            }
+            else {
+                set.add(subscriber);
+            }
+        }
+        for (Map.Entry<Integer, SubscriberChunk> chunk : chunks.entries()) {
+            keys.add(serialize(integerSerializer, chunk.getKey()));
+            values.add(serialize(chunkSerializer, chunk.getValue()));
+        }
+
+        long bytes = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            bytes += keys.get(i).length + values.get(i).length;
+        }
+        System.out.println();
+        System.out.println(storage + ", " + subscriberCount + " subscribers: " + keys.size() + " state entries, "
+                + bytes + " bytes, " + String.format("%.1f", (double) bytes / subscriberCount) + " bytes per subscriber");
+    }
+
+    @Benchmark
+    public int fanOut() throws IOException {
+        if ("table".equals(storage)) {
+            for (int i = 0; i < keys.size(); i++) {
+                deserialize(stringSerializer, keys.get(i));
+                send(deserialize(subscriberSerializer, values.get(i)).getAddress());
+            }
+            return sent;
+        }
+
+        PersistedTable<Integer, SubscriberChunk> chunks = PersistedTable.of("subscriber-chunks", Integer.class, SubscriberChunk.class);
+        for (int i = 0; i < keys.size(); i++) {
+            chunks.set(deserialize(integerSerializer, keys.get(i)), deserialize(chunkSerializer, values.get(i)));
+        }
+        new SubscriberSet(chunks).forEachAddress(this::send);
+        return sent;
+    }
+
+    private void send(Address address) {
+        sent++;
+    }
+
+    private static <T> byte[] serialize(TypeSerializer<T> serializer, T value) throws IOException {
+        DataOutputSerializer output = new DataOutputSerializer(64);
+        serializer.serialize(value, output);
+        return output.getCopyOfBuffer();
+    }
+
+    private <T> T deserialize(TypeSerializer<T> serializer, byte[] bytes) throws IOException {
+        input.setBuffer(bytes);
+        return serializer.deserialize(input);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.stateful_functions.cloudevents;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ExampleCloudEventFormatsTest {
+
+    private final ExampleCloudEventFormats cloudEventFormats =
+            new ExampleCloudEventFormats(new ExampleCloudEventJsonFormat(), new ExampleCloudEventProtobufFormat());
+
+    @Test
+    public void formatIsDetectedFromFirstByte() {
+        assertSame(cloudEventFormats.json(), cloudEventFormats.detect("{\"id\":\"1\"}".getBytes(StandardCharsets.UTF_8)));
+        assertSame(cloudEventFormats.json(), cloudEventFormats.detect("\r\n {}".getBytes(StandardCharsets.UTF_8)));
+        // Field 1 (id), length delimited
+        assertSame(cloudEventFormats.protobufFormat, cloudEventFormats.detect(new byte[]{0x0A, 0x01, '1'}));
+        assertSame(cloudEventFormats.protobufFormat, cloudEventFormats.detect(new byte[]{0x12, 0x01, '/'}));
+    }
+
+    @Test
+    public void protobufIdsThatLookLikeJsonAreDetected() {
+        // The length of a 123 byte id is '{'
+        assertProtobufDetected("a".repeat(123));
+        // The length of a 32 (or 9, 10, 13) byte id is whitespace, followed by the '{' the id starts with
+        assertProtobufDetected("{" + "a".repeat(31));
+        assertProtobufDetected("{" + "a".repeat(8));
+        assertProtobufDetected("{" + "a".repeat(9));
+        assertProtobufDetected("{" + "a".repeat(12));
+        assertSame(cloudEventFormats.json(), cloudEventFormats.detect("\n{\"id\":\"1\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void assertProtobufDetected(String id) {
+        CloudEvent event = CloudEventBuilder.v1()
+                .withId(id)
+                .withType(ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+                .withSource(URI.create("http://example.com/product-service"))
+                .build();
+        byte[] serialized = cloudEventFormats.protobufFormat.serialize(event).toByteArray();
+        assertSame(id, cloudEventFormats.protobufFormat, cloudEventFormats.detect(serialized));
+    }
+
+    @Test
+    public void streamFormatsAreParsed() {
+        Map<String, String> streamFormats = ExampleCloudEventFormats.parseStreamFormats(" orders=protobuf, products = json,bad,other=avro");
+        assertEquals(2, streamFormats.size());
+        assertEquals("protobuf", streamFormats.get("orders"));
+        assertEquals("json", streamFormats.get("products"));
+        assertEquals(0, ExampleCloudEventFormats.parseStreamFormats("").size());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.stateful_functions.cloudevents;
+
+import com.example.stateful_functions.cloudevents.data.ProductAvailability;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.core.data.BytesCloudEventData;
+import io.cloudevents.jackson.JsonCloudEventData;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ExampleCloudEventJsonFormatTest {
+
+    private final ExampleCloudEventJsonFormat jsonFormat = new ExampleCloudEventJsonFormat();
+    private final ExampleCloudEventDataAccess cloudEventDataAccess = new ExampleCloudEventDataAccess(new ObjectMapper());
+
+    @Test
+    public void writesTheSameJsonAsTheJsonFormat() {
+        ProductEventDetails productDetails = new ProductEventDetails.Builder()
+                .id("p1")
+                .title("Widget \"deluxe\" \u00e9")
+                .price(BigDecimal.valueOf(4200L, 2))
+                .availability(ProductAvailability.IN_STOCK)
+                .build();
+        CloudEventBuilder builder = CloudEventBuilder.v1()
+                .withId("1")
+                .withType(ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+                .withSource(URI.create("http://example.com/product-service"))
+                .withSubject("p1")
+                .withTime(OffsetDateTime.parse("2024-01-01T12:00:00.123Z"))
+                .withExtension("partition", 7)
+                .withExtension("sampled", true)
+                .withExtension("tenant", "acme");
+
+        assertSameJson(builder.withData("application/json", cloudEventDataAccess.toCloudEventData(productDetails)).build());
+        assertSameJson(builder.withData("application/json", JsonCloudEventData.wrap(new ObjectMapper().valueToTree(productDetails))).build());
+        assertSameJson(builder.withData(BytesCloudEventData.wrap("{\"id\":\"p1\"}".getBytes(StandardCharsets.UTF_8))).build());
+        assertSameJson(builder.withData("application/octet-stream", new byte[]{0, 1, 2, 3, 4}).build());
+        assertSameJson(builder.withoutData().withoutDataContentType().build());
+    }
+
+    @Test
+    public void writesRawJsonWithCharGenerators() throws IOException {
+        String json = "{\"title\":\"Widget \\\"deluxe\\\" \u00e9\",\"price\":42.00}";
+        ExampleCloudEventJsonFormat.RawJson rawJson = new ExampleCloudEventJsonFormat.RawJson(json.getBytes(StandardCharsets.UTF_8));
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeFieldName("data");
+            generator.writeRawValue(rawJson);
+            generator.writeEndObject();
+        }
+        assertEquals("{\"data\":" + json + "}", writer.toString());
+
+        assertEquals(json, rawJson.getValue());
+        assertEquals(json.length(), rawJson.charLength());
+        char[] chars = new char[json.length()];
+        assertEquals(json.length(), rawJson.appendUnquoted(chars, 0));
+        assertEquals(json, new String(chars));
+        assertArrayEquals(new SerializedString(json).asQuotedUTF8(), rawJson.asQuotedUTF8());
+    }
+
+    private void assertSameJson(CloudEvent event) {
+        String expected = new String(ExampleCloudEventJsonFormat.CLOUD_EVENT_FORMAT.serialize(event), StandardCharsets.UTF_8);
+        assertEquals(expected, jsonFormat.serialize(event).toStringUtf8());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.stateful_functions.cloudevents;
+
+import com.google.protobuf.ByteString;
+import io.cloudevents.CloudEvent;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class JsonToProtobufTranscoderTest {
+
+    private final ExampleCloudEventJsonFormat jsonFormat = new ExampleCloudEventJsonFormat();
+    private final ExampleCloudEventProtobufFormat protobufFormat = new ExampleCloudEventProtobufFormat();
+
+    @Test
+    public void jsonDataIsCopied() {
+        assertTranscodes("{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"http://example.com/product-service\"," +
+                "\"type\":\"example.product\",\"datacontenttype\":\"application/json\",\"time\":\"2024-01-01T12:00:00.123Z\"," +
+                "\"data\":{\"id\":\"p1\",\"price\":42.0,\"tags\":[\"a\",\"b\"],\"details\":{\"size\":\"L\"}}}");
+        assertTranscodes("{\"data\":[1,2,3],\"type\":\"example.product\",\"source\":\"/products\",\"id\":\"2\",\"specversion\":\"1.0\"}");
+        assertTranscodes("{\"specversion\":\"1.0\",\"id\":\"3\",\"source\":\"/products\",\"type\":\"example.product\",\"data\":42}");
+        assertTranscodes("{\"specversion\":\"1.0\",\"id\":\"4\",\"source\":\"/products\",\"type\":\"example.product\"," +
+                "\"datacontenttype\":\"application/json\",\"data\":\"text \\\"quoted\\\"\"}");
+    }
+
+    @Test
+    public void attributesAndExtensionsAreConverted() {
+        assertTranscodes("{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\",\"type\":\"example.product\"," +
+                "\"subject\":\"p1\",\"dataschema\":\"http://example.com/schema\",\"time\":\"2024-01-01T12:00:00+02:00\"," +
+                "\"partition\":7,\"sampled\":true,\"tenant\":\"acme\"}");
+        assertTranscodes("{\"specversion\":\"1.0\",\"id\":\"2\",\"source\":\"/products\",\"type\":\"example.product\"," +
+                "\"dataschema\":\"/schema\"}");
+    }
+
+    @Test
+    public void nonJsonDataIsConverted() {
+        assertTranscodes("{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\",\"type\":\"example.product\"," +
+                "\"datacontenttype\":\"text/plain\",\"data\":\"hello\"}");
+        assertTranscodes("{\"specversion\":\"1.0\",\"id\":\"2\",\"source\":\"/products\",\"type\":\"example.product\"," +
+                "\"datacontenttype\":\"application/octet-stream\",\"data_base64\":\"AAECAwQ=\"}");
+    }
+
+    @Test
+    public void unsupportedEventsAreLeftToTheFormats() {
+        assertNull(transcode("{\"specversion\":\"0.3\",\"id\":\"1\",\"source\":\"/products\",\"type\":\"example.product\"}"));
+        assertNull(transcode("{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\"}"));
+        assertNull(transcode("{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\",\"type\":\"example.product\",\"time\":\"yesterday\"}"));
+        assertNull(transcode("{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\",\"type\":\"example.product\",\"tags\":[\"a\"]}"));
+        assertNull(transcode("{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\",\"type\":\"example.product\",\"ratio\":0.5}"));
+        assertNull(transcode("{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\",\"type\":\"example.product\",\"data\":"));
+        assertNull(transcode("[]"));
+    }
+
+    private void assertTranscodes(String json) {
+        ByteString transcoded = transcode(json);
+        assertNotNull(json, transcoded);
+        CloudEvent expected = protobufFormat.deserialize(protobufFormat.serialize(jsonFormat.deserialize(bytes(json))));
+        assertEquals(json, expected, protobufFormat.deserialize(transcoded));
+    }
+
+    private ByteString transcode(String json) {
+        return protobufFormat.transcode(ByteString.copyFrom(bytes(json)), jsonFormat);
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.stateful_functions.cloudevents.codec;
+
+import com.example.stateful_functions.cloudevents.data.CartItemStatusDetails;
+import com.example.stateful_functions.cloudevents.data.CartStatusEventDetails;
+import com.example.stateful_functions.cloudevents.data.ProductAvailability;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionAddressDetails;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionAction;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionDetails;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+public class JsonCodecsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private <T> T roundTrip(Class<T> type, T value) throws Exception {
+        JsonCodec<T> codec = JsonCodecs.forType(type);
+        assertNotNull("no generated codec for " + type.getSimpleName(), codec);
+
+        // the codec writes the same JSON as databind, and reads what databind writes
+        byte[] encoded = JsonCodecs.encode(codec, value);
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(value)), objectMapper.readTree(encoded));
+        T decoded = JsonCodecs.decode(codec, objectMapper.writeValueAsBytes(value));
+        assertEquals(objectMapper.valueToTree(value), objectMapper.valueToTree(decoded));
+
+        assertEquals(objectMapper.valueToTree(value), objectMapper.valueToTree(JsonCodecs.decode(codec, objectMapper.valueToTree(value))));
+        return decoded;
+    }
+
+    @Test
+    public void productEventDetails() throws Exception {
+        ProductEventDetails details = roundTrip(ProductEventDetails.class, new ProductEventDetails.Builder()
+                .id("8f8339b5-6810-4c10-ae52-5262eb369f6e")
+                .title("Widget")
+                .description("Something \"you\" should definitely buy!\n")
+                .price(BigDecimal.valueOf(4242, 2))
+                .availability(ProductAvailability.IN_STOCK)
+                .build());
+        assertEquals(BigDecimal.valueOf(4242, 2), details.getPrice());
+    }
+
+    @Test
+    public void cartStatusEventDetails() throws Exception {
+        CartItemStatusDetails item = new CartItemStatusDetails.Builder()
+                .productId("p1")
+                .originPrice(BigDecimal.valueOf(42))
+                .currentPrice(BigDecimal.valueOf(4242, 2))
+                .quantity(3)
+                .availability(ProductAvailability.OUT_OF_STOCK)
+                .build();
+        CartStatusEventDetails details = roundTrip(CartStatusEventDetails.class, new CartStatusEventDetails("c1", Arrays.asList(item, item)));
+        assertEquals(2, details.getCartItemStatuses().size());
+        assertEquals(3, details.getCartItemStatuses().get(1).getQuantity());
+    }
+
+    @Test
+    public void functionSubscriptionDetails() throws Exception {
+        FunctionSubscriptionDetails details = roundTrip(FunctionSubscriptionDetails.class, new FunctionSubscriptionDetails.Builder()
+                .publisher(new FunctionAddressDetails.Builder().namespace("com.example").type("product").id("p1").build())
+                .subscriber(new FunctionAddressDetails.Builder().namespace("com.example").type("cart").id("c1").build())
+                .action(FunctionSubscriptionAction.SUBSCRIBE)
+                .build());
+        assertEquals("c1", details.getSubscriber().getId());
+        assertNull(details.getCorrelationId());
+    }
+
+    @Test
+    public void readsLikeDatabind() throws Exception {
+        String json = "{\"id\":\"p1\",\"price\":\"42.10\",\"availability\":null}";
+        ProductEventDetails details = JsonCodecs.decode(JsonCodecs.forType(ProductEventDetails.class), json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("p1", details.getId());
+        assertEquals(new BigDecimal("42.10"), details.getPrice());
+        assertNull(details.getAvailability());
+        assertNull(details.getTitle());
+    }
+
+    @Test
+    public void failsOnUnknownPropertiesLikeDatabind() throws Exception {
+        byte[] json = "{\"id\":\"p1\",\"unknown\":{\"nested\":[1,2]}}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> objectMapper.readValue(json, ProductEventDetails.class));
+        assertThrows(JsonParseException.class, () -> JsonCodecs.decode(JsonCodecs.forType(ProductEventDetails.class), json));
+        assertThrows(JsonParseException.class, () -> JsonCodecs.decode(JsonCodecs.forType(ProductEventDetails.class), objectMapper.readTree(json)));
+    }
+}
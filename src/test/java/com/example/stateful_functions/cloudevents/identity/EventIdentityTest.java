@@ -0,0 +1,64 @@
+package com.example.stateful_functions.cloudevents.identity;
+
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventIdentityTest {
+
+    private static final OffsetDateTime START_TIME = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    public void idsAreVersion7Uuids() {
+        UUID id = UUID.fromString(new MonotonicEventIdentity().nextId());
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertTrue(Math.abs((id.getMostSignificantBits() >>> 16) - System.currentTimeMillis()) < 60_000);
+    }
+
+    @Test
+    public void idsAreOrderedWithinAMillisecond() {
+        // The clock is fixed, so more ids than the counter holds are created in the same millisecond
+        EventIdentity eventIdentity = new DeterministicEventIdentity(42, START_TIME);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(eventIdentity.nextId());
+        }
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) + " < " + ids.get(i), ids.get(i - 1).compareTo(ids.get(i)) < 0);
+        }
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+
+    @Test
+    public void deterministicIdentityReplays() {
+        EventIdentity first = new DeterministicEventIdentity(42, START_TIME);
+        EventIdentity second = new DeterministicEventIdentity(42, START_TIME);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextId(), second.nextId());
+        }
+        assertEquals(START_TIME, first.now());
+        assertEquals(START_TIME.toInstant().toEpochMilli(), UUID.fromString(first.nextId()).getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    public void cachedClockReusesTimeWithinAMillisecond() {
+        CachedClock clock = new CachedClock() {
+            @Override
+            public long millis() {
+                return START_TIME.toInstant().toEpochMilli();
+            }
+        };
+        OffsetDateTime time = clock.now();
+        assertEquals(START_TIME, time);
+        assertSame(time, clock.now());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.stateful_functions.envelope;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cloudevents.CloudEvent;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class EnvelopeCloudEventTest {
+
+    private static final byte[] PRODUCT_EVENT = ("{\"specversion\":\"1.0\",\"id\":\"82c80663-4b0d-4b55-8d68-59a3a22c33bf\"," +
+            "\"source\":\"http://example.com/product-service\",\"type\":\"example.product\"," +
+            "\"datacontenttype\":\"application/json\",\"time\":\"2024-01-22T20:08:59.986526Z\"," +
+            "\"data\":{\"id\":\"8f8339b5-6810-4c10-ae52-5262eb369f6e\",\"title\":\"Widget\",\"price\":42,\"availability\":\"IN_STOCK\"}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final ExampleCloudEventFormats cloudEventFormats =
+            new ExampleCloudEventFormats(new ExampleCloudEventJsonFormat(), new ExampleCloudEventProtobufFormat());
+
+    private final ExampleCloudEventDataAccess cloudEventDataAccess = new ExampleCloudEventDataAccess(new ObjectMapper());
+
+    @Test
+    public void headersAreSetFromPayload() {
+        EnvelopeCloudEvent event = EnvelopeCloudEvent.from(EnvelopeUtil.fromPayload(PRODUCT_EVENT), cloudEventFormats);
+
+        ExampleProtobuf.Envelope envelope = event.getEnvelope();
+        assertEquals("example.product", envelope.getEventType());
+        assertEquals("82c80663-4b0d-4b55-8d68-59a3a22c33bf", envelope.getEventId());
+        assertEquals("8f8339b5-6810-4c10-ae52-5262eb369f6e", envelope.getTargetId());
+    }
+
+    @Test
+    public void unparsablePayloadWithoutHeaders() {
+        byte[] payload = "not an event".getBytes(StandardCharsets.UTF_8);
+        assertNull(EnvelopeCloudEvent.from(EnvelopeUtil.fromPayload(payload), cloudEventFormats));
+    }
+
+    @Test
+    public void convertsBetweenFormats() {
+        EnvelopeCloudEvent jsonEvent = EnvelopeCloudEvent.from(EnvelopeUtil.fromPayload(PRODUCT_EVENT), cloudEventFormats);
+
+        ExampleProtobuf.Envelope protobufEnvelope = EnvelopeCloudEvent.toEnvelope(jsonEvent, new ExampleCloudEventProtobufFormat()).build();
+        assertEquals(ExampleCloudEventProtobufFormat.CLOUD_EVENT_FORMAT.serializedContentType(), protobufEnvelope.getContentType());
+        assertEquals(jsonEvent.getEnvelope().getTargetId(), protobufEnvelope.getTargetId());
+
+        CloudEvent protobufEvent = EnvelopeCloudEvent.from(protobufEnvelope, cloudEventFormats);
+        ProductEventDetails details = cloudEventDataAccess.toProductEventDetails(protobufEvent);
+        assertEquals("Widget", details.getTitle());
+        assertEquals(jsonEvent.getTime(), protobufEvent.getTime());
+
+        ExampleProtobuf.Envelope jsonEnvelope = EnvelopeCloudEvent.toEnvelope(protobufEvent, cloudEventFormats.json()).build();
+        CloudEvent event = cloudEventFormats.json().deserialize(jsonEnvelope.getPayload());
+        assertEquals("http://example.com/product-service", event.getSource().toString());
+        assertEquals("Widget", cloudEventDataAccess.toProductEventDetails(event).getTitle());
+    }
+
+    @Test
+    public void payloadIsReusedInSameFormat() {
+        EnvelopeCloudEvent event = EnvelopeCloudEvent.from(EnvelopeUtil.fromPayload(PRODUCT_EVENT), cloudEventFormats);
+
+        ExampleProtobuf.Envelope envelope = EnvelopeCloudEvent.toEnvelope(event, cloudEventFormats.json()).build();
+        assertSame(PRODUCT_EVENT, EnvelopeUtil.payloadBytes(envelope));
+        assertFalse(envelope.hasContentType());
+    }
+}
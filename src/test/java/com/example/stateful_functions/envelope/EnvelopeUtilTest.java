@@ -0,0 +1,37 @@
+package com.example.stateful_functions.envelope;
+
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class EnvelopeUtilTest {
+
+    private static final byte[] PAYLOAD = "{\"type\":\"example.product\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void payloadIsNotCopied() {
+        ExampleProtobuf.Envelope envelope = EnvelopeUtil.fromPayload(PAYLOAD);
+        assertSame(PAYLOAD, EnvelopeUtil.payloadBytes(envelope));
+    }
+
+    @Test
+    public void payloadSurvivesProtobufRoundTrip() throws Exception {
+        ExampleProtobuf.Envelope envelope = ExampleProtobuf.Envelope.parseFrom(EnvelopeUtil.fromPayload(PAYLOAD).toByteArray());
+        assertArrayEquals(PAYLOAD, EnvelopeUtil.payloadBytes(envelope));
+    }
+
+    @Test
+    public void partialByteStringIsCopied() {
+        ByteString substring = ByteString.copyFrom(PAYLOAD).substring(1, 5);
+        byte[] bytes = EnvelopeUtil.unsafeBytes(substring);
+        assertNotSame(PAYLOAD, bytes);
+        assertEquals(substring, ByteString.copyFrom(bytes));
+    }
+}
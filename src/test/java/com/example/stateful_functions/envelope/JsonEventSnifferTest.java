@@ -0,0 +1,58 @@
+package com.example.stateful_functions.envelope;
+
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonEventSnifferTest {
+
+    private static ExampleProtobuf.Envelope.Builder sniff(String json) {
+        ExampleProtobuf.Envelope.Builder builder = ExampleProtobuf.Envelope.newBuilder();
+        assertTrue(JsonEventSniffer.setHeaders(builder, json.getBytes(StandardCharsets.UTF_8)));
+        return builder;
+    }
+
+    @Test
+    public void headersAndTargetKey() {
+        ExampleProtobuf.Envelope.Builder builder = sniff("{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"http://example.com\"," +
+                "\"type\":\"example.product\",\"time\":\"2024-01-22T20:08:59.986526Z\"," +
+                "\"data\":{\"title\":\"Widget\",\"tags\":[\"a\",{\"id\":\"nested\"}],\"id\":\"p1\",\"price\":42}}");
+
+        assertEquals("example.product", builder.getEventType());
+        assertEquals("1", builder.getEventId());
+        assertEquals("http://example.com", builder.getEventSource());
+        assertEquals("2024-01-22T20:08:59.986526Z", builder.getEventTime());
+        assertEquals("p1", builder.getTargetId());
+    }
+
+    @Test
+    public void dataBeforeType() {
+        ExampleProtobuf.Envelope.Builder builder = sniff("{\"data\":{\"cartId\":\"c1\",\"productId\":\"p1\"}," +
+                "\"id\":\"1\",\"source\":\"http://example.com\",\"type\":\"example.cart-product\"}");
+
+        assertEquals("example.cart-product", builder.getEventType());
+        assertEquals("c1", builder.getTargetId());
+        assertFalse(builder.hasEventTime());
+    }
+
+    @Test
+    public void noTargetKey() {
+        ExampleProtobuf.Envelope.Builder builder = sniff("{\"id\":\"1\",\"source\":\"http://example.com\"," +
+                "\"type\":\"example.function-subscription\",\"data\":{\"id\":\"x\"}}");
+
+        assertFalse(builder.hasTargetId());
+    }
+
+    @Test
+    public void notAnEvent() {
+        ExampleProtobuf.Envelope.Builder builder = ExampleProtobuf.Envelope.newBuilder();
+        assertFalse(JsonEventSniffer.setHeaders(builder, "{\"id\":\"1\",\"type\":\"example.product\"}".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(JsonEventSniffer.setHeaders(builder, "not json".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(JsonEventSniffer.setHeaders(builder, "[]".getBytes(StandardCharsets.UTF_8)));
+    }
+}
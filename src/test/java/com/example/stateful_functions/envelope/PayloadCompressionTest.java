@@ -0,0 +1,83 @@
+package com.example.stateful_functions.envelope;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PayloadCompressionTest {
+
+    private static final byte[] PAYLOAD = ("{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\",\"type\":\"example.product\"," +
+            "\"data\":{\"description\":\"" + repeat("Something you should definitely buy! ", 100) + "\"}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void gzipIsCompatibleWithTheJdk() throws Exception {
+        byte[] compressed = PayloadCompression.compress(PAYLOAD, PayloadCompression.GZIP);
+        assertEquals(PayloadCompression.GZIP, PayloadCompression.compressionOf(compressed));
+        assertArrayEquals(PAYLOAD, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+
+        ByteArrayOutputStream jdkCompressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(jdkCompressed)) {
+            out.write(PAYLOAD);
+        }
+        assertArrayEquals(PAYLOAD, PayloadCompression.decompress(jdkCompressed.toByteArray()));
+    }
+
+    @Test
+    public void deflateRoundTrips() throws Exception {
+        byte[] compressed = PayloadCompression.compress(PAYLOAD, PayloadCompression.DEFLATE);
+        assertEquals(PayloadCompression.DEFLATE, PayloadCompression.compressionOf(compressed));
+        assertArrayEquals(PAYLOAD, PayloadCompression.decompress(compressed));
+
+        ByteArrayOutputStream jdkCompressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(jdkCompressed)) {
+            out.write(PAYLOAD);
+        }
+        assertArrayEquals(PAYLOAD, PayloadCompression.decompress(jdkCompressed.toByteArray()));
+    }
+
+    @Test
+    public void uncompressedPayloadsArePassedThrough() throws Exception {
+        assertSame(PAYLOAD, PayloadCompression.decompress(PAYLOAD));
+        assertSame(PAYLOAD, PayloadCompression.compress(PAYLOAD, PayloadCompression.NONE));
+        byte[] protobuf = {0x0A, 0x01, '1', 0x12, 0x01, '/'};
+        assertSame(protobuf, PayloadCompression.decompress(protobuf));
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void corruptPayloadsAreRejected() throws Exception {
+        byte[] compressed = PayloadCompression.compress(PAYLOAD, PayloadCompression.GZIP);
+        compressed[compressed.length - 1] ^= 1;
+        PayloadCompression.decompress(compressed);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            repeated.append(s);
+        }
+        return repeated.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.stateful_functions.function;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.example.stateful_functions.function.cart.CartStatefulFunction;
+import com.example.stateful_functions.function.product.ProductStatefulFunction;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.apache.flink.statefun.sdk.Context;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class EventHandlersTest {
+
+    @Test
+    public void functionHandlersAreBound() {
+        assertEquals(new HashSet<>(Arrays.asList(ExampleCloudEventType.PRODUCT_EVENT_TYPE, ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE,
+                        ExampleCloudEventType.SUBSCRIBER_SHARD_FULL_EVENT_TYPE, ExampleCloudEventType.PRODUCT_NOTIFY_EVENT_TYPE)),
+                EventHandlers.of(ProductStatefulFunction.class).eventTypes());
+        assertEquals(new HashSet<>(Arrays.asList(ExampleCloudEventType.CART_PRODUCT_EVENT_TYPE, ExampleCloudEventType.PRODUCT_EVENT_TYPE)),
+                EventHandlers.of(CartStatefulFunction.class).eventTypes());
+        assertSame(EventHandlers.of(ProductStatefulFunction.class), EventHandlers.of(ProductStatefulFunction.class));
+    }
+
+    @Test
+    public void dataIsDecodedIntoTheParameterType() {
+        ExampleCloudEventDataAccess cloudEventDataAccess = new ExampleCloudEventDataAccess();
+        CloudEvent event = CloudEventBuilder.v1()
+                .withId("1")
+                .withType(ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+                .withSource(URI.create("http://example.com/product-service"))
+                .withData("application/json", cloudEventDataAccess.toCloudEventData(new ProductEventDetails.Builder().id("widget").build()))
+                .build();
+
+        Handlers handlers = new Handlers();
+        EventHandlers.EventHandler productHandler = EventHandlers.of(Handlers.class).forType(ExampleCloudEventType.PRODUCT_EVENT_TYPE);
+        productHandler.invoke(handlers, null, event, productHandler.decode(event, cloudEventDataAccess));
+        assertEquals("widget", handlers.productId);
+        EventHandlers.EventHandler otherHandler = EventHandlers.of(Handlers.class).forType("example.other");
+        otherHandler.invoke(handlers, null, event, otherHandler.decode(event, cloudEventDataAccess));
+        assertSame(event, handlers.otherEvent);
+        assertNull(EventHandlers.of(Handlers.class).forType("example.unknown"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void invalidHandlersAreRejected() {
+        EventHandlers.of(InvalidHandlers.class);
+    }
+
+    static class Handlers {
+        String productId;
+        CloudEvent otherEvent;
+
+        @OnEvent(type = ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+        private void onProduct(Context context, ProductEventDetails details) {
+            productId = details.getId();
+        }
+
+        @OnEvent(type = "example.other")
+        private void onOther(Context context, CloudEvent event) {
+            otherEvent = event;
+        }
+    }
+
+    static class InvalidHandlers {
+        @OnEvent(type = ExampleCloudEventType.PRODUCT_EVENT_TYPE)
+        private String onProduct(ProductEventDetails details) {
+            return details.getId();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.stateful_functions.function;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.cloudevents.identity.EventIdentity;
+import com.example.stateful_functions.cloudevents.identity.MonotonicEventIdentity;
+import com.example.stateful_functions.function.product.ProductStatefulFunction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FunctionProviderTest {
+
+    @Test
+    public void generatedRegistryMatchesTheClasspath() throws Exception {
+        FunctionProvider registry = new FunctionProvider(FunctionProvider.REGISTRY);
+        registry.afterPropertiesSet();
+        FunctionProvider scan = new FunctionProvider(FunctionProvider.SCAN);
+        scan.afterPropertiesSet();
+
+        assertEquals(scan.getFunctionsByType(), registry.getFunctionsByType());
+        assertEquals(ProductStatefulFunction.class, registry.getFunctionsByType().get(ProductStatefulFunction.FUNCTION_TYPE));
+    }
+
+    @Test
+    public void functionsAreGivenTheSingletons() throws Exception {
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.registerBean(ExampleCloudEventFormats.class,
+                () -> new ExampleCloudEventFormats(new ExampleCloudEventJsonFormat(), new ExampleCloudEventProtobufFormat()));
+        applicationContext.registerBean(ExampleCloudEventDataAccess.class, () -> new ExampleCloudEventDataAccess(new ObjectMapper()));
+        applicationContext.registerBean(EventIdentity.class, MonotonicEventIdentity::new);
+        applicationContext.refresh();
+
+        FunctionProvider functionProvider = new FunctionProvider(FunctionProvider.REGISTRY);
+        functionProvider.setApplicationContext(applicationContext);
+        functionProvider.afterPropertiesSet();
+
+        AbstractStatefulFunction first = (AbstractStatefulFunction) functionProvider.functionOfType(ProductStatefulFunction.FUNCTION_TYPE);
+        AbstractStatefulFunction second = (AbstractStatefulFunction) functionProvider.functionOfType(ProductStatefulFunction.FUNCTION_TYPE);
+        assertNotSame(first, second);
+        assertSame(applicationContext.getBean(ExampleCloudEventFormats.class), first.cloudEventFormats);
+        assertSame(applicationContext.getBean(ExampleCloudEventDataAccess.class), second.cloudEventDataAccess);
+        assertSame(applicationContext.getBean(EventIdentity.class), second.eventIdentity);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.stateful_functions.function.product;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+
+public class NotifyWindowsTest {
+
+    @Test
+    public void windowsAreByCategory() {
+        NotifyWindows windows = NotifyWindows.parse(" electronics=500, *=100,toys=0");
+        assertEquals(Duration.ofMillis(500), windows.windowOf("electronics"));
+        assertEquals(Duration.ZERO, windows.windowOf("toys"));
+        assertEquals(Duration.ofMillis(100), windows.windowOf("garden"));
+        assertEquals(Duration.ofMillis(100), windows.windowOf(null));
+    }
+
+    @Test
+    public void invalidWindowsAreSkipped() {
+        NotifyWindows windows = NotifyWindows.parse("electronics=soon,toys=-1,=5,garden,books=250");
+        assertEquals(Duration.ZERO, windows.windowOf("electronics"));
+        assertEquals(Duration.ZERO, windows.windowOf("toys"));
+        assertEquals(Duration.ZERO, windows.windowOf(""));
+        assertEquals(Duration.ZERO, windows.windowOf(null));
+        assertEquals(Duration.ofMillis(250), windows.windowOf("books"));
+        assertEquals(Duration.ZERO, NotifyWindows.parse("").windowOf("books"));
+    }
+}
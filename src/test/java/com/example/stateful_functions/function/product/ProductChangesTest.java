@@ -0,0 +1,46 @@
+package com.example.stateful_functions.function.product;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProductChangesTest {
+
+    private static final Set<ProductChanges.Field> PRICE_AND_AVAILABILITY =
+            EnumSet.of(ProductChanges.Field.PRICE, ProductChanges.Field.AVAILABILITY);
+
+    @Test
+    public void onlyChangesToTheNotifiedFieldsAreNotified() {
+        ProductStateDetails before = product("Widget", "42", ProductStateAvailability.IN_STOCK);
+
+        assertTrue(ProductChanges.isNotified(null, before, PRICE_AND_AVAILABILITY));
+        assertFalse(ProductChanges.isNotified(before, product("Better widget", "42.00", ProductStateAvailability.IN_STOCK), PRICE_AND_AVAILABILITY));
+        assertTrue(ProductChanges.isNotified(before, product("Widget", "43", ProductStateAvailability.IN_STOCK), PRICE_AND_AVAILABILITY));
+        assertTrue(ProductChanges.isNotified(before, product("Widget", "42", ProductStateAvailability.OUT_OF_STOCK), PRICE_AND_AVAILABILITY));
+        assertTrue(ProductChanges.isNotified(before, product("Better widget", "42", ProductStateAvailability.IN_STOCK),
+                EnumSet.allOf(ProductChanges.Field.class)));
+    }
+
+    @Test
+    public void notifyFieldsAreParsed() {
+        assertEquals(PRICE_AND_AVAILABILITY, ProductChanges.parse("price, availability"));
+        assertEquals(EnumSet.allOf(ProductChanges.Field.class), ProductChanges.parse("*"));
+        assertEquals(EnumSet.of(ProductChanges.Field.TITLE), ProductChanges.parse("title,colour,"));
+    }
+
+    private static ProductStateDetails product(String title, String price, ProductStateAvailability availability) {
+        ProductStateDetails product = new ProductStateDetails();
+        product.setId("widget");
+        product.setTitle(title);
+        product.setDescription("Something you should definitely buy!");
+        product.setPrice(new BigDecimal(price));
+        product.setAvailability(availability);
+        return product;
+    }
+}
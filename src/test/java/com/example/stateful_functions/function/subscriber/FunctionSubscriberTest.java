@@ -0,0 +1,24 @@
+package com.example.stateful_functions.function.subscriber;
+
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FunctionSubscriberTest {
+
+    @Test
+    public void functionTypesAreCachedUpToALimit() {
+        FunctionType cart = FunctionSubscriber.functionType("example", "cart");
+        assertSame(cart, FunctionSubscriber.functionType("example", "cart"));
+
+        // Types from a producer making them up are resolved, but not all kept
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(new FunctionType("made-up-" + i, "type"), FunctionSubscriber.functionType("made-up-" + i, "type"));
+        }
+        assertTrue(FunctionSubscriber.cachedFunctionTypes() <= 1024);
+        assertSame(cart, FunctionSubscriber.functionType("example", "cart"));
+    }
+}
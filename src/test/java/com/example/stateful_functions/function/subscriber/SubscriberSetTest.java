@@ -0,0 +1,95 @@
+package com.example.stateful_functions.function.subscriber;
+
+import com.example.stateful_functions.function.cart.CartStatefulFunction;
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.apache.flink.statefun.sdk.state.PersistedTable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SubscriberSetTest {
+
+    private final PersistedTable<Integer, SubscriberChunk> chunks = PersistedTable.of("subscriber-chunks", Integer.class, SubscriberChunk.class);
+    private final SubscriberSet subscribers = new SubscriberSet(chunks);
+
+    @Test
+    public void subscribersAreAddedAndRemoved() {
+        Set<Address> expected = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(subscribers.add(subscriber(CartStatefulFunction.FUNCTION_TYPE, "cart-" + i, null)));
+            expected.add(new Address(CartStatefulFunction.FUNCTION_TYPE, "cart-" + i));
+        }
+        // The same id with another function type is another subscriber, and ids may be any string
+        FunctionType otherType = new FunctionType("other", "wishlist");
+        assertTrue(subscribers.add(subscriber(otherType, "cart-1", "correlation")));
+        assertTrue(subscribers.add(subscriber(otherType, "liste de souhaits ☃", "")));
+        expected.add(new Address(otherType, "cart-1"));
+        expected.add(new Address(otherType, "liste de souhaits ☃"));
+
+        assertFalse(subscribers.add(subscriber(CartStatefulFunction.FUNCTION_TYPE, "cart-1", null)));
+        assertTrue(subscribers.remove(subscriber(CartStatefulFunction.FUNCTION_TYPE, "cart-2", null)));
+        assertFalse(subscribers.remove(subscriber(CartStatefulFunction.FUNCTION_TYPE, "cart-2", null)));
+        expected.remove(new Address(CartStatefulFunction.FUNCTION_TYPE, "cart-2"));
+
+        assertTrue(subscribers.contains(subscriber(otherType, "cart-1", null)));
+        assertFalse(subscribers.contains(subscriber(CartStatefulFunction.FUNCTION_TYPE, "cart-2", null)));
+        assertEquals(expected, addresses());
+    }
+
+    @Test
+    public void subscribersAreRemovedByTheirSubscriberIds() {
+        for (int i = 0; i < 100; i++) {
+            subscribers.add(subscriber(CartStatefulFunction.FUNCTION_TYPE, "cart-" + i, i % 2 == 0 ? "correlation-" + i : null));
+        }
+
+        List<FunctionSubscriber> removed = subscribers.removeIf(subscriberId -> subscriberId.endsWith("0"));
+
+        assertEquals(10, removed.size());
+        for (FunctionSubscriber subscriber : removed) {
+            assertEquals("correlation-" + subscriber.getId().substring("cart-".length()), subscriber.getCorrelationId());
+            assertFalse(subscribers.contains(subscriber));
+        }
+        assertEquals(90, addresses().size());
+        subscribers.removeIf(subscriberId -> true);
+        assertTrue(addresses().isEmpty());
+        assertFalse(chunks.keys().iterator().hasNext());
+    }
+
+    @Test
+    public void functionTypesAreKeptOncePerChunk() {
+        for (int i = 0; i < 1000; i++) {
+            subscribers.add(subscriber(CartStatefulFunction.FUNCTION_TYPE, "cart-" + i, null));
+        }
+        for (SubscriberChunk chunk : chunks.values()) {
+            assertEquals(1, chunk.getTypes().size());
+            assertEquals(CartStatefulFunction.NAMESPACE, chunk.getNamespaces().get(0));
+        }
+        assertNull(chunks.get(64));
+    }
+
+    private Set<Address> addresses() {
+        List<Address> addresses = new ArrayList<>();
+        subscribers.forEachAddress(addresses::add);
+        Set<Address> unique = new HashSet<>(addresses);
+        assertEquals(addresses.size(), unique.size());
+        return unique;
+    }
+
+    private static FunctionSubscriber subscriber(FunctionType functionType, String id, String correlationId) {
+        FunctionSubscriber subscriber = new FunctionSubscriber();
+        subscriber.setNamespace(functionType.namespace());
+        subscriber.setType(functionType.name());
+        subscriber.setId(id);
+        subscriber.setCorrelationId(correlationId);
+        return subscriber;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.stateful_functions.function.subscriber;
+
+import com.example.stateful_functions.function.product.ProductStatefulFunction;
+import org.apache.flink.statefun.sdk.Address;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SubscriberShardsTest {
+
+    @Test
+    public void shardsAreAddressedByPublisherAndIndex() {
+        Address publisher = new Address(ProductStatefulFunction.FUNCTION_TYPE, "widget:blue");
+        Address shard = SubscriberShards.shardAddress(publisher, 12);
+
+        assertEquals(SubscriberShardStatefulFunction.FUNCTION_TYPE, shard.type());
+        assertEquals("example:product:widget:blue#12", shard.id());
+        assertEquals(12, SubscriberShards.shardIndex(shard.id()));
+        assertEquals(publisher, SubscriberShards.publisherOf(shard.id()));
+    }
+
+    @Test
+    public void doublingTheShardsMovesSubscribersToTheNewShardAfterTheirs() {
+        int[] subscribers = new int[4];
+        for (int i = 0; i < 10000; i++) {
+            String subscriberId = "example:cart:cart-" + i;
+            int shard = SubscriberShards.shardOf(subscriberId, 2);
+            int doubled = SubscriberShards.shardOf(subscriberId, 4);
+            assertTrue(doubled == shard || doubled == shard + 2);
+            subscribers[doubled]++;
+        }
+        // Sequential ids are spread evenly
+        for (int count : subscribers) {
+            assertTrue(String.valueOf(count), count > 2300 && count < 2700);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.stateful_functions.ingress;
+
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EnvelopeBundlerTest {
+
+    private final List<ExampleProtobuf.Envelope> emitted = new ArrayList<>();
+
+    @Test
+    public void bundlesUpToMaxEventsPerTarget() {
+        EnvelopeBundler bundler = new EnvelopeBundler(3, 100);
+        ExampleProtobuf.Envelope a1 = event("example.product", "a", "a1");
+        ExampleProtobuf.Envelope b1 = event("example.product", "b", "b1");
+        ExampleProtobuf.Envelope a2 = event("example.product", "a", "a2");
+        ExampleProtobuf.Envelope a3 = event("example.product", "a", "a3");
+
+        bundler.add(a1, 0, emitted::add);
+        bundler.add(b1, 1, emitted::add);
+        bundler.add(a2, 2, emitted::add);
+        assertTrue(emitted.isEmpty());
+        assertEquals(Arrays.asList(a1, a2, b1), bundler.pending());
+
+        bundler.add(a3, 3, emitted::add);
+        assertEquals(1, emitted.size());
+        ExampleProtobuf.Envelope batch = emitted.get(0);
+        assertEquals(Arrays.asList(a1, a2, a3), batch.getBatchList());
+        assertEquals("example.product", batch.getEventType());
+        assertEquals("a", batch.getTargetId());
+        assertTrue(batch.getPayload().isEmpty());
+
+        // A bundle of one is emitted as the event itself
+        bundler.flush(emitted::add);
+        assertSame(b1, emitted.get(1));
+        assertTrue(bundler.isEmpty());
+    }
+
+    @Test
+    public void emitsBundlesOnceTheirWindowHasPassed() {
+        EnvelopeBundler bundler = new EnvelopeBundler(10, 100);
+        bundler.add(event("example.product", "a", "a1"), 0, emitted::add);
+        bundler.add(event("example.product", "b", "b1"), 50, emitted::add);
+        bundler.add(event("example.product", "a", "a2"), 60, emitted::add);
+
+        bundler.expire(99, emitted::add);
+        assertTrue(emitted.isEmpty());
+        bundler.expire(100, emitted::add);
+        assertEquals(1, emitted.size());
+        assertEquals(2, emitted.get(0).getBatchCount());
+        bundler.expire(150, emitted::add);
+        assertEquals(2, emitted.size());
+    }
+
+    @Test
+    public void keepsEventsForATargetInOrder() {
+        EnvelopeBundler bundler = new EnvelopeBundler(10, 100);
+        ExampleProtobuf.Envelope untargeted = ExampleProtobuf.Envelope.newBuilder().setEventType("example.other").build();
+        ExampleProtobuf.Envelope product = event("example.product", "a", "a1");
+        ExampleProtobuf.Envelope cart = event("example.cart-product", "a", "a2");
+
+        bundler.add(untargeted, 0, emitted::add);
+        bundler.add(product, 0, emitted::add);
+        // A different type closes the open bundle for the target first
+        bundler.add(cart, 0, emitted::add);
+        bundler.flush(emitted::add);
+
+        assertEquals(Arrays.asList(untargeted, product, cart), emitted);
+    }
+
+    private static ExampleProtobuf.Envelope event(String type, String targetId, String id) {
+        return ExampleProtobuf.Envelope.newBuilder()
+                .setPayload(ByteString.copyFromUtf8(id))
+                .setEventType(type)
+                .setEventId(id)
+                .setTargetId(targetId)
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.stateful_functions.ingress;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.example.stateful_functions.quarantine.Quarantine;
+import com.example.stateful_functions.quarantine.QuarantineReason;
+import org.apache.flink.statefun.sdk.kinesis.ingress.IngressRecord;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class IngressDeserializerTest {
+
+    private static final byte[] PRODUCT_EVENT = ("{\"specversion\":\"1.0\",\"id\":\"82c80663-4b0d-4b55-8d68-59a3a22c33bf\"," +
+            "\"source\":\"http://example.com/product-service\",\"type\":\"example.product\"," +
+            "\"datacontenttype\":\"application/json\",\"time\":\"2024-01-22T20:08:59.986526Z\"," +
+            "\"data\":{\"id\":\"8f8339b5-6810-4c10-ae52-5262eb369f6e\",\"title\":\"Widget\",\"price\":42,\"availability\":\"IN_STOCK\"}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final String PROTOBUF_CONTENT_TYPE = ExampleCloudEventProtobufFormat.CLOUD_EVENT_FORMAT.serializedContentType();
+
+    private final IngressDeserializer ingressDeserializer = new IngressDeserializer();
+
+    @Test
+    public void jsonRecordsAreConverted() {
+        ExampleProtobuf.Envelope envelope = ingressDeserializer.deserialize(record(PRODUCT_EVENT));
+        assertHeaders(envelope);
+        assertEquals(PROTOBUF_CONTENT_TYPE, envelope.getContentType());
+
+        byte[] indented = ("\n  " + new String(PRODUCT_EVENT, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        assertHeaders(ingressDeserializer.deserialize(record(indented)));
+    }
+
+    @Test
+    public void protobufRecordsArePassedOn() {
+        ExampleCloudEventJsonFormat jsonFormat = new ExampleCloudEventJsonFormat();
+        byte[] protobufEvent = EnvelopeUtil.unsafeBytes(new ExampleCloudEventProtobufFormat().serialize(jsonFormat.deserialize(PRODUCT_EVENT)));
+
+        ExampleProtobuf.Envelope envelope = ingressDeserializer.deserialize(record(protobufEvent));
+        assertHeaders(envelope);
+        assertEquals(PROTOBUF_CONTENT_TYPE, envelope.getContentType());
+        assertSame(protobufEvent, EnvelopeUtil.payloadBytes(envelope));
+    }
+
+    @Test
+    public void badRecordsAreQuarantinedAsReceived() {
+        byte[] truncated = new String(PRODUCT_EVENT, StandardCharsets.UTF_8).substring(0, 100).getBytes(StandardCharsets.UTF_8);
+        ExampleProtobuf.Envelope envelope = ingressDeserializer.deserialize(record(truncated));
+        assertEquals(QuarantineReason.MALFORMED_JSON, Quarantine.reasonOf(envelope));
+        assertSame(truncated, EnvelopeUtil.payloadBytes(envelope));
+
+        byte[] corrupt = {0x1f, (byte) 0x8b, 8, 0, 1, 2, 3};
+        assertEquals(QuarantineReason.CORRUPT_COMPRESSION, Quarantine.reasonOf(ingressDeserializer.deserialize(record(corrupt))));
+
+        byte[] untyped = "{\"specversion\":\"1.0\",\"id\":\"1\"}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(QuarantineReason.MISSING_ATTRIBUTES, Quarantine.reasonOf(ingressDeserializer.deserialize(record(untyped))));
+
+        assertEquals(QuarantineReason.EMPTY, Quarantine.reasonOf(ingressDeserializer.deserialize(record(new byte[0]))));
+    }
+
+    private static void assertHeaders(ExampleProtobuf.Envelope envelope) {
+        assertEquals("example.product", envelope.getEventType());
+        assertEquals("82c80663-4b0d-4b55-8d68-59a3a22c33bf", envelope.getEventId());
+    }
+
+    private static IngressRecord record(byte[] data) {
+        return IngressRecord.newBuilder()
+                .withData(data)
+                .withStream("example-ingress-stream")
+                .withShardId("shardId-000000000000")
+                .withPartitionKey("8f8339b5-6810-4c10-ae52-5262eb369f6e")
+                .withSequenceNumber("1")
+                .withApproximateArrivalTimestamp(System.currentTimeMillis())
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.stateful_functions.integration;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.egress.QuarantineSerializer;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.example.stateful_functions.quarantine.QuarantineReason;
+import com.google.common.io.Resources;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Test that records the job can't handle reach the quarantine stream: a record that isn't JSON quarantined by the
+ * ingress with the bytes as they were received, and events nothing forwards quarantined by the router in the
+ * internal format, as written by the QuarantineSerializer.
+ */
+public class QuarantineIntegrationTest extends StatefulFunctionIntegrationTest {
+
+    private static final String EVENTS = "quarantine-integration-test-events.jsonl";
+
+    @Autowired
+    ExampleCloudEventFormats cloudEventFormats;
+
+    @Test
+    public void run() throws Exception {
+        List<ExampleProtobuf.Envelope> envelopesSentToEgress = executeTestHarnessWith(EVENTS);
+        assertTrue(envelopesSentToEgress.isEmpty());
+
+        QuarantineSerializer serializer = new QuarantineSerializer();
+        List<ExampleProtobuf.QuarantineRecord> records = new ArrayList<>();
+        for (ExampleProtobuf.Envelope envelope : quarantinedEvents) {
+            records.add(ExampleProtobuf.QuarantineRecord.parseFrom(serializer.serialize(envelope).getData()));
+        }
+        assertEquals(3, records.size());
+
+        String truncated = Resources.readLines(Resources.getResource(EVENTS), StandardCharsets.UTF_8).get(1);
+        ExampleProtobuf.QuarantineRecord malformed = recordWithReason(records, QuarantineReason.MALFORMED_JSON, null);
+        assertEquals(truncated, malformed.getData().toStringUtf8());
+        assertFalse(malformed.hasContentType());
+
+        ExampleProtobuf.QuarantineRecord unroutedType = recordWithReason(records, QuarantineReason.UNROUTED, "example.warehouse");
+        assertEquals("0d2c7a4e-93b1-4d2f-8f0e-6a5b4c3d2e1f", unroutedType.getEventId());
+        assertEquals(cloudEventFormats.internal().getContentType(), unroutedType.getContentType());
+        assertEquals("example.warehouse", cloudEventFormats.internal().deserialize(unroutedType.getData()).getType());
+
+        // Routed by type, but without a product id to forward it to
+        ExampleProtobuf.QuarantineRecord unroutedProduct = recordWithReason(records, QuarantineReason.UNROUTED, "example.product");
+        assertEquals("5e9f8a7b-6c5d-4e3f-a2b1-c0d9e8f7a6b5", unroutedProduct.getEventId());
+        assertEquals(cloudEventFormats.internal().getContentType(), unroutedProduct.getContentType());
+    }
+
+    private static ExampleProtobuf.QuarantineRecord recordWithReason(List<ExampleProtobuf.QuarantineRecord> records,
+                                                                     QuarantineReason reason, String eventType) {
+        return records.stream()
+                .filter(record -> record.getReason().equals(reason.name()))
+                .filter(record -> eventType == null || record.getEventType().equals(eventType))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + reason + " record of " + eventType));
+    }
+}
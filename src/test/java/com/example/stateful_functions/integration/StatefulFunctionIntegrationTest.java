@@ -18,16 +18,19 @@ public abstract class StatefulFunctionIntegrationTest extends AbstractStatefulFu
     TestMessageSource testMessageSource;
 
     static final List<ExampleProtobuf.Envelope> egressEvents = new ArrayList<>();
+    static final List<ExampleProtobuf.Envelope> quarantinedEvents = new ArrayList<>();
 
     protected List<ExampleProtobuf.Envelope> executeTestHarnessWith(String messageSourceResourceName) throws Exception {
         testMessageSource.setEventsResourcePath(messageSourceResourceName);
 
         egressEvents.clear();
+        quarantinedEvents.clear();
 
         Harness harness =
                 new Harness()
                         .withFlinkSourceFunction(IngressSpecs.INGRESS_ID, testMessageSource)
-                        .withConsumingEgress(EgressSpecs.ID, (SerializableConsumer<ExampleProtobuf.Envelope>) envelope -> egressEvents.add(envelope));
+                        .withConsumingEgress(EgressSpecs.ID, (SerializableConsumer<ExampleProtobuf.Envelope>) envelope -> egressEvents.add(envelope))
+                        .withConsumingEgress(EgressSpecs.QUARANTINE_ID, (SerializableConsumer<ExampleProtobuf.Envelope>) envelope -> quarantinedEvents.add(envelope));
 
         harness.start();
 
@@ -4,14 +4,17 @@ import com.example.stateful_functions.function.product.ProductStateDetails;
 import com.example.stateful_functions.function.product.ProductStatefulFunction;
 import com.example.stateful_functions.protobuf.ExampleProtobuf;
 import com.example.stateful_functions.util.TestMessageLoader;
+import com.google.protobuf.ByteString;
 import org.apache.flink.statefun.testutils.function.FunctionTestHarness;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.math.BigDecimal;
 import java.util.Iterator;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 /*
@@ -42,5 +45,22 @@ public class ProductStatefulFunctionTest extends StatefulFunctionIsolationTest {
         // TODO: assert on values in the state model
     }
 
+    @Test
+    public void batch() throws Exception {
+
+        FunctionTestHarness harness = getHarnessForFunction(statefulFunction, "isolated-test-batch-id");
+
+        ExampleProtobuf.Envelope first = testMessageLoader.loadMessages("product-function-isolated-test-events.jsonl").get(0);
+        ExampleProtobuf.Envelope second = first.toBuilder()
+                .setPayload(ByteString.copyFromUtf8(first.getPayload().toStringUtf8().replace("\"price\":42", "\"price\":43")))
+                .build();
+
+        // The events of a batch are applied in order
+        harness.invoke(ExampleProtobuf.Envelope.newBuilder().addBatch(first).addBatch(second).build());
+        ProductStateDetails stateModel = statefulFunction.getStateValue();
+        assertNotNull(stateModel);
+        assertEquals(0, BigDecimal.valueOf(43).compareTo(stateModel.getPrice()));
+    }
+
 
 }
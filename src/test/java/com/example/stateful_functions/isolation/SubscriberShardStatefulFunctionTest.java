@@ -0,0 +1,118 @@
+package com.example.stateful_functions.isolation;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionAddressDetails;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionAction;
+import com.example.stateful_functions.cloudevents.data.internal.FunctionSubscriptionDetails;
+import com.example.stateful_functions.cloudevents.data.internal.SubscriberShardDetails;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.function.cart.CartStatefulFunction;
+import com.example.stateful_functions.function.product.ProductStatefulFunction;
+import com.example.stateful_functions.function.subscriber.SubscriberShardStatefulFunction;
+import com.example.stateful_functions.function.subscriber.SubscriberShards;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.testutils.function.FunctionTestHarness;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Test of SubscriberShardStatefulFunction
+ *
+ */
+
+public class SubscriberShardStatefulFunctionTest extends StatefulFunctionIsolationTest {
+
+    private static final Address PRODUCT = new Address(ProductStatefulFunction.FUNCTION_TYPE, "widget");
+
+    @Autowired
+    SubscriberShardStatefulFunction statefulFunction;
+
+    @Autowired
+    ExampleCloudEventFormats cloudEventFormats;
+
+    @Autowired
+    ExampleCloudEventDataAccess cloudEventDataAccess;
+
+    @Test
+    public void eventsAreSentToEverySubscriber() {
+        FunctionTestHarness harness = getHarnessForFunction(statefulFunction, SubscriberShards.shardAddress(PRODUCT, 0).id());
+        for (int i = 0; i < 3; i++) {
+            harness.invoke(subscription("cart-" + i, FunctionSubscriptionAction.SUBSCRIBE));
+        }
+        harness.invoke(subscription("cart-1", FunctionSubscriptionAction.UNSUBSCRIBE));
+        assertEquals(2, statefulFunction.getSubscriberCount());
+
+        Map<Address, List<Object>> sent = harness.invoke(event(ExampleCloudEventType.PRODUCT_EVENT_TYPE,
+                new ProductEventDetails.Builder().id("widget").build()));
+
+        assertEquals(2, sent.size());
+        Object message = sent.get(new Address(CartStatefulFunction.FUNCTION_TYPE, "cart-0")).get(0);
+        assertEquals(message, sent.get(new Address(CartStatefulFunction.FUNCTION_TYPE, "cart-2")).get(0));
+        assertEquals(ExampleCloudEventType.PRODUCT_EVENT_TYPE, ((ExampleProtobuf.Envelope) message).getEventType());
+        assertNull(sent.get(new Address(CartStatefulFunction.FUNCTION_TYPE, "cart-1")));
+    }
+
+    @Test
+    public void splittingMovesSubscribersToTheNewShard() {
+        FunctionTestHarness harness = getHarnessForFunction(statefulFunction, SubscriberShards.shardAddress(PRODUCT, 1).id());
+        harness.invoke(event(ExampleCloudEventType.SUBSCRIBER_SHARD_SPLIT_EVENT_TYPE, new SubscriberShardDetails.Builder().shardCount(2).build()));
+        int subscribed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (SubscriberShards.shardOf("example:cart:cart-" + i, 2) == 1) {
+                harness.invoke(subscription("cart-" + i, FunctionSubscriptionAction.SUBSCRIBE));
+                subscribed++;
+            }
+        }
+
+        Map<Address, List<Object>> sent = harness.invoke(event(ExampleCloudEventType.SUBSCRIBER_SHARD_SPLIT_EVENT_TYPE,
+                new SubscriberShardDetails.Builder().shardCount(4).build()));
+
+        List<Object> moved = sent.get(SubscriberShards.shardAddress(PRODUCT, 3));
+        assertEquals(1, sent.size());
+        assertTrue(moved.size() > 0 && moved.size() < subscribed);
+        assertEquals(subscribed - moved.size(), statefulFunction.getSubscriberCount());
+        for (Object message : moved) {
+            FunctionSubscriptionDetails subscription = cloudEventDataAccess.toFunctionSubscriptionDetails(
+                    EnvelopeCloudEvent.from((ExampleProtobuf.Envelope) message, cloudEventFormats));
+            String subscriberId = "example:cart:" + subscription.getSubscriber().getId();
+            assertEquals(FunctionSubscriptionAction.SUBSCRIBE, subscription.getAction());
+            assertEquals(3, SubscriberShards.shardOf(subscriberId, 4));
+            assertFalse(statefulFunction.isSubscribed(new Address(CartStatefulFunction.FUNCTION_TYPE, subscription.getSubscriber().getId())));
+        }
+    }
+
+    private ExampleProtobuf.Envelope subscription(String cartId, FunctionSubscriptionAction action) {
+        return event(ExampleCloudEventType.FUNCTION_SUBSCRIPTION_EVENT_TYPE, new FunctionSubscriptionDetails.Builder()
+                .publisher(new FunctionAddressDetails.Builder()
+                        .namespace(ProductStatefulFunction.NAMESPACE).type(ProductStatefulFunction.TYPE).id(PRODUCT.id()).build())
+                .subscriber(new FunctionAddressDetails.Builder()
+                        .namespace(CartStatefulFunction.NAMESPACE).type(CartStatefulFunction.TYPE).id(cartId).build())
+                .action(action)
+                .build());
+    }
+
+    private ExampleProtobuf.Envelope event(String eventType, Object details) {
+        CloudEvent event = CloudEventBuilder.v1()
+                .withId(eventType + "-" + System.nanoTime())
+                .withType(eventType)
+                .withSource(URI.create("http://stateful_functions.example.com/example.product/widget"))
+                .withData("application/json", cloudEventDataAccess.toCloudEventData(details))
+                .build();
+        return EnvelopeCloudEvent.toEnvelope(event, cloudEventFormats.internal()).build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.stateful_functions.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ErrorBurstsTest {
+
+    @Test
+    public void repeatedErrorsAreSummarized() {
+        Logger logger = SampledLoggerTest.logger(Level.INFO);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        ErrorBursts errorBursts = new ErrorBursts(logger, 1000);
+
+        for (int i = 0; i < 5; i++) {
+            errorBursts.error("handler", "Failed to handle event {}", i, new IllegalStateException("event " + i));
+        }
+        errorBursts.error("other", "Failed differently");
+        assertEquals(2, appender.list.size());
+        assertNotNull(appender.list.get(0).getThrowableProxy());
+
+        errorBursts.summarize();
+        assertEquals(3, appender.list.size());
+        String summary = appender.list.get(2).getFormattedMessage();
+        assertTrue(summary, summary.startsWith("4 more errors of handler") && summary.endsWith("java.lang.IllegalStateException: event 4"));
+
+        // Nothing more in an interval, and the next error is logged in full again
+        errorBursts.summarize();
+        errorBursts.summarize();
+        errorBursts.error("handler", "Failed to handle event {}", 5, new IllegalStateException("event 5"));
+        assertEquals(4, appender.list.size());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.stateful_functions.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SampledLoggerTest {
+
+    @Test
+    public void oneInEverySamplingIntervalIsSampled() {
+        SampledLogger sampledLogger = new SampledLogger(logger(Level.INFO), 3, 100, () -> 0L);
+
+        int sampled = 0;
+        for (int i = 0; i < 9; i++) {
+            if (sampledLogger.sample()) {
+                sampled++;
+            }
+        }
+        assertEquals(3, sampled);
+        assertEquals(2, sampledLogger.skipped());
+    }
+
+    @Test
+    public void samplesAreLimitedToTheRatePerSecond() {
+        AtomicLong nanos = new AtomicLong();
+        SampledLogger sampledLogger = new SampledLogger(logger(Level.INFO), 1, 2, nanos::get);
+
+        assertTrue(sampledLogger.sample());
+        assertTrue(sampledLogger.sample());
+        assertFalse(sampledLogger.sample());
+        assertFalse(sampledLogger.sample());
+
+        nanos.addAndGet(1_000_000_000L);
+        assertTrue(sampledLogger.sample());
+        assertEquals(2, sampledLogger.skipped());
+    }
+
+    @Test
+    public void nothingIsSampledWhenInfoIsDisabled() {
+        SampledLogger sampledLogger = new SampledLogger(logger(Level.WARN), 1, 100, () -> 0L);
+        assertFalse(sampledLogger.sample());
+    }
+
+    static Logger logger(Level level) {
+        Logger logger = new LoggerContext().getLogger("sampled");
+        logger.setLevel(level);
+        return logger;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.stateful_functions.metrics;
+
+import org.apache.flink.statefun.sdk.metrics.Counter;
+import org.apache.flink.statefun.sdk.metrics.Metrics;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventTypeMetricsTest {
+
+    @Test
+    public void latenciesAreCountedInBuckets() {
+        CountingMetrics metrics = new CountingMetrics();
+        LatencyCounter latency = new LatencyCounter(metrics, "handle-time");
+
+        latency.record(5_000);
+        latency.record(10_000);
+        latency.record(50_000);
+        latency.record(2_000_000_000L);
+
+        assertEquals(2, metrics.count("handle-time-le-10us"));
+        assertEquals(1, metrics.count("handle-time-le-100us"));
+        assertEquals(0, metrics.count("handle-time-le-1000us"));
+        assertEquals(1, metrics.count("handle-time-gt-100000us"));
+        assertEquals(2_000_065_000L, metrics.count("handle-time-total-ns"));
+    }
+
+    @Test
+    public void metricsAreCreatedOncePerEventType() {
+        CountingMetrics metrics = new CountingMetrics();
+        EventTypeMetrics<Counter> invocations = new EventTypeMetrics<>(metrics, (m, prefix) -> m.counter(prefix + "invocations"));
+
+        invocations.forEventType("example.product").inc();
+        invocations.forEventType("example.product").inc();
+        assertSame(invocations.forEventType("example.product"), invocations.forEventType("example.product"));
+        assertEquals(2, metrics.count("example.product.invocations"));
+        assertTrue(invocations.isOf(metrics));
+        assertFalse(invocations.isOf(new CountingMetrics()));
+    }
+
+    @Test
+    public void eventTypesPastTheLimitAreOther() {
+        CountingMetrics metrics = new CountingMetrics();
+        EventTypeMetrics<Counter> invocations = new EventTypeMetrics<>(metrics, (m, prefix) -> m.counter(prefix + "invocations"));
+
+        for (int i = 0; i < EventTypeMetrics.MAX_EVENT_TYPES + 10; i++) {
+            invocations.forEventType("example.type-" + i).inc();
+        }
+        assertEquals(1, metrics.count("example.type-0.invocations"));
+        assertEquals(10, metrics.count(EventTypeMetrics.OTHER + ".invocations"));
+        assertEquals(EventTypeMetrics.MAX_EVENT_TYPES + 1, metrics.counters.size());
+    }
+
+    static class CountingMetrics implements Metrics {
+        final Map<String, long[]> counters = new HashMap<>();
+
+        @Override
+        public Counter counter(String name) {
+            long[] count = counters.computeIfAbsent(name, n -> new long[1]);
+            return new Counter() {
+                @Override
+                public void inc(long amount) {
+                    count[0] += amount;
+                }
+
+                @Override
+                public void dec(long amount) {
+                    count[0] -= amount;
+                }
+            };
+        }
+
+        long count(String name) {
+            long[] count = counters.get(name);
+            return count == null ? 0 : count[0];
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.stateful_functions.quarantine;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RecordValidatorTest {
+
+    private static final String PRODUCT_EVENT = "{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\"," +
+            "\"type\":\"example.product\",\"datacontenttype\":\"application/json\"," +
+            "\"data\":{\"id\":\"product-1\",\"title\":\"A \\\"quoted\\\" {brace} \\u00e9\",\"tags\":[\"a\",[1,2]]}}";
+
+    @Test
+    public void jsonObjectsAreChecked() {
+        assertNull(RecordValidator.validateJson(bytes(PRODUCT_EVENT)));
+        assertNull(RecordValidator.validateJson(bytes("\r\n " + PRODUCT_EVENT + "\n")));
+
+        assertEquals(QuarantineReason.EMPTY, RecordValidator.validateJson(bytes(" \n")));
+        assertEquals(QuarantineReason.MALFORMED_JSON, RecordValidator.validateJson(bytes("[" + PRODUCT_EVENT + "]")));
+        assertEquals(QuarantineReason.MALFORMED_JSON, RecordValidator.validateJson(bytes(PRODUCT_EVENT.substring(0, PRODUCT_EVENT.length() - 1))));
+        assertEquals(QuarantineReason.MALFORMED_JSON, RecordValidator.validateJson(bytes(PRODUCT_EVENT + "{}")));
+        assertEquals(QuarantineReason.MALFORMED_JSON, RecordValidator.validateJson(bytes("{\"a\":[1}")));
+        assertEquals(QuarantineReason.MALFORMED_JSON, RecordValidator.validateJson(bytes("{\"a\":\"line\nbreak\"}")));
+        assertEquals(QuarantineReason.MALFORMED_JSON, RecordValidator.validateJson(bytes("{\"a\":\"\\x\"}")));
+        assertEquals(QuarantineReason.MALFORMED_JSON, RecordValidator.validateJson(bytes("{\"a\":\"\\u12\"}")));
+    }
+
+    @Test
+    public void protobufMessagesAreChecked() {
+        byte[] event = EnvelopeUtil.unsafeBytes(new ExampleCloudEventProtobufFormat().serialize(
+                new ExampleCloudEventJsonFormat().deserialize(bytes(PRODUCT_EVENT))));
+        assertNull(RecordValidator.validateProtobuf(event));
+
+        assertEquals(QuarantineReason.EMPTY, RecordValidator.validateProtobuf(new byte[0]));
+        assertEquals(QuarantineReason.MALFORMED_PROTOBUF, RecordValidator.validateProtobuf(Arrays.copyOf(event, event.length - 1)));
+        // A group, and a field number of 0
+        assertEquals(QuarantineReason.MALFORMED_PROTOBUF, RecordValidator.validateProtobuf(new byte[]{0x0b, 0x0c}));
+        assertEquals(QuarantineReason.MALFORMED_PROTOBUF, RecordValidator.validateProtobuf(new byte[]{0x00, 0x01}));
+        // A varint running past the end
+        assertEquals(QuarantineReason.MALFORMED_PROTOBUF, RecordValidator.validateProtobuf(new byte[]{0x08, (byte) 0x80}));
+        // Only the id
+        assertEquals(QuarantineReason.MISSING_ATTRIBUTES, RecordValidator.validateProtobuf(new byte[]{0x0a, 0x01, '1'}));
+    }
+
+    private static byte[] bytes(String record) {
+        return record.getBytes(StandardCharsets.UTF_8);
+    }
+}
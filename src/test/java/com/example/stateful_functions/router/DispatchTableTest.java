@@ -0,0 +1,102 @@
+package com.example.stateful_functions.router;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DispatchTableTest {
+
+    private final List<String> forwarded = new ArrayList<>();
+
+    @Test
+    public void routesByTypeAndPrefixInForwarderOrder() {
+        DispatchTable dispatchTable = new DispatchTable(Arrays.asList(
+                new CartForwarder(), new ProductForwarder(), new AuditForwarder(), new LegacyForwarder()));
+
+        assertEquals(2, dispatchTable.dispatch(context("example.product")));
+        assertEquals(2, dispatchTable.dispatch(context("example.cart-status")));
+        assertEquals(2, dispatchTable.dispatch(context("example.cart-status")));
+        assertEquals(2, dispatchTable.dispatch(context("legacy.product")));
+        assertEquals(0, dispatchTable.dispatch(context("other")));
+
+        assertEquals(Arrays.asList(
+                "ProductForwarder", "AuditForwarder",
+                "CartForwarder", "AuditForwarder",
+                "CartForwarder", "AuditForwarder",
+                "ProductForwarder", "LegacyForwarder"), forwarded);
+
+        assertEquals(Long.valueOf(2), dispatchTable.hits().get("example.cart-* -> CartForwarder"));
+        assertEquals(Long.valueOf(1), dispatchTable.hits().get("example.product -> ProductForwarder"));
+        assertEquals(Long.valueOf(1), dispatchTable.hits().get("legacy.* -> ProductForwarder"));
+        // The audit forwarder is routed by its exact type rather than its prefix
+        assertEquals(Long.valueOf(2), dispatchTable.hits().get("example.cart-status -> AuditForwarder"));
+        assertEquals(Long.valueOf(1), dispatchTable.hits().get("example.* -> AuditForwarder"));
+        assertEquals(Long.valueOf(1), dispatchTable.hits().get("predicate -> LegacyForwarder"));
+        assertEquals(1, dispatchTable.unrouted());
+    }
+
+    @Test
+    public void annotatedForwardersAcceptTheirTypes() {
+        AuditForwarder forwarder = new AuditForwarder();
+        assertTrue(forwarder.accept(event("example.cart-status")));
+        assertTrue(forwarder.accept(event("example.anything")));
+        assertFalse(forwarder.accept(event("examples")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void forwardersMustNameTypesOrPrefixes() {
+        new DispatchTable(Arrays.asList(new EmptyForwarder()));
+    }
+
+    private static RoutingContext context(String type) {
+        return new RoutingContext(event(type), null, null, null);
+    }
+
+    private static CloudEvent event(String type) {
+        return CloudEventBuilder.v1()
+                .withId("1")
+                .withType(type)
+                .withSource(URI.create("/test"))
+                .build();
+    }
+
+    private abstract class RecordingForwarder extends AbstractForwarder {
+        @Override
+        public boolean forward(RoutingContext context) {
+            forwarded.add(getClass().getSimpleName());
+            return true;
+        }
+    }
+
+    @ForwardsEvents(prefixes = "example.cart-")
+    private class CartForwarder extends RecordingForwarder {
+    }
+
+    @ForwardsEvents(types = "example.product", prefixes = "legacy.")
+    private class ProductForwarder extends RecordingForwarder {
+    }
+
+    @ForwardsEvents(types = "example.cart-status", prefixes = "example.")
+    private class AuditForwarder extends RecordingForwarder {
+    }
+
+    private class LegacyForwarder extends RecordingForwarder {
+        @Override
+        public boolean accept(CloudEvent event) {
+            return event.getType().startsWith("legacy.");
+        }
+    }
+
+    @ForwardsEvents
+    private class EmptyForwarder extends RecordingForwarder {
+    }
+}
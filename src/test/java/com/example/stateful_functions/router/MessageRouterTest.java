@@ -0,0 +1,127 @@
+package com.example.stateful_functions.router;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.example.stateful_functions.function.product.ProductStatefulFunction;
+import com.example.stateful_functions.function.quarantine.QuarantineStatefulFunction;
+import com.example.stateful_functions.ingress.EnvelopeBundler;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.example.stateful_functions.quarantine.QuarantineReason;
+import com.example.stateful_functions.router.forward.CartEventToCartFunction;
+import com.example.stateful_functions.router.forward.ProductEventToProductFunction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.sdk.io.Router;
+import org.apache.flink.statefun.sdk.metrics.Counter;
+import org.apache.flink.statefun.sdk.metrics.Metrics;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class MessageRouterTest {
+
+    private static final String PRODUCT_EVENT = "{\"specversion\":\"1.0\",\"id\":\"%s\",\"source\":\"/products\"," +
+            "\"type\":\"" + ExampleCloudEventType.PRODUCT_EVENT_TYPE + "\",\"datacontenttype\":\"application/json\"," +
+            "\"data\":{\"id\":\"product-1\",\"title\":\"Widget %s\"}}";
+
+    private final ExampleCloudEventFormats cloudEventFormats =
+            new ExampleCloudEventFormats(new ExampleCloudEventJsonFormat(), new ExampleCloudEventProtobufFormat());
+    private final ExampleCloudEventDataAccess cloudEventDataAccess = new ExampleCloudEventDataAccess(new ObjectMapper());
+    private final RecordingDownstream downstream = new RecordingDownstream();
+
+    @Test
+    public void batchesAreForwardedAsTheyAre() {
+        MessageRouter router = router(new CartEventToCartFunction(), new ProductEventToProductFunction());
+        ExampleProtobuf.Envelope batch = productBatch();
+
+        router.route(batch, downstream);
+
+        assertEquals(Collections.singletonList(new Address(ProductStatefulFunction.FUNCTION_TYPE, "product-1")), downstream.addresses);
+        assertEquals(batch, downstream.envelopes.get(0));
+        assertEquals(Long.valueOf(1), downstream.counters.get(ExampleCloudEventType.PRODUCT_EVENT_TYPE + ".routed"));
+        assertEquals(1, router.getDispatchTable().hits().get(ExampleCloudEventType.PRODUCT_EVENT_TYPE + " -> ProductEventToProductFunction").intValue());
+    }
+
+    @Test
+    public void batchesNothingForwardsAreQuarantinedAsTheirEvents() {
+        MessageRouter router = router(new CartEventToCartFunction());
+
+        router.route(productBatch(), downstream);
+
+        assertEquals(1, downstream.addresses.size());
+        assertEquals(QuarantineStatefulFunction.FUNCTION_TYPE, downstream.addresses.get(0).type());
+        ExampleProtobuf.Envelope quarantined = downstream.envelopes.get(0);
+        assertEquals(2, quarantined.getBatchCount());
+        for (ExampleProtobuf.Envelope event : quarantined.getBatchList()) {
+            assertEquals(QuarantineReason.UNROUTED.name(), event.getQuarantineReason());
+            assertEquals(cloudEventFormats.internal().getContentType(), event.getContentType());
+        }
+        assertEquals(Long.valueOf(2), downstream.counters.get(QuarantineReason.UNROUTED.getCounterName()));
+        assertEquals(1, router.getDispatchTable().unrouted());
+    }
+
+    private MessageRouter router(Forwarder... forwarders) {
+        MessageRouter router = new MessageRouter(Arrays.asList(forwarders), cloudEventFormats, cloudEventDataAccess,
+                new RoutingRules("", null, false));
+        router.afterPropertiesSet();
+        return router;
+    }
+
+    // Two events for product-1, bundled as the ingress does
+    private ExampleProtobuf.Envelope productBatch() {
+        List<ExampleProtobuf.Envelope> emitted = new ArrayList<>();
+        EnvelopeBundler bundler = new EnvelopeBundler(2, 1000);
+        for (int i = 1; i <= 2; i++) {
+            ExampleProtobuf.Envelope record = EnvelopeUtil.fromPayload(String.format(PRODUCT_EVENT, i, i).getBytes(StandardCharsets.UTF_8));
+            bundler.add(EnvelopeCloudEvent.toEnvelope(EnvelopeCloudEvent.from(record, cloudEventFormats), cloudEventFormats.internal()).build(),
+                    0, emitted::add);
+        }
+        assertEquals(1, emitted.size());
+        return emitted.get(0);
+    }
+
+    private static class RecordingDownstream implements Router.Downstream<ExampleProtobuf.Envelope>, Metrics {
+        private final List<Address> addresses = new ArrayList<>();
+        private final List<ExampleProtobuf.Envelope> envelopes = new ArrayList<>();
+        private final Map<String, Long> counters = new HashMap<>();
+
+        @Override
+        public void forward(Address address, ExampleProtobuf.Envelope envelope) {
+            addresses.add(address);
+            envelopes.add(envelope);
+        }
+
+        @Override
+        public Metrics metrics() {
+            return this;
+        }
+
+        @Override
+        public Counter counter(String name) {
+            return new Counter() {
+                @Override
+                public void inc(long amount) {
+                    counters.merge(name, amount, Long::sum);
+                }
+
+                @Override
+                public void dec(long amount) {
+                    counters.merge(name, -amount, Long::sum);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.stateful_functions.router;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventType;
+import com.example.stateful_functions.cloudevents.data.ProductEventDetails;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.apache.flink.statefun.sdk.io.Router;
+import org.apache.flink.statefun.sdk.metrics.Metrics;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RoutingContextTest {
+
+    private static final String PRODUCT_EVENT = "{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\"," +
+            "\"type\":\"" + ExampleCloudEventType.PRODUCT_EVENT_TYPE + "\",\"datacontenttype\":\"application/json\"," +
+            "\"data\":{\"id\":\"product-1\",\"title\":\"Widget\"}}";
+
+    private final ExampleCloudEventFormats cloudEventFormats =
+            new ExampleCloudEventFormats(new ExampleCloudEventJsonFormat(), new ExampleCloudEventProtobufFormat());
+    private final ExampleCloudEventDataAccess cloudEventDataAccess = new ExampleCloudEventDataAccess(new ObjectMapper());
+
+    @Test
+    public void forwardersShareOneDecodeAndOneEncode() {
+        RecordingDownstream downstream = new RecordingDownstream();
+        ExampleProtobuf.Envelope record = EnvelopeUtil.fromPayload(PRODUCT_EVENT.getBytes(StandardCharsets.UTF_8));
+        RoutingContext context = new RoutingContext(EnvelopeCloudEvent.from(record, cloudEventFormats), downstream,
+                cloudEventFormats, cloudEventDataAccess);
+
+        ProductEventDetails details = context.details(ProductEventDetails.class);
+        assertEquals("product-1", details.getId());
+        assertSame(details, context.details(ProductEventDetails.class));
+
+        context.forward(new FunctionType("example", "first"), details.getId());
+        context.forward(new FunctionType("example", "second"), details.getId());
+        assertEquals(2, downstream.envelopes.size());
+        assertSame(downstream.envelopes.get(0), downstream.envelopes.get(1));
+        assertEquals(cloudEventFormats.internal().getContentType(), downstream.envelopes.get(0).getContentType());
+    }
+
+    private static class RecordingDownstream implements Router.Downstream<ExampleProtobuf.Envelope> {
+        private final List<ExampleProtobuf.Envelope> envelopes = new ArrayList<>();
+
+        @Override
+        public void forward(Address address, ExampleProtobuf.Envelope envelope) {
+            envelopes.add(envelope);
+        }
+
+        @Override
+        public Metrics metrics() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
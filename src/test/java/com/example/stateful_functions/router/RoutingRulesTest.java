@@ -0,0 +1,154 @@
+package com.example.stateful_functions.router;
+
+import com.example.stateful_functions.cloudevents.ExampleCloudEventDataAccess;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventFormats;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.cloudevents.ExampleCloudEventProtobufFormat;
+import com.example.stateful_functions.envelope.EnvelopeCloudEvent;
+import com.example.stateful_functions.envelope.EnvelopeUtil;
+import com.example.stateful_functions.ingress.EnvelopeBundler;
+import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.flink.statefun.sdk.Address;
+import org.apache.flink.statefun.sdk.FunctionType;
+import org.apache.flink.statefun.sdk.io.Router;
+import org.apache.flink.statefun.sdk.metrics.Metrics;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RoutingRulesTest {
+
+    private static final String PRODUCT_EVENT = "{\"specversion\":\"1.0\",\"id\":\"1\",\"source\":\"/products\"," +
+            "\"type\":\"example.product\",\"datacontenttype\":\"application/json\"," +
+            "\"data\":{\"id\":\"product-1\",\"title\":\"Widget\",\"vendor\":{\"id\":\"vendor-1\"}}}";
+
+    private static final String PRODUCT_EVENT_WITHOUT_IDS = "{\"specversion\":\"1.0\",\"id\":\"2\",\"source\":\"/products\"," +
+            "\"type\":\"example.product\",\"datacontenttype\":\"application/json\",\"data\":{\"title\":\"Widget\"}}";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ExampleCloudEventFormats cloudEventFormats =
+            new ExampleCloudEventFormats(new ExampleCloudEventJsonFormat(), new ExampleCloudEventProtobufFormat());
+    private final ExampleCloudEventDataAccess cloudEventDataAccess = new ExampleCloudEventDataAccess(new ObjectMapper());
+    private final List<Address> forwarded = new ArrayList<>();
+    private final List<ExampleProtobuf.Envelope> forwardedEnvelopes = new ArrayList<>();
+
+    @Test
+    public void compilesValidRulesOnly() {
+        List<RoutingRule> rules = RoutingRules.compile(Arrays.asList(
+                "example.product=example/audit@data.id",
+                "# a comment",
+                "",
+                "example.cart-*=example/cart-audit@data.cartId",
+                "example.product=example/audit",
+                "example.product=audit@data.id",
+                "example.product=example/audit@id"));
+
+        assertEquals(2, rules.size());
+        assertEquals("example.product", rules.get(0).getEventType());
+        assertEquals(new FunctionType("example", "audit"), rules.get(0).getFunctionType());
+        assertEquals("example.cart-", rules.get(1).getEventType());
+        assertEquals(true, rules.get(1).isPrefix());
+    }
+
+    @Test
+    public void rulesRouteByKeyPath() {
+        DispatchTable dispatchTable = new DispatchTable(RoutingRules.compile(Arrays.asList(
+                "example.product=example/product-audit@data.id",
+                "example.*=example/vendor@data.vendor.id",
+                "example.product=example/missing@data.missing")));
+
+        // The event has no data.missing, so the last rule doesn't forward it
+        assertEquals(2, dispatchTable.dispatch(context(PRODUCT_EVENT)));
+        assertEquals(Arrays.asList(
+                new Address(new FunctionType("example", "product-audit"), "product-1"),
+                new Address(new FunctionType("example", "vendor"), "vendor-1")), forwarded);
+        assertEquals(Long.valueOf(1), dispatchTable.hits().get("example.* -> example.*=example/vendor@data.vendor.id"));
+        assertEquals(Long.valueOf(0), dispatchTable.hits().get("example.product -> example.product=example/missing@data.missing"));
+
+        // Nothing forwards an event without any of the ids, which is unrouted
+        assertEquals(0, dispatchTable.dispatch(context(PRODUCT_EVENT_WITHOUT_IDS)));
+        assertEquals(1, dispatchTable.unrouted());
+    }
+
+    @Test
+    public void batchesAreRoutedByEventUnlessByTheirTargetId() {
+        DispatchTable dispatchTable = new DispatchTable(RoutingRules.compile(Arrays.asList(
+                "example.product=example/product-audit@data.id",
+                "example.product=example/vendor@data.vendor.id")));
+        List<ExampleProtobuf.Envelope> emitted = new ArrayList<>();
+        EnvelopeBundler bundler = new EnvelopeBundler(2, 1000);
+        bundler.add(internalEnvelope(PRODUCT_EVENT), 0, emitted::add);
+        bundler.add(internalEnvelope(PRODUCT_EVENT.replace("\"id\":\"1\"", "\"id\":\"2\"").replace("vendor-1", "vendor-2")), 0, emitted::add);
+        assertEquals(2, emitted.get(0).getBatchCount());
+
+        assertEquals(2, dispatchTable.dispatch(context(emitted.get(0))));
+        // The batch goes to its target as it is, and each of its events to its own vendor
+        assertEquals(Arrays.asList(
+                new Address(new FunctionType("example", "product-audit"), "product-1"),
+                new Address(new FunctionType("example", "vendor"), "vendor-1"),
+                new Address(new FunctionType("example", "vendor"), "vendor-2")), forwarded);
+        assertEquals(2, forwardedEnvelopes.get(0).getBatchCount());
+        assertEquals(0, forwardedEnvelopes.get(1).getBatchCount());
+    }
+
+    @Test
+    public void reloadsRulesFromTheFile() throws Exception {
+        Path rulesFile = temporaryFolder.newFile("routing-rules").toPath();
+        Files.write(rulesFile, "example.product=example/first@data.id\n".getBytes(StandardCharsets.UTF_8));
+        RoutingRules routingRules = new RoutingRules("example.cart-*=example/cart-audit@data.cartId", rulesFile, false);
+        List<List<RoutingRule>> reloaded = new ArrayList<>();
+        routingRules.addListener(reloaded::add);
+
+        routingRules.afterPropertiesSet();
+        assertEquals(2, routingRules.getRules().size());
+
+        Files.write(rulesFile, "# no rules\n".getBytes(StandardCharsets.UTF_8));
+        routingRules.reload();
+        assertEquals(1, routingRules.getRules().size());
+        assertEquals(2, reloaded.size());
+
+        // An unreadable file keeps the current rules
+        Files.delete(rulesFile);
+        routingRules.reload();
+        assertEquals(1, routingRules.getRules().size());
+        assertEquals(2, reloaded.size());
+    }
+
+    // As the ingress emits it, with headers and in the internal format
+    private ExampleProtobuf.Envelope internalEnvelope(String json) {
+        ExampleProtobuf.Envelope record = EnvelopeUtil.fromPayload(json.getBytes(StandardCharsets.UTF_8));
+        return EnvelopeCloudEvent.toEnvelope(EnvelopeCloudEvent.from(record, cloudEventFormats), cloudEventFormats.internal()).build();
+    }
+
+    private RoutingContext context(String json) {
+        return context(EnvelopeUtil.fromPayload(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private RoutingContext context(ExampleProtobuf.Envelope record) {
+        Router.Downstream<ExampleProtobuf.Envelope> downstream = new Router.Downstream<ExampleProtobuf.Envelope>() {
+            @Override
+            public void forward(Address address, ExampleProtobuf.Envelope envelope) {
+                forwarded.add(address);
+                forwardedEnvelopes.add(envelope);
+            }
+
+            @Override
+            public Metrics metrics() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        return new RoutingContext(EnvelopeCloudEvent.from(record, cloudEventFormats), downstream, cloudEventFormats, cloudEventDataAccess);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.stateful_functions.util;
 
 import com.example.stateful_functions.protobuf.ExampleProtobuf;
 import com.google.common.io.Resources;
+import com.google.protobuf.ByteString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -26,7 +27,7 @@ public class TestMessageLoader implements Serializable {
             BufferedReader reader = new BufferedReader(new StringReader(resourceContents));
             String line = reader.readLine();
             while (line != null) {
-                events.add(ExampleProtobuf.Envelope.newBuilder().setPayload(line).build());
+                events.add(ExampleProtobuf.Envelope.newBuilder().setPayload(ByteString.copyFromUtf8(line)).build());
                 line = reader.readLine();
             }
 
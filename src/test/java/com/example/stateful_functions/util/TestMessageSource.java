@@ -1,9 +1,13 @@
 package com.example.stateful_functions.util;
 
+import com.example.stateful_functions.Configuration;
 import com.example.stateful_functions.cloudevents.ExampleCloudEventJsonFormat;
+import com.example.stateful_functions.ingress.IngressDeserializer;
 import com.example.stateful_functions.protobuf.ExampleProtobuf;
+import com.example.stateful_functions.quarantine.RecordValidator;
+import com.google.protobuf.ByteString;
 import io.cloudevents.CloudEvent;
-import org.apache.commons.lang.StringUtils;
+import org.apache.flink.statefun.sdk.kinesis.ingress.IngressRecord;
 import org.apache.flink.streaming.api.functions.source.SourceFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +15,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -67,18 +70,24 @@ public class TestMessageSource implements SourceFunction<ExampleProtobuf.Envelop
         }
     }
 
+    // Records are emitted as the Kinesis ingress would, so records that aren't events arrive quarantined
     @Override
     public void run(SourceContext<ExampleProtobuf.Envelope> sourceContext) {
         long delayBetweenEvents = 0;
+        IngressDeserializer ingressDeserializer = new IngressDeserializer();
 
         try {
             for (ExampleProtobuf.Envelope envelope : envelopes) {
-                String event = envelope.getPayload();
-                if (StringUtils.isEmpty(event)) {
+                ByteString event = envelope.getPayload();
+                if (event.isEmpty()) {
                     continue;
                 }
-                LOG.info("{}", event);
-                CloudEvent cloudEvent = ExampleCloudEventJsonFormat.CLOUD_EVENT_FORMAT.deserialize(event.getBytes(StandardCharsets.UTF_8));
+                LOG.info("{}", event.toStringUtf8());
+                if (RecordValidator.validateJson(event.toByteArray()) != null) {
+                    sourceContext.collect(ingressDeserializer.deserialize(ingressRecord(event)));
+                    continue;
+                }
+                CloudEvent cloudEvent = ExampleCloudEventJsonFormat.CLOUD_EVENT_FORMAT.deserialize(event.toByteArray());
                 switch (cloudEvent.getType()) {
                     case "test.comment":
                         // Ignore
@@ -90,7 +99,7 @@ public class TestMessageSource implements SourceFunction<ExampleProtobuf.Envelop
                         Thread.sleep(Long.parseLong(new String(cloudEvent.getData().toBytes())));
                         break;
                     default:
-                        sourceContext.collect(envelope);
+                        sourceContext.collect(ingressDeserializer.deserialize(ingressRecord(event)));
                         Thread.sleep(delayBetweenEvents);
                         break;
                 }
@@ -122,6 +131,17 @@ public class TestMessageSource implements SourceFunction<ExampleProtobuf.Envelop
     @Override
     public void cancel() {}
 
+    private static IngressRecord ingressRecord(ByteString data) {
+        return IngressRecord.newBuilder()
+                .withData(data.toByteArray())
+                .withStream(Configuration.INGRESS_KINESIS_STREAM_NAME)
+                .withShardId("shardId-000000000000")
+                .withPartitionKey("test")
+                .withSequenceNumber("1")
+                .withApproximateArrivalTimestamp(System.currentTimeMillis())
+                .build();
+    }
+
     List<ExampleProtobuf.Envelope> inputFixture(String path) {
         return testMessageLoader.loadMessages(path);
     }